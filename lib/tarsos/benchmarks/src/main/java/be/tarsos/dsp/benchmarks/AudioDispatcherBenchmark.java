@@ -0,0 +1,106 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+import be.tarsos.dsp.pitch.PitchProcessor;
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * End to end {@link AudioDispatcher#run()} over a synthetic 30 second WAV file,
+ * with the buffer size and overlap of the LogicBro analysis. The chain is
+ * either framing only, YIN pitch tracking, or pitch plus energy and a Hann
+ * windowed spectrum like the fused feature pass.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class AudioDispatcherBenchmark {
+
+    private static final int BUFFER_SIZE = 2048;
+    private static final int OVERLAP = 1024;
+    private static final double SECONDS = 30;
+
+    @Param({"framing", "pitch", "features"})
+    private String chain;
+
+    private File wave;
+
+    @Setup
+    public void setUp() throws IOException {
+        wave = BenchmarkSignals.melodyWave(SECONDS);
+    }
+
+    @Benchmark
+    public void run(Blackhole blackhole) throws IOException, UnsupportedAudioFileException {
+        AudioDispatcher dispatcher = AudioDispatcherFactory.fromFile(wave, BUFFER_SIZE, OVERLAP);
+        float sampleRate = dispatcher.getFormat().getSampleRate();
+        if (!chain.equals("framing")) {
+            dispatcher.addAudioProcessor(new PitchProcessor(PitchProcessor.PitchEstimationAlgorithm.YIN,
+                sampleRate, BUFFER_SIZE, (result, event) -> blackhole.consume(result.getPitch())));
+        }
+        if (chain.equals("features")) {
+            dispatcher.addAudioProcessor(new SpectrumProcessor(blackhole));
+        }
+        dispatcher.addAudioProcessor(new AudioProcessor() {
+            @Override
+            public boolean process(AudioEvent audioEvent) {
+                blackhole.consume(audioEvent.getRMS());
+                return true;
+            }
+
+            @Override
+            public void processingFinished() {
+            }
+        });
+        dispatcher.run();
+    }
+
+    private static final class SpectrumProcessor implements AudioProcessor {
+        private final Blackhole blackhole;
+        private final FFT fft = new FFT(BUFFER_SIZE, new HannWindow());
+        private final float[] buffer = new float[BUFFER_SIZE];
+        private final float[] magnitudes = new float[BUFFER_SIZE / 2];
+
+        SpectrumProcessor(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public boolean process(AudioEvent audioEvent) {
+            System.arraycopy(audioEvent.getFloatBuffer(), 0, buffer, 0, BUFFER_SIZE);
+            fft.forwardTransform(buffer);
+            fft.modulus(buffer, magnitudes);
+            blackhole.consume(magnitudes);
+            return true;
+        }
+
+        @Override
+        public void processingFinished() {
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.BatchAudioDispatcher;
+import be.tarsos.dsp.BatchAudioProcessor;
+import be.tarsos.dsp.FrameBatch;
+import be.tarsos.dsp.RingBufferAudioDispatcher;
+import be.tarsos.dsp.io.MappedAudioInputStream;
+import be.tarsos.dsp.pitch.PitchProcessor;
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * The fused feature chain of the LogicBro analysis (YIN pitch, RMS energy and a
+ * Hann windowed spectrum) over a 30 second WAV file, one frame per call on a
+ * {@link RingBufferAudioDispatcher} against batches of frames on a
+ * {@link BatchAudioDispatcher}. A batch of one frame measures the overhead of
+ * the batch API itself.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class BatchDispatcherBenchmark {
+
+    private static final int BUFFER_SIZE = 2048;
+    private static final int OVERLAP = 1024;
+    private static final double SECONDS = 30;
+
+    @Param({"0", "1", "64", "512"})
+    private int framesPerBatch;
+
+    private File wave;
+
+    @Setup
+    public void setUp() throws IOException {
+        wave = BenchmarkSignals.melodyWave(SECONDS);
+    }
+
+    @Benchmark
+    public void run(Blackhole blackhole) throws IOException {
+        MappedAudioInputStream stream = MappedAudioInputStream.open(wave);
+        float sampleRate = stream.getFormat().getSampleRate();
+        PitchProcessor pitch = new PitchProcessor(PitchProcessor.PitchEstimationAlgorithm.YIN,
+            sampleRate, BUFFER_SIZE, (result, event) -> blackhole.consume(result.getPitch()));
+        Spectrum spectrum = new Spectrum(blackhole);
+        if (framesPerBatch == 0) {
+            AudioDispatcher dispatcher = new RingBufferAudioDispatcher(stream, BUFFER_SIZE, OVERLAP);
+            dispatcher.addAudioProcessor(pitch);
+            dispatcher.addAudioProcessor(spectrum);
+            dispatcher.run();
+        } else {
+            BatchAudioDispatcher dispatcher = new BatchAudioDispatcher(stream, BUFFER_SIZE, OVERLAP, framesPerBatch);
+            dispatcher.addBatchProcessor(pitch);
+            dispatcher.addBatchProcessor(spectrum);
+            dispatcher.run();
+        }
+    }
+
+    private static final class Spectrum implements AudioProcessor, BatchAudioProcessor {
+        private final Blackhole blackhole;
+        private final FFT fft = new FFT(BUFFER_SIZE, new HannWindow());
+        private final float[] buffer = new float[BUFFER_SIZE];
+        private final float[] magnitudes = new float[BUFFER_SIZE / 2];
+
+        Spectrum(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public boolean process(AudioEvent audioEvent) {
+            blackhole.consume(audioEvent.getRMS());
+            audioEvent.copyFloatBuffer(buffer);
+            transform();
+            return true;
+        }
+
+        @Override
+        public boolean processBatch(FrameBatch batch) {
+            for (int frame = 0; frame < batch.getFrameCount(); frame++) {
+                blackhole.consume(AudioEvent.calculateRMS(batch.getSamples(), batch.getFrameOffset(frame), BUFFER_SIZE));
+                batch.copyFrame(frame, buffer);
+                transform();
+            }
+            return true;
+        }
+
+        private void transform() {
+            fft.forwardTransform(buffer);
+            fft.modulus(buffer, magnitudes);
+            blackhole.consume(magnitudes);
+        }
+
+        @Override
+        public void processingFinished() {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Deterministic synthetic audio for the benchmarks: a short melody of
+ * harmonic tones with a little noise, so pitch trackers find voiced frames and
+ * spectra are not trivially sparse.
+ */
+final class BenchmarkSignals {
+
+    static final float SAMPLE_RATE = 44100;
+
+    private static final double[] MELODY = {220.0, 246.94, 261.63, 293.66, 329.63, 293.66, 261.63, 246.94};
+    private static final double NOTE_SECONDS = 0.25;
+
+    private BenchmarkSignals() {
+    }
+
+    static float[] melody(int length) {
+        Random random = new Random(42);
+        float[] samples = new float[length];
+        for (int i = 0; i < length; i++) {
+            double t = i / SAMPLE_RATE;
+            double frequency = MELODY[(int) (t / NOTE_SECONDS) % MELODY.length];
+            double phase = 2 * Math.PI * frequency * t;
+            double tone = 0.5 * Math.sin(phase) + 0.25 * Math.sin(2 * phase) + 0.125 * Math.sin(3 * phase);
+            samples[i] = (float) (0.8 * tone + 0.02 * random.nextGaussian());
+        }
+        return samples;
+    }
+
+    /**
+     * Writes the melody as a 16 bit mono WAV file that is deleted on exit.
+     */
+    static File melodyWave(double seconds) throws IOException {
+        float[] samples = melody((int) (seconds * SAMPLE_RATE));
+        ByteBuffer pcm = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (float sample : samples) {
+            pcm.putShort((short) Math.round(Math.max(-1, Math.min(1, sample)) * Short.MAX_VALUE));
+        }
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+        File file = File.createTempFile("tarsos-benchmark", ".wav");
+        file.deleteOnExit();
+        try (AudioInputStream stream = new AudioInputStream(new ByteArrayInputStream(pcm.array()), format,
+                samples.length)) {
+            AudioSystem.write(stream, AudioFileFormat.Type.WAVE, file);
+        }
+        return file;
+    }
+}
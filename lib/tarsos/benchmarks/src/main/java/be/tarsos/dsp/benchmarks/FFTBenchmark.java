@@ -0,0 +1,89 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.FloatFFT;
+import be.tarsos.dsp.util.fft.HannWindow;
+
+/**
+ * Forward transforms at the frame sizes used for analysis. Both transforms work
+ * in place, so every operation includes copying the frame into the work buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FFTBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    private int size;
+
+    private float[] frame;
+    private float[] buffer;
+    private FFT fft;
+    private FFT hannFft;
+    private FloatFFT floatFft;
+
+    @Setup
+    public void setUp() {
+        frame = BenchmarkSignals.melody(size);
+        buffer = new float[size];
+        fft = new FFT(size);
+        hannFft = new FFT(size, new HannWindow());
+        floatFft = new FloatFFT(size);
+    }
+
+    @Benchmark
+    public float[] fftForwardTransform() {
+        System.arraycopy(frame, 0, buffer, 0, size);
+        fft.forwardTransform(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public float[] fftForwardTransformHann() {
+        System.arraycopy(frame, 0, buffer, 0, size);
+        hannFft.forwardTransform(buffer);
+        return buffer;
+    }
+
+    /**
+     * Creating an FFT once the plan for its size and window is cached.
+     */
+    @Benchmark
+    public FFT constructHannFft() {
+        return new FFT(size, new HannWindow());
+    }
+
+    /**
+     * Computing the twiddle tables and window curve from scratch, what every
+     * FFT construction did before plans were shared.
+     */
+    @Benchmark
+    public float[] constructTables() {
+        new FloatFFT(size);
+        return new HannWindow().generateCurve(size);
+    }
+
+    @Benchmark
+    public float[] floatFftRealForward() {
+        System.arraycopy(frame, 0, buffer, 0, size);
+        floatFft.realForward(buffer);
+        return buffer;
+    }
+}
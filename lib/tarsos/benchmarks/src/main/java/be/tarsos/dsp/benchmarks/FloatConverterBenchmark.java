@@ -0,0 +1,80 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Byte to float conversion of one 2048 frame buffer for every PCM layout the
+ * converter supports.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FloatConverterBenchmark {
+
+    private static final int FRAMES = 2048;
+
+    /**
+     * Encoding, bits per sample and byte order.
+     */
+    @Param({"PCM_SIGNED_8", "PCM_SIGNED_16_LE", "PCM_SIGNED_16_BE", "PCM_SIGNED_24_LE", "PCM_SIGNED_32_LE",
+            "PCM_UNSIGNED_8", "PCM_UNSIGNED_16_LE", "PCM_FLOAT_32_LE", "PCM_FLOAT_64_LE"})
+    private String layout;
+
+    private TarsosDSPAudioFloatConverter converter;
+    private byte[] bytes;
+    private float[] floats;
+
+    @Setup
+    public void setUp() {
+        String[] parts = layout.split("_");
+        TarsosDSPAudioFormat.Encoding encoding;
+        switch (parts[1]) {
+            case "SIGNED":
+                encoding = TarsosDSPAudioFormat.Encoding.PCM_SIGNED;
+                break;
+            case "UNSIGNED":
+                encoding = TarsosDSPAudioFormat.Encoding.PCM_UNSIGNED;
+                break;
+            default:
+                encoding = TarsosDSPAudioFloatConverter.PCM_FLOAT;
+        }
+        int bits = Integer.parseInt(parts[2]);
+        boolean bigEndian = parts.length > 3 && parts[3].equals("BE");
+        int frameSize = bits / 8;
+        TarsosDSPAudioFormat format = new TarsosDSPAudioFormat(encoding, BenchmarkSignals.SAMPLE_RATE, bits, 1,
+            frameSize, BenchmarkSignals.SAMPLE_RATE, bigEndian);
+        converter = TarsosDSPAudioFloatConverter.getConverter(format);
+
+        bytes = new byte[FRAMES * frameSize];
+        floats = new float[FRAMES];
+        // float layouts get valid samples, integer layouts accept any bit pattern
+        converter.toByteArray(BenchmarkSignals.melody(FRAMES), bytes);
+        if (encoding != TarsosDSPAudioFloatConverter.PCM_FLOAT) {
+            new Random(42).nextBytes(bytes);
+        }
+    }
+
+    @Benchmark
+    public float[] toFloatArray() {
+        return converter.toFloatArray(bytes, floats);
+    }
+}
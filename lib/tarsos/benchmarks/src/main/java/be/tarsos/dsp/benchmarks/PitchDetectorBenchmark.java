@@ -0,0 +1,53 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.pitch.PitchDetectionResult;
+import be.tarsos.dsp.pitch.PitchDetector;
+import be.tarsos.dsp.pitch.PitchProcessor.PitchEstimationAlgorithm;
+
+/**
+ * One {@link PitchDetector#getPitch(float[])} call per operation for YIN,
+ * FastYin and the McLeod Pitch Method. YIN uses the default difference
+ * function, which is vectorized because the fork adds the incubator module.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class PitchDetectorBenchmark {
+
+    @Param({"YIN", "FFT_YIN", "MPM"})
+    private PitchEstimationAlgorithm algorithm;
+
+    @Param({"1024", "2048"})
+    private int bufferSize;
+
+    private float[] frame;
+    private PitchDetector detector;
+
+    @Setup
+    public void setUp() {
+        frame = BenchmarkSignals.melody(bufferSize);
+        detector = algorithm.getDetector(BenchmarkSignals.SAMPLE_RATE, bufferSize);
+    }
+
+    @Benchmark
+    public PitchDetectionResult getPitch() {
+        return detector.getPitch(frame);
+    }
+}
@@ -0,0 +1,76 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.PhaseVocoderPitchShifter;
+import be.tarsos.dsp.PitchShifter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Per-hop cost of shifting a fifth up with the original pitch shifter and the
+ * phase vocoder, with and without the polar lookup tables. Both replace the
+ * block, so every operation hands the shifter the frame again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PitchShifterBenchmark {
+
+    private static final double FACTOR = 1.5;
+
+    @Param({"1024", "2048", "4096"})
+    private int size;
+
+    private float[] frame;
+    private AudioEvent audioEvent;
+    private PitchShifter pitchShifter;
+    private PhaseVocoderPitchShifter phaseVocoder;
+    private PhaseVocoderPitchShifter phaseVocoderLookup;
+
+    @Setup
+    public void setUp() {
+        int overlap = size - size / 4;
+        frame = BenchmarkSignals.melody(size);
+        audioEvent = new AudioEvent(new TarsosDSPAudioFormat(BenchmarkSignals.SAMPLE_RATE, 16, 1, true, false));
+        pitchShifter = new PitchShifter(FACTOR, BenchmarkSignals.SAMPLE_RATE, size, overlap);
+        phaseVocoder = new PhaseVocoderPitchShifter(FACTOR, size, overlap);
+        phaseVocoderLookup = new PhaseVocoderPitchShifter(FACTOR, size, overlap, true);
+    }
+
+    @Benchmark
+    public float[] pitchShifter() {
+        audioEvent.setFloatBuffer(frame);
+        pitchShifter.process(audioEvent);
+        return audioEvent.getFloatBuffer();
+    }
+
+    @Benchmark
+    public float[] phaseVocoder() {
+        audioEvent.setFloatBuffer(frame);
+        phaseVocoder.process(audioEvent);
+        return audioEvent.getFloatBuffer();
+    }
+
+    @Benchmark
+    public float[] phaseVocoderLookup() {
+        audioEvent.setFloatBuffer(frame);
+        phaseVocoderLookup.process(audioEvent);
+        return audioEvent.getFloatBuffer();
+    }
+}
@@ -0,0 +1,92 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.resample.PolyphaseResampler;
+import be.tarsos.dsp.resample.Resampler;
+
+/**
+ * Cost of converting ten seconds of mono audio between fixed sample rates with
+ * the interpolating resampler and the polyphase resampler, both with the high
+ * quality filter. The input is fed in blocks of 8192 samples, as a decoder
+ * would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResamplerBenchmark {
+
+    private static final int SECONDS = 10;
+    private static final int BLOCK = 8192;
+
+    @Param({"48000:44100", "44100:22050", "44100:16000"})
+    private String rates;
+
+    private int inputRate;
+    private int outputRate;
+    private float[] input;
+    private float[] output;
+
+    @Setup
+    public void setUp() {
+        String[] parts = rates.split(":");
+        inputRate = Integer.parseInt(parts[0]);
+        outputRate = Integer.parseInt(parts[1]);
+        // the melody's pitches at the input rate do not matter for the cost
+        input = BenchmarkSignals.melody(SECONDS * inputRate);
+        output = new float[SECONDS * outputRate + 1024];
+    }
+
+    @Benchmark
+    public int resampler() {
+        double factor = (double) outputRate / inputRate;
+        Resampler resampler = new Resampler(true, factor, factor);
+        FloatBuffer out = FloatBuffer.wrap(output);
+        for (int offset = 0; offset < input.length; offset += BLOCK) {
+            int length = Math.min(BLOCK, input.length - offset);
+            FloatBuffer in = FloatBuffer.wrap(input, offset, length);
+            boolean last = offset + length == input.length;
+            while (true) {
+                boolean complete = resampler.process(factor, in, last, out);
+                if (!in.hasRemaining() && (!last || complete)) {
+                    break;
+                }
+            }
+        }
+        return out.position();
+    }
+
+    @Benchmark
+    public int polyphase() {
+        PolyphaseResampler resampler = new PolyphaseResampler(inputRate, outputRate, true);
+        FloatBuffer out = FloatBuffer.wrap(output);
+        for (int offset = 0; offset < input.length; offset += BLOCK) {
+            int length = Math.min(BLOCK, input.length - offset);
+            FloatBuffer in = FloatBuffer.wrap(input, offset, length);
+            boolean last = offset + length == input.length;
+            while (true) {
+                boolean complete = resampler.process(in, last, out);
+                if (!in.hasRemaining() && (!last || complete)) {
+                    break;
+                }
+            }
+        }
+        return out.position();
+    }
+}
@@ -0,0 +1,84 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.RingBufferAudioDispatcher;
+import be.tarsos.dsp.io.MappedAudioInputStream;
+import be.tarsos.dsp.onsets.ComplexOnsetDetector;
+
+/**
+ * {@link AudioDispatcher} against {@link RingBufferAudioDispatcher} on a 30
+ * second WAV file with a 2048 sample buffer. The framing chain only reads the
+ * time stamp, so it measures the cost of the dispatcher itself; the onset
+ * chain runs the complex domain onset detector.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RingBufferDispatcherBenchmark {
+
+    private static final int BUFFER_SIZE = 2048;
+    private static final double SECONDS = 30;
+
+    @Param({"plain", "ring"})
+    private String dispatcher;
+
+    @Param({"1024", "1984"})
+    private int overlap;
+
+    @Param({"framing", "onset"})
+    private String chain;
+
+    private File wave;
+
+    @Setup
+    public void setUp() throws IOException {
+        wave = BenchmarkSignals.melodyWave(SECONDS);
+    }
+
+    @Benchmark
+    public void run(Blackhole blackhole) throws IOException {
+        MappedAudioInputStream stream = MappedAudioInputStream.open(wave);
+        AudioDispatcher audioDispatcher = dispatcher.equals("ring")
+            ? new RingBufferAudioDispatcher(stream, BUFFER_SIZE, overlap)
+            : new AudioDispatcher(stream, BUFFER_SIZE, overlap);
+        if (chain.equals("onset")) {
+            ComplexOnsetDetector detector = new ComplexOnsetDetector(BUFFER_SIZE);
+            detector.setHandler((time, salience) -> blackhole.consume(time));
+            audioDispatcher.addAudioProcessor(detector);
+        }
+        audioDispatcher.addAudioProcessor(new AudioProcessor() {
+            @Override
+            public boolean process(AudioEvent audioEvent) {
+                blackhole.consume(audioEvent.getTimeStamp());
+                return true;
+            }
+
+            @Override
+            public void processingFinished() {
+            }
+        });
+        audioDispatcher.run();
+    }
+}
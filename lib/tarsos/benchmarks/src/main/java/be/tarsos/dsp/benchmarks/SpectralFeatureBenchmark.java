@@ -0,0 +1,66 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.ConstantQ;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.mfcc.MFCC;
+
+/**
+ * Per-frame cost of MFCC extraction and the constant-Q transform.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpectralFeatureBenchmark {
+
+    private static final int MFCC_BUFFER_SIZE = 2048;
+
+    private AudioEvent mfccEvent;
+    private MFCC mfcc;
+
+    private ConstantQ constantQ;
+    private float[] constantQFrame;
+    private float[] constantQBuffer;
+
+    @Setup
+    public void setUp() {
+        mfcc = new MFCC(MFCC_BUFFER_SIZE, (int) BenchmarkSignals.SAMPLE_RATE);
+        mfccEvent = new AudioEvent(new TarsosDSPAudioFormat(BenchmarkSignals.SAMPLE_RATE, 16, 1, true, false));
+        mfccEvent.setFloatBuffer(BenchmarkSignals.melody(MFCC_BUFFER_SIZE));
+
+        // four octaves from A2 with semitone resolution
+        constantQ = new ConstantQ(BenchmarkSignals.SAMPLE_RATE, 110, 1760, 12);
+        constantQFrame = BenchmarkSignals.melody(constantQ.getFFTlength());
+        constantQBuffer = new float[constantQFrame.length];
+    }
+
+    @Benchmark
+    public float[] mfccProcess() {
+        mfcc.process(mfccEvent);
+        return mfcc.getMFCC();
+    }
+
+    @Benchmark
+    public float[] constantQCalculate() {
+        // calculate transforms the buffer in place
+        System.arraycopy(constantQFrame, 0, constantQBuffer, 0, constantQFrame.length);
+        constantQ.calculate(constantQBuffer);
+        return constantQ.getCoefficients();
+    }
+}
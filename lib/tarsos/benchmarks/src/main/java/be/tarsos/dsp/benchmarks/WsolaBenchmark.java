@@ -0,0 +1,68 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.Parameters;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.SeekMode;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Time-stretching ten seconds of the melody offline, feeding WSOLA its frames
+ * directly, with each overlap search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WsolaBenchmark {
+
+    private static final double SECONDS = 10;
+
+    @Param({"BRUTE_FORCE", "FFT", "COARSE_TO_FINE"})
+    private SeekMode seekMode;
+
+    @Param({"0.8", "1.25"})
+    private double tempo;
+
+    private float[] audio;
+    private AudioEvent audioEvent;
+
+    @Setup
+    public void setUp() {
+        audio = BenchmarkSignals.melody((int) (SECONDS * BenchmarkSignals.SAMPLE_RATE));
+        audioEvent = new AudioEvent(new TarsosDSPAudioFormat(BenchmarkSignals.SAMPLE_RATE, 16, 1, true, false));
+    }
+
+    @Benchmark
+    public float stretch() {
+        WaveformSimilarityBasedOverlapAdd wsola = new WaveformSimilarityBasedOverlapAdd(
+            Parameters.musicDefaults(tempo, BenchmarkSignals.SAMPLE_RATE).withSeekMode(seekMode));
+        int frameLength = wsola.getInputBufferSize();
+        int skip = frameLength - wsola.getOverlap();
+        float[] frame = new float[frameLength];
+        float sum = 0;
+        for (int position = 0; position + frameLength <= audio.length; position += skip) {
+            System.arraycopy(audio, position, frame, 0, frameLength);
+            audioEvent.setFloatBuffer(frame);
+            wsola.process(audioEvent);
+            sum += audioEvent.getFloatBuffer()[0];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,64 @@
+package be.tarsos.dsp.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.tarsos.dsp.pitch.YinDifferenceFunction;
+
+/**
+ * Scalar versus Vector API implementation of the YIN difference function, the
+ * dominant cost of YIN pitch tracking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class YinDifferenceBenchmark {
+
+    @Param({"1024", "2048", "4096"})
+    private int bufferSize;
+
+    private float[] audioBuffer;
+    private float[] yinBuffer;
+    private YinDifferenceFunction vectorized;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        audioBuffer = new float[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            audioBuffer[i] = random.nextFloat() * 2 - 1;
+        }
+        yinBuffer = new float[bufferSize / 2];
+        vectorized = YinDifferenceFunction.vectorized();
+        if (vectorized == null) {
+            throw new IllegalStateException("Vector API not available, run with --add-modules jdk.incubator.vector");
+        }
+    }
+
+    @Benchmark
+    public float[] scalar() {
+        YinDifferenceFunction.SCALAR.difference(audioBuffer, yinBuffer);
+        return yinBuffer;
+    }
+
+    @Benchmark
+    public float[] vectorized() {
+        vectorized.difference(audioBuffer, yinBuffer);
+        return yinBuffer;
+    }
+}
@@ -25,8 +25,14 @@
 package be.tarsos.dsp;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -115,9 +121,10 @@ public class AudioDispatcher implements Runnable {
 	private AudioEvent audioEvent;
 	
 	/**
-	 * If true the dispatcher stops dispatching audio.
+	 * If true the dispatcher stops dispatching audio. Volatile so a stop
+	 * requested from another thread is seen by the dispatching loop.
 	 */
-	private boolean stopped;
+	private volatile boolean stopped;
 	
 	/**
 	 * If true then the first buffer is only filled up to buffer size - hop size
@@ -133,6 +140,27 @@ public class AudioDispatcher implements Runnable {
 	 * processors must be prepared to handle shorter audio buffers.
 	 */
 	private boolean zeroPadLastBuffer;
+	
+	/**
+	 * Runs the processors that only read a block in parallel. If null the
+	 * whole chain runs on the dispatching thread.
+	 */
+	private ExecutorService processorExecutor;
+	
+	/**
+	 * The chain split in stages: runs of processors that only read the block
+	 * and single {@link MutatingAudioProcessor}s. Rebuilt when the chain
+	 * changes.
+	 */
+	private volatile List<List<AudioProcessor>> processorStages;
+	
+	/**
+	 * True while a stage runs on the processor executor. A stop requested in
+	 * the meantime is finished once the stage is done.
+	 */
+	private boolean processingInParallel;
+	
+	private boolean finishAfterStage;
 
 	/**
 	 * Create a new dispatcher from a stream.
@@ -161,6 +189,7 @@ public class AudioDispatcher implements Runnable {
 		audioEvent = new AudioEvent(format);
 		audioEvent.setFloatBuffer(audioFloatBuffer);
 		audioEvent.setOverlap(bufferOverlap);
+		audioEvent.setFrameLength(stream.getFrameLength());
 		
 		converter = TarsosDSPAudioFloatConverter.getConverter(format);
 		
@@ -201,6 +230,28 @@ public class AudioDispatcher implements Runnable {
 		byteStepSize = floatStepSize * format.getFrameSize();
 	}
 	
+	/**
+	 * Runs the audio processors that only read the audio block in parallel.
+	 * Processors are split in stages in chain order: every
+	 * {@link MutatingAudioProcessor} is a stage of its own and the processors
+	 * in between form a stage that runs concurrently on the same block. Each
+	 * processor still sees the blocks one by one and in order. When a
+	 * processor in a parallel stage returns false the processors of the
+	 * following stages are skipped, those of its own stage still run.
+	 * <p>
+	 * The dispatching thread runs one processor of every stage itself and
+	 * waits for the others, so the executor should not be a bounded pool the
+	 * dispatcher itself runs on.
+	 * </p>
+	 * 
+	 * @param executor
+	 *            Runs the processors, or null to process sequentially on the
+	 *            dispatching thread, the default.
+	 */
+	public void setParallelProcessing(ExecutorService executor){
+		this.processorExecutor = executor;
+	}
+	
 	/**
 	 * if zero pad is true then the first buffer is only filled up to  buffer size - hop size
 	 * E.g. if the buffer is 2048 and the hop size is 48 then you get 2000x0 and 48 filled audio samples
@@ -230,6 +281,7 @@ public class AudioDispatcher implements Runnable {
 	 */
 	public void addAudioProcessor(final AudioProcessor audioProcessor) {
 		audioProcessors.add(audioProcessor);
+		processorStages = null;
 		LOG.fine("Added an audioprocessor to the list of processors: " + audioProcessor.toString());
 	}
 	
@@ -241,6 +293,7 @@ public class AudioDispatcher implements Runnable {
 	 */
 	public void removeAudioProcessor(final AudioProcessor audioProcessor) {
 		audioProcessors.remove(audioProcessor);
+		processorStages = null;
 		audioProcessor.processingFinished();
 		LOG.fine("Remove an audioprocessor to the list of processors: " + audioProcessor.toString());
 	}
@@ -267,12 +320,16 @@ public class AudioDispatcher implements Runnable {
 		// As long as the stream has not ended
 		while (bytesRead != 0 && !stopped) {
 			
-			//Makes sure the right buffers are processed, they can be changed by audio processors.
-			for (final AudioProcessor processor : audioProcessors) {
-				if(!processor.process(audioEvent)){
-					//skip to the next audio processors if false is returned.
-					break;
-				}	
+			if(processorExecutor == null){
+				//Makes sure the right buffers are processed, they can be changed by audio processors.
+				for (final AudioProcessor processor : audioProcessors) {
+					if(!processor.process(audioEvent)){
+						//skip to the next audio processors if false is returned.
+						break;
+					}	
+				}
+			}else{
+				processInStages();
 			}
 			
 			if(!stopped){			
@@ -318,10 +375,140 @@ public class AudioDispatcher implements Runnable {
 	}
 
 	/**
-	 * Stops dispatching audio data.
+	 * Runs the processors that read the block next to each other on the
+	 * processor executor and every {@link MutatingAudioProcessor} on its own,
+	 * in chain order.
+	 */
+	private void processInStages() {
+		List<List<AudioProcessor>> stages = processorStages;
+		if(stages == null){
+			stages = splitInStages();
+			processorStages = stages;
+		}
+		for (final List<AudioProcessor> stage : stages) {
+			final boolean proceed;
+			if(stage.size() == 1){
+				proceed = stage.get(0).process(audioEvent);
+			}else{
+				proceed = processInParallel(stage);
+			}
+			if(!proceed){
+				//skip to the next audio processors if false is returned.
+				break;
+			}
+		}
+	}
+	
+	private List<List<AudioProcessor>> splitInStages() {
+		List<List<AudioProcessor>> stages = new ArrayList<List<AudioProcessor>>();
+		List<AudioProcessor> readers = null;
+		for (final AudioProcessor processor : audioProcessors) {
+			if(processor instanceof MutatingAudioProcessor){
+				stages.add(Collections.singletonList(processor));
+				readers = null;
+			}else{
+				if(readers == null){
+					readers = new ArrayList<AudioProcessor>();
+					stages.add(readers);
+				}
+				readers.add(processor);
+			}
+		}
+		return stages;
+	}
+	
+	/**
+	 * Runs a stage of processors that only read the block. The first one runs
+	 * on the dispatching thread, the others on the processor executor.
+	 * 
+	 * @return False if one of the processors returned false.
+	 */
+	private boolean processInParallel(final List<AudioProcessor> stage) {
+		// A windowed block is copied once here, not concurrently by the processors
+		audioEvent.getFloatBuffer();
+		synchronized (this) {
+			processingInParallel = true;
+		}
+		boolean proceed = true;
+		Throwable failure = null;
+		boolean interrupted = false;
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(stage.size() - 1);
+			for (int i = 1; i < stage.size(); i++) {
+				final AudioProcessor processor = stage.get(i);
+				results.add(processorExecutor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return processor.process(audioEvent);
+					}
+				}));
+			}
+			try {
+				proceed = stage.get(0).process(audioEvent);
+			} catch (RuntimeException | Error e) {
+				failure = e;
+			}
+			// Wait for every processor, the block is reused once this method returns
+			for (final Future<Boolean> result : results) {
+				try {
+					if(interrupted){
+						result.cancel(true);
+					}else if(!result.get()){
+						proceed = false;
+					}
+				} catch (InterruptedException e) {
+					interrupted = true;
+					result.cancel(true);
+				} catch (ExecutionException e) {
+					if(failure == null){
+						failure = e.getCause();
+					}
+				}
+			}
+		} finally {
+			boolean finish;
+			synchronized (this) {
+				processingInParallel = false;
+				finish = finishAfterStage;
+				finishAfterStage = false;
+			}
+			if(finish){
+				finishProcessing();
+			}
+		}
+		if(interrupted){
+			Thread.currentThread().interrupt();
+			if(!stopped){
+				stop();
+			}
+			return false;
+		}
+		if(failure instanceof RuntimeException){
+			throw (RuntimeException) failure;
+		}else if(failure instanceof Error){
+			throw (Error) failure;
+		}else if(failure != null){
+			throw new RuntimeException(failure);
+		}
+		return proceed;
+	}
+
+	/**
+	 * Stops dispatching audio data. If processors are running in parallel
+	 * they finish the current block first.
 	 */
 	public void stop() {
 		stopped = true;
+		synchronized (this) {
+			if(processingInParallel){
+				finishAfterStage = true;
+				return;
+			}
+		}
+		finishProcessing();
+	}
+	
+	private void finishProcessing() {
 		for (final AudioProcessor processor : audioProcessors) {
 			processor.processingFinished();
 		}
@@ -341,17 +528,24 @@ public class AudioDispatcher implements Runnable {
 	 * The behavior for the first and last buffer is defined by their corresponding the zero pad settings. The method also handles the case if
 	 * the first buffer is also the last.
 	 * 
+	 * Subclasses that store the audio differently override this method and
+	 * hand the block to {@link #getAudioEvent()}.
+	 * 
 	 * @return The number of bytes read.
 	 * @throws IOException
 	 *             When something goes wrong while reading the stream. In
 	 *             particular, an IOException is thrown if the input stream has
 	 *             been closed.
 	 */
-	private int readNextAudioBlock() throws IOException {
+	protected int readNextAudioBlock() throws IOException {
+		// The previous buffer was the smaller last one, the stream has ended.
+		if(audioFloatBuffer.length != floatOverlap + floatStepSize){
+			return 0;
+		}
 		assert floatOverlap < audioFloatBuffer.length;
 		
 		// Is this the first buffer?
-		boolean isFirstBuffer = (bytesProcessed ==0 || bytesProcessed == bytesToSkip);
+		boolean isFirstBuffer = isFirstBuffer();
 		
 		final int offsetInBytes;
 		
@@ -418,7 +612,8 @@ public class AudioDispatcher implements Runnable {
 				for(int i = offsetInBytes + totalBytesRead; i < audioByteBuffer.length; i++){
 					audioByteBuffer[i] = 0;
 				}
-				converter.toFloatArray(audioByteBuffer, offsetInBytes, audioFloatBuffer, offsetInSamples, floatStepSize);
+				// A first buffer that is not zero padded is filled from the start, not just its last step.
+				converter.toFloatArray(audioByteBuffer, offsetInBytes, audioFloatBuffer, offsetInSamples, audioFloatBuffer.length - offsetInSamples);
 			}else{
 				// Send a smaller buffer through the chain.
 				byte[] audioByteBufferContent = audioByteBuffer;
@@ -427,7 +622,10 @@ public class AudioDispatcher implements Runnable {
 					audioByteBuffer[i] = audioByteBufferContent[i];
 				}
 				int totalSamplesRead = totalBytesRead/format.getFrameSize();
+				float[] audioFloatBufferContent = audioFloatBuffer;
 				audioFloatBuffer = new float[offsetInSamples + totalBytesRead/format.getFrameSize()];
+				// Keep the overlap with the previous buffer, it was shifted to the front above.
+				System.arraycopy(audioFloatBufferContent, 0, audioFloatBuffer, 0, offsetInSamples);
 				converter.toFloatArray(audioByteBuffer, offsetInBytes, audioFloatBuffer, offsetInSamples, totalSamplesRead);
 				
 				
@@ -454,6 +652,55 @@ public class AudioDispatcher implements Runnable {
 		return totalBytesRead; 
 	}
 
+	/**
+	 * @return True if the next block read is the first one of the stream.
+	 */
+	protected boolean isFirstBuffer(){
+		return bytesProcessed ==0 || bytesProcessed == bytesToSkip;
+	}
+	
+	/**
+	 * @return The stream audio blocks are read from.
+	 */
+	protected TarsosDSPAudioInputStream getAudioInputStream(){
+		return audioInputStream;
+	}
+	
+	/**
+	 * @return The event that is sent through the processing chain.
+	 */
+	protected AudioEvent getAudioEvent(){
+		return audioEvent;
+	}
+	
+	/**
+	 * @return The number of samples in a full audio block.
+	 */
+	protected int getBufferSize(){
+		return audioFloatBuffer.length;
+	}
+	
+	/**
+	 * @return The number of samples consecutive blocks share.
+	 */
+	protected int getOverlap(){
+		return floatOverlap;
+	}
+	
+	/**
+	 * @return True if the first block is zero padded up to the overlap.
+	 */
+	protected boolean isZeroPadFirstBuffer(){
+		return zeroPadFirstBuffer;
+	}
+	
+	/**
+	 * @return True if the last block is zero padded to a full block.
+	 */
+	protected boolean isZeroPadLastBuffer(){
+		return zeroPadLastBuffer;
+	}
+	
 	/**
 	 * The current format used to convert floats to bytes and back.
 	 * @return The current format used to convert floats to bytes and back.
@@ -44,10 +44,21 @@ public class AudioEvent {
 	private final TarsosDSPAudioFloatConverter converter;
 	
 	/**
-	 * The audio data encoded in floats from -1.0 to 1.0.
+	 * The audio data encoded in floats from -1.0 to 1.0. The current block
+	 * starts at floatBufferOffset and is floatBufferLength samples long.
 	 */
 	private float[] floatBuffer;
 	
+	private int floatBufferOffset;
+	
+	private int floatBufferLength;
+	
+	/**
+	 * Reused to hand out a block that is a window of a larger array as an
+	 * array of its own.
+	 */
+	private float[] windowCopy;
+	
 	/**
 	 * The audio data encoded in bytes according to format.
 	 */
@@ -93,7 +104,7 @@ public class AudioEvent {
 	 * @return The size of the buffer in samples.
 	 */
 	public int getBufferSize(){
-		return getFloatBuffer().length;
+		return floatBufferLength;
 	}
 	
 	/**
@@ -104,6 +115,14 @@ public class AudioEvent {
 		return frameLength;
 	}
 
+	/**
+	 * Set the length of the stream, used by {@link #getProgress()}.
+	 * @param frameLength The length of the stream in sample frames, or a negative number if unknown.
+	 */
+	public void setFrameLength(long frameLength){
+		this.frameLength = frameLength;
+	}
+
 	/**
 	 * The overlap in samples between blocks of audio
 	 * @return The overlap in samples between blocks of audio
@@ -183,16 +202,48 @@ public class AudioEvent {
 	 * @param floatBuffer The audio block that is passed to the next processor.
 	 */
 	public void setFloatBuffer(float[] floatBuffer) {
-		this.floatBuffer = floatBuffer;
+		setFloatBuffer(floatBuffer, 0, floatBuffer == null ? 0 : floatBuffer.length);
 	}
 
 	/**
-	 * The audio block in floats
+	 * Set a new audio block that is a window of a larger array, e.g. a ring
+	 * buffer. The samples are not copied until a processor asks for
+	 * {@link #getFloatBuffer()}.
+	 * @param samples The array that holds the audio block.
+	 * @param offset The index of the first sample of the block.
+	 * @param length The number of samples in the block.
+	 */
+	public void setFloatBuffer(float[] samples, int offset, int length) {
+		this.floatBuffer = samples;
+		this.floatBufferOffset = offset;
+		this.floatBufferLength = length;
+	}
+
+	/**
+	 * The audio block in floats. If the block is a window of a larger array it
+	 * is copied to an array of its own first, changes to the returned array
+	 * are seen by the next processors.
 	 * @return The float representation of the audio block.
 	 */
 	public float[] getFloatBuffer(){
+		if(floatBuffer != null && (floatBufferOffset != 0 || floatBufferLength != floatBuffer.length)){
+			if(windowCopy == null || windowCopy.length != floatBufferLength){
+				windowCopy = new float[floatBufferLength];
+			}
+			System.arraycopy(floatBuffer, floatBufferOffset, windowCopy, 0, floatBufferLength);
+			setFloatBuffer(windowCopy);
+		}
 		return floatBuffer;
 	}
+
+	/**
+	 * Copies the audio block without the intermediate array
+	 * {@link #getFloatBuffer()} needs for windowed blocks.
+	 * @param destination The array to copy to, at least {@link #getBufferSize()} long.
+	 */
+	public void copyFloatBuffer(float[] destination){
+		System.arraycopy(floatBuffer, floatBufferOffset, destination, 0, floatBufferLength);
+	}
 	
 	/**
 	 * Calculates and returns the root mean square of the signal. Please
@@ -202,7 +253,7 @@ public class AudioEvent {
 	 *         the signal present in the current buffer.
 	 */
 	public double getRMS() {
-		return calculateRMS(floatBuffer);
+		return calculateRMS(floatBuffer, floatBufferOffset, floatBufferLength);
 	}
 	
 	
@@ -212,7 +263,7 @@ public class AudioEvent {
 	 * @return The dBSPL level for the buffer.
 	 */
 	public double getdBSPL() {
-		return soundPressureLevel(floatBuffer);
+		return linearToDecibel(getRMS());
 	}
 	
 	/**
@@ -224,11 +275,23 @@ public class AudioEvent {
 	 *         the signal present in the current buffer.
 	 */
 	public static double calculateRMS(float[] floatBuffer){
+		return calculateRMS(floatBuffer, 0, floatBuffer.length);
+	}
+
+	/**
+	 * Calculates the root mean square of a part of an array, e.g. a frame of
+	 * a {@link FrameBatch}.
+	 * @param floatBuffer The array with the audio.
+	 * @param offset The index of the first sample.
+	 * @param length The number of samples.
+	 * @return The RMS of the samples.
+	 */
+	public static double calculateRMS(float[] floatBuffer, int offset, int length){
 		double rms = 0.0;
-		for (int i = 0; i < floatBuffer.length; i++) {
+		for (int i = offset; i < offset + length; i++) {
 			rms += floatBuffer[i] * floatBuffer[i];
 		}
-		rms = rms / Double.valueOf(floatBuffer.length);
+		rms = rms / Double.valueOf(length);
 		rms = Math.sqrt(rms);
 		return rms;
 	}
@@ -237,21 +300,9 @@ public class AudioEvent {
 	 * Set all sample values to zero.
 	 */
 	public void clearFloatBuffer() {
-		Arrays.fill(floatBuffer, 0);
+		Arrays.fill(getFloatBuffer(), 0);
 	}
 
-	/**
-	 * Returns the dBSPL for a buffer.
-	 * 
-	 * @param buffer
-	 *            The buffer with audio information.
-	 * @return The dBSPL level for the buffer.
-	 */
-	private static double soundPressureLevel(final float[] buffer) {
-		double rms = calculateRMS(buffer);
-		return linearToDecibel(rms);
-	}
-	
 	/**
 	 * Converts a linear to a dB value.
 	 * 
@@ -269,7 +320,7 @@ public class AudioEvent {
 	 * @return True if SPL is below the threshold. False otherwise.
 	 */
 	public boolean isSilence(double silenceThreshold) {
-		return soundPressureLevel(floatBuffer) < silenceThreshold;
+		return getdBSPL() < silenceThreshold;
 	}
 
 	/**
@@ -25,6 +25,7 @@
 package be.tarsos.dsp;
 
 import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
@@ -245,6 +246,8 @@ public class AudioGenerator implements Runnable {
 		if(audioFloatBuffer.length == floatOverlap + floatStepSize ){
 			System.arraycopy(audioFloatBuffer, floatStepSize, audioFloatBuffer,0 ,floatOverlap);
 		}
+		// Generators add to the buffer, so the new part has to start silent.
+		Arrays.fill(audioFloatBuffer, floatOverlap, audioFloatBuffer.length, 0);
 		samplesProcessed += floatStepSize;
 	}
 	
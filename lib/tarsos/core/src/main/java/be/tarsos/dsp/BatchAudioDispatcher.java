@@ -0,0 +1,275 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+
+package be.tarsos.dsp;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+
+/**
+ * Reads a stream in batches of overlapping frames and hands every batch to a
+ * chain of {@link BatchAudioProcessor}s. With a batch of one frame it sends
+ * the same frames as an {@link AudioDispatcher} with the same buffer size
+ * and overlap and a zero padded last buffer, with larger batches it sends
+ * them many at a time. Between batches the overlap of the last frame is moved
+ * to the front of the array, so the shift costs O(overlap) per batch instead
+ * of O(buffer) per frame.
+ * <p>
+ * Meant for offline analysis: a batch of a few hundred frames amounts to
+ * seconds of audio per call. Zero padding of the first frame and skipping
+ * are not supported.
+ * </p>
+ */
+public class BatchAudioDispatcher implements Runnable {
+
+	private static final Logger LOG = Logger.getLogger(BatchAudioDispatcher.class.getName());
+
+	private final TarsosDSPAudioInputStream audioInputStream;
+
+	private final TarsosDSPAudioFormat format;
+
+	private final TarsosDSPAudioFloatConverter converter;
+
+	private final List<BatchAudioProcessor> batchProcessors;
+
+	private final int frameSize;
+
+	private final int overlap;
+
+	private final int framesPerBatch;
+
+	/**
+	 * The frames of the current batch, frame i starts at i * hop.
+	 */
+	private final float[] samples;
+
+	private final byte[] byteBuffer;
+
+	private final FrameBatch batch;
+
+	private long framesProcessed;
+
+	/**
+	 * If true the dispatcher stops dispatching audio. Volatile so a stop
+	 * requested from another thread is seen by the dispatching loop.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Create a new dispatcher from a stream.
+	 *
+	 * @param stream
+	 *            The stream to read data from.
+	 * @param frameSize
+	 *            The number of samples in a frame, e.g. 1024 or 2048.
+	 * @param overlap
+	 *            How much consecutive frames overlap (in samples).
+	 * @param framesPerBatch
+	 *            The maximum number of frames in a batch.
+	 */
+	public BatchAudioDispatcher(final TarsosDSPAudioInputStream stream, final int frameSize, final int overlap, final int framesPerBatch) {
+		if (framesPerBatch < 1) {
+			throw new IllegalArgumentException("A batch needs at least one frame, got " + framesPerBatch);
+		}
+		this.audioInputStream = stream;
+		this.format = stream.getFormat();
+		this.converter = TarsosDSPAudioFloatConverter.getConverter(format);
+		this.batchProcessors = new CopyOnWriteArrayList<BatchAudioProcessor>();
+		this.frameSize = frameSize;
+		this.overlap = overlap;
+		this.framesPerBatch = framesPerBatch;
+		int hop = frameSize - overlap;
+		samples = new float[frameSize + (framesPerBatch - 1) * hop];
+		byteBuffer = new byte[samples.length * format.getFrameSize()];
+		batch = new FrameBatch(samples, frameSize, hop, format);
+		batch.setFrameLength(stream.getFrameLength());
+	}
+
+	/**
+	 * Adds a processor to the end of the chain.
+	 *
+	 * @param batchProcessor
+	 *            The processor to add.
+	 */
+	public void addBatchProcessor(final BatchAudioProcessor batchProcessor) {
+		batchProcessors.add(batchProcessor);
+		LOG.fine("Added a batch processor to the list of processors: " + batchProcessor.toString());
+	}
+
+	/**
+	 * Removes a processor from the chain and calls its
+	 * <code>processingFinished</code> method.
+	 *
+	 * @param batchProcessor
+	 *            The processor to remove.
+	 */
+	public void removeBatchProcessor(final BatchAudioProcessor batchProcessor) {
+		batchProcessors.remove(batchProcessor);
+		batchProcessor.processingFinished();
+		LOG.fine("Removed a batch processor from the list of processors: " + batchProcessor.toString());
+	}
+
+	public void run() {
+		final int hop = frameSize - overlap;
+		boolean firstBatch = true;
+		boolean endOfStream = false;
+		while (!stopped && !endOfStream) {
+			final int carried = firstBatch ? 0 : overlap;
+			if (!firstBatch) {
+				System.arraycopy(samples, framesPerBatch * hop, samples, 0, overlap);
+			}
+			final int samplesToRead = samples.length - carried;
+			final int samplesRead;
+			try {
+				samplesRead = readSamples(carried, samplesToRead);
+			} catch (IOException e) {
+				String message = "Error while reading audio input stream: " + e.getMessage();
+				LOG.warning(message);
+				throw new Error(message);
+			}
+			if (stopped) {
+				break;
+			}
+			endOfStream = samplesRead < samplesToRead;
+
+			final int frameCount = countFrames(firstBatch, carried + samplesRead);
+			if (frameCount == 0) {
+				break;
+			}
+			batch.setFrames(framesProcessed, frameCount);
+			for (final BatchAudioProcessor processor : batchProcessors) {
+				if (!processor.processBatch(batch)) {
+					// skip to the next batch if false is returned.
+					break;
+				}
+			}
+			framesProcessed += frameCount;
+			firstBatch = false;
+		}
+
+		// when stop() is called processingFinished is called explicitly, no need to do this again.
+		if (!stopped) {
+			stop();
+		}
+	}
+
+	/**
+	 * The number of frames an {@link AudioDispatcher} sends for this part of
+	 * the stream: the first frame of the stream as soon as there is a sample,
+	 * every other frame only if it holds at least one sample past the
+	 * previous frame.
+	 */
+	private int countFrames(boolean firstBatch, int available) {
+		final int hop = frameSize - overlap;
+		int frames = 0;
+		while (frames < framesPerBatch) {
+			final int needed = firstBatch && frames == 0 ? 0 : frameSize + (frames - 1) * hop;
+			if (available <= needed) {
+				break;
+			}
+			frames++;
+		}
+		return frames;
+	}
+
+	/**
+	 * Reads and converts samples, the samples that could not be read before
+	 * the end of the stream are set to zero.
+	 *
+	 * @return The number of samples read.
+	 */
+	private int readSamples(int offsetInSamples, int samplesToRead) throws IOException {
+		final int bytesToRead = samplesToRead * format.getFrameSize();
+		int totalBytesRead = 0;
+		boolean endOfStream = false;
+		while (!stopped && !endOfStream && totalBytesRead < bytesToRead) {
+			int bytesRead;
+			try {
+				bytesRead = audioInputStream.read(byteBuffer, totalBytesRead, bytesToRead - totalBytesRead);
+			} catch (IndexOutOfBoundsException e) {
+				// The pipe decoder generates an out of bounds if end of stream is reached.
+				bytesRead = -1;
+			}
+			if (bytesRead == -1) {
+				endOfStream = true;
+			} else {
+				totalBytesRead += bytesRead;
+			}
+		}
+		if (!endOfStream && totalBytesRead != bytesToRead && !stopped) {
+			throw new IOException(String.format("The end of the audio stream has not been reached and the number of bytes read (%d) is not equal "
+					+ "to the expected amount of bytes(%d).", totalBytesRead, bytesToRead));
+		}
+		final int samplesRead = totalBytesRead / format.getFrameSize();
+		converter.toFloatArray(byteBuffer, 0, samples, offsetInSamples, samplesRead);
+		for (int i = offsetInSamples + samplesRead; i < samples.length; i++) {
+			samples[i] = 0;
+		}
+		return samplesRead;
+	}
+
+	/**
+	 * Stops dispatching audio data.
+	 */
+	public void stop() {
+		stopped = true;
+		for (final BatchAudioProcessor processor : batchProcessors) {
+			processor.processingFinished();
+		}
+		try {
+			audioInputStream.close();
+		} catch (IOException e) {
+			LOG.log(Level.SEVERE, "Closing audio stream error.", e);
+		}
+	}
+
+	/**
+	 * @return The number of frames sent through the chain so far.
+	 */
+	public long getFramesProcessed() {
+		return framesProcessed;
+	}
+
+	/**
+	 * The current format used to convert floats to bytes and back.
+	 * @return The current format used to convert floats to bytes and back.
+	 */
+	public TarsosDSPAudioFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * @return True if the dispatcher is stopped or the end of stream has been reached.
+	 */
+	public boolean isStopped() {
+		return stopped;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+
+package be.tarsos.dsp;
+
+/**
+ * Processes many consecutive audio blocks, frames, per call instead of one
+ * {@link AudioEvent} per hop. The frames are handed over as a
+ * {@link FrameBatch}, a strided view over one contiguous array of samples,
+ * so a processor can loop over them without a call and bookkeeping per frame
+ * and with the samples of neighbouring frames still in cache.
+ * <p>
+ * The frames of one batch directly follow the frames of the previous batch.
+ * Batch processors only read the samples: the frames overlap, a change to
+ * one frame shows up in the next.
+ * </p>
+ *
+ * @see BatchAudioDispatcher
+ */
+public interface BatchAudioProcessor {
+
+	/**
+	 * Process a batch of frames.
+	 *
+	 * @param batch
+	 *            The frames to process. The batch and the array behind it are
+	 *            reused for the next batch.
+	 * @return False if the chain needs to stop here, true otherwise.
+	 */
+	boolean processBatch(FrameBatch batch);
+
+	/**
+	 * Notify the BatchAudioProcessor that no more data is available and
+	 * processing has finished.
+	 */
+	void processingFinished();
+}
@@ -28,7 +28,7 @@ package be.tarsos.dsp;
  * It simply transforms every sample to the requested bit depth.
  * @author Joren Six
  */
-public class BitDepthProcessor implements AudioProcessor {
+public class BitDepthProcessor implements MutatingAudioProcessor {
 
 	int bitDepth = 16;
 
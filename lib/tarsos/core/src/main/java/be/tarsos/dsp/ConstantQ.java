@@ -104,7 +104,7 @@ import be.tarsos.dsp.util.fft.FFT;
  * @author Karl Helgason
  * @author P.J Leonard
  */
-public class ConstantQ implements AudioProcessor {
+public class ConstantQ implements AudioProcessor, BatchAudioProcessor {
 
 
 	/**
@@ -150,6 +150,19 @@ public class ConstantQ implements AudioProcessor {
 	 */
 	private final float[] magnitudes;
 	
+	/**
+	 * The magnitudes of every frame of the previous batch, reused between
+	 * batches.
+	 */
+	private float[][] batchMagnitudes;
+	
+	private int batchFrameCount;
+	
+	/**
+	 * Copy of the frame that is transformed in place.
+	 */
+	private float[] frameBuffer;
+	
 	/**
 	 * The number of bins per octave.
 	 */
@@ -341,6 +354,31 @@ public class ConstantQ implements AudioProcessor {
 		return true;
 	}
 
+	/**
+	 * Calculates the constant Q magnitudes of every frame of the batch, see
+	 * {@link #getBatchMagnitudes()}.
+	 */
+	@Override
+	public boolean processBatch(FrameBatch batch) {
+		if(batch.getFrameSize() != getFFTlength()){
+			throw new IllegalArgumentException(String.format("The length of the fft (%d) should be the same as the length of the frames (%d)",getFFTlength(),batch.getFrameSize()));
+		}
+		if(batchMagnitudes == null || batchMagnitudes.length < batch.getFrameCount()){
+			batchMagnitudes = new float[batch.getFrameCount()][magnitudes.length];
+		}
+		if(frameBuffer == null){
+			frameBuffer = new float[getFFTlength()];
+		}
+		for(int frame = 0 ; frame < batch.getFrameCount() ; frame++){
+			// the FFT works in place, so transform a copy of the frame
+			batch.copyFrame(frame, frameBuffer);
+			calculateMagintudes(frameBuffer);
+			System.arraycopy(magnitudes, 0, batchMagnitudes[frame], 0, magnitudes.length);
+		}
+		batchFrameCount = batch.getFrameCount();
+		return true;
+	}
+
 	@Override
 	public void processingFinished() {
 		// Do nothing.
@@ -368,6 +406,23 @@ public class ConstantQ implements AudioProcessor {
 		return magnitudes;
 	}
 
+	/**
+	 * Returns the Constant Q magnitudes of every frame of the previous batch,
+	 * one row per frame. Beware: the arrays are reused for the next batch and
+	 * there can be more rows than frames, see {@link #getBatchFrameCount()}.
+	 * @return The constant q magnitudes of the previous batch.
+	 */
+	public float[][] getBatchMagnitudes() {
+		return batchMagnitudes;
+	}
+
+	/**
+	 * @return The number of rows of {@link #getBatchMagnitudes()} that belong to the previous batch.
+	 */
+	public int getBatchFrameCount() {
+		return batchFrameCount;
+	}
+
 	
 	/**
 	 * Return the Constant Q coefficients calculated for the previous audio
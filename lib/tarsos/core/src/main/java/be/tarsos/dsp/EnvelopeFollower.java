@@ -66,7 +66,7 @@ package be.tarsos.dsp;
  * @author Joren Six
  * 
  */
-public class EnvelopeFollower implements AudioProcessor {
+public class EnvelopeFollower implements MutatingAudioProcessor {
 	
 	/**
 	 * Defines how fast the envelope raises, defined in seconds.
@@ -1,6 +1,6 @@
 package be.tarsos.dsp;
 
-public class FadeIn implements AudioProcessor {
+public class FadeIn implements MutatingAudioProcessor {
 
 	private double duration;
 	private double firstTime=-1;
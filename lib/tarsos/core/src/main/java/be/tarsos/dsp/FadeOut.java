@@ -1,6 +1,6 @@
 package be.tarsos.dsp;
 
-public class FadeOut implements AudioProcessor {
+public class FadeOut implements MutatingAudioProcessor {
 
 	private double duration;
 	private double firstTime=-1;
@@ -0,0 +1,208 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+
+package be.tarsos.dsp;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * A number of consecutive, overlapping frames stored in one array. Frame
+ * <code>i</code> starts at <code>i * hopSize</code> and is
+ * <code>frameSize</code> samples long. Frames at the end of the stream are
+ * zero padded, like the last block of an {@link AudioDispatcher}.
+ * <p>
+ * Time stamps follow the {@link AudioDispatcher}: the first frame of the
+ * stream reports zero samples processed, frame <code>k &gt; 0</code> reports
+ * <code>frameSize + (k - 1) * hopSize</code>.
+ * </p>
+ */
+public class FrameBatch {
+
+	private final float[] samples;
+
+	private final int frameSize;
+
+	private final int hopSize;
+
+	private final TarsosDSPAudioFormat format;
+
+	/**
+	 * Reused for every call to {@link #getAudioEvent(int)}.
+	 */
+	private final AudioEvent audioEvent;
+
+	private long firstFrameIndex;
+
+	private int frameCount;
+
+	/**
+	 * Create a batch over an array of samples.
+	 *
+	 * @param samples
+	 *            The samples, at least
+	 *            <code>frameSize + (frames - 1) * hopSize</code> long for the
+	 *            largest number of frames the batch holds.
+	 * @param frameSize
+	 *            The number of samples in a frame.
+	 * @param hopSize
+	 *            The number of samples between the start of consecutive frames.
+	 * @param format
+	 *            The format of the stream the samples are read from.
+	 */
+	public FrameBatch(float[] samples, int frameSize, int hopSize, TarsosDSPAudioFormat format) {
+		if (hopSize <= 0 || hopSize > frameSize) {
+			throw new IllegalArgumentException(String.format("The hop size (%d) should be between 1 and the frame size (%d)", hopSize, frameSize));
+		}
+		this.samples = samples;
+		this.frameSize = frameSize;
+		this.hopSize = hopSize;
+		this.format = format;
+		this.audioEvent = new AudioEvent(format);
+	}
+
+	/**
+	 * Define which frames of the stream the samples hold.
+	 *
+	 * @param firstFrameIndex
+	 *            The index in the stream of the frame at the start of the
+	 *            array.
+	 * @param frameCount
+	 *            The number of frames in the batch.
+	 */
+	public void setFrames(long firstFrameIndex, int frameCount) {
+		if (frameCount > 0 && frameSize + (frameCount - 1) * hopSize > samples.length) {
+			throw new IllegalArgumentException(String.format("%d frames do not fit in %d samples", frameCount, samples.length));
+		}
+		this.firstFrameIndex = firstFrameIndex;
+		this.frameCount = frameCount;
+	}
+
+	/**
+	 * @param frameLength
+	 *            The length of the stream in sample frames, used by
+	 *            {@link AudioEvent#getProgress()}.
+	 */
+	public void setFrameLength(long frameLength) {
+		audioEvent.setFrameLength(frameLength);
+	}
+
+	/**
+	 * @return The array that holds the frames. Read only.
+	 */
+	public float[] getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @param frame
+	 *            The index of the frame in the batch.
+	 * @return The index in {@link #getSamples()} of the first sample of the
+	 *         frame.
+	 */
+	public int getFrameOffset(int frame) {
+		return frame * hopSize;
+	}
+
+	/**
+	 * @return The number of samples in a frame.
+	 */
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	/**
+	 * @return The number of samples between the start of consecutive frames.
+	 */
+	public int getHopSize() {
+		return hopSize;
+	}
+
+	/**
+	 * @return The number of frames in the batch.
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * @return The index in the stream of the first frame of the batch.
+	 */
+	public long getFirstFrameIndex() {
+		return firstFrameIndex;
+	}
+
+	public float getSampleRate() {
+		return format.getSampleRate();
+	}
+
+	/**
+	 * @param frame
+	 *            The index of the frame in the batch.
+	 * @return The number of samples processed before the frame, as reported
+	 *         by {@link AudioEvent#getSamplesProcessed()}.
+	 */
+	public long getSamplesProcessed(int frame) {
+		long index = firstFrameIndex + frame;
+		return index == 0 ? 0 : frameSize + (index - 1) * hopSize;
+	}
+
+	/**
+	 * @param frame
+	 *            The index of the frame in the batch.
+	 * @return The time stamp of the frame in seconds, as reported by
+	 *         {@link AudioEvent#getTimeStamp()}.
+	 */
+	public double getTimeStamp(int frame) {
+		return getSamplesProcessed(frame) / format.getSampleRate();
+	}
+
+	/**
+	 * Copies a frame.
+	 *
+	 * @param frame
+	 *            The index of the frame in the batch.
+	 * @param destination
+	 *            The array to copy to, at least {@link #getFrameSize()} long.
+	 */
+	public void copyFrame(int frame, float[] destination) {
+		System.arraycopy(samples, getFrameOffset(frame), destination, 0, frameSize);
+	}
+
+	/**
+	 * An audio event for a frame, for code written against
+	 * {@link AudioProcessor}. The event is a window of the batch and is reused
+	 * for every frame, so two processors that run at the same time on one
+	 * batch should not both use it.
+	 *
+	 * @param frame
+	 *            The index of the frame in the batch.
+	 * @return The event for the frame.
+	 */
+	public AudioEvent getAudioEvent(int frame) {
+		audioEvent.setFloatBuffer(samples, getFrameOffset(frame), frameSize);
+		audioEvent.setOverlap(firstFrameIndex + frame == 0 ? 0 : frameSize - hopSize);
+		audioEvent.setBytesProcessed(getSamplesProcessed(frame) * format.getFrameSize());
+		return audioEvent;
+	}
+}
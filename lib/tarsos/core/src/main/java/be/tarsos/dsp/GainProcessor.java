@@ -33,7 +33,7 @@ package be.tarsos.dsp;
  * 
  * @author Joren Six
  */
-public class GainProcessor implements AudioProcessor {
+public class GainProcessor implements MutatingAudioProcessor {
 	private double gain;
 
 	/**
@@ -26,7 +26,7 @@ package be.tarsos.dsp;
 /**
  * Process multi channels audio to mono
  */
-public class MultichannelToMono implements AudioProcessor{
+public class MultichannelToMono implements MutatingAudioProcessor{
 	
 	private int channels;
 	private boolean mean;
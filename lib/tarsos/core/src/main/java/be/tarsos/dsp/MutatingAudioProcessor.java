@@ -0,0 +1,42 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+package be.tarsos.dsp;
+
+/**
+ * Declares that an {@link AudioProcessor} changes the audio block it is
+ * given: it writes to the float buffer, replaces it with
+ * {@link AudioEvent#setFloatBuffer(float[])} or uses it as scratch space.
+ * <p>
+ * When an {@link AudioDispatcher} runs processors in parallel (see
+ * {@link AudioDispatcher#setParallelProcessing(java.util.concurrent.ExecutorService)})
+ * a mutating processor runs on its own, after the processors before it
+ * and before the ones after it in the chain. Processors without this
+ * declaration must only read the block. Processors whose <code>false</code>
+ * return value decides whether the processors after them run, like the
+ * {@link SilenceDetector}, implement it as well so they keep that ordering.
+ * </p>
+ */
+public interface MutatingAudioProcessor extends AudioProcessor {
+
+}
@@ -0,0 +1,321 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+package be.tarsos.dsp;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import be.tarsos.dsp.util.fft.FFTPlan;
+import be.tarsos.dsp.util.fft.FloatFFT;
+
+/**
+ * A phase vocoder pitch shifter for throughput, the algorithm of
+ * {@link PitchShifter} without its per frame costs. The Hann window is a table
+ * shared by every shifter of a size, the synthesis window is scaled once,
+ * the expected phase advance of every bin is precomputed and the spectral
+ * buffers and the output buffer are reused, so processing a block allocates
+ * nothing.
+ * <p>
+ * With polar lookup enabled the resynthesised bins are converted from
+ * magnitude and phase with interpolated sine and cosine tables instead of
+ * {@link Math#sin(double)} and {@link Math#cos(double)}. The error of the
+ * tables is below 5e-7, far under what 16 bit audio can represent.
+ * </p>
+ * <p>
+ * Compared to {@link PitchShifter} the output is taken from the accumulator
+ * before it is shifted, so every sample has all its overlapping frames; the
+ * whole spectrum up to the Nyquist frequency is resynthesised; the synthesis
+ * window is normalised so a factor of one returns the input, delayed by the
+ * overlap; the summed phases are kept wrapped so they stay precise on long
+ * renders, and clipping is left to the processors that follow.
+ * </p>
+ * <p>
+ * Like {@link PitchShifter} the audio block is replaced: its last
+ * <code>size - overlap</code> samples hold the shifted audio, the samples
+ * before them are zero.
+ * </p>
+ */
+public class PhaseVocoderPitchShifter implements MutatingAudioProcessor {
+
+	private static final double TWO_PI = 2. * Math.PI;
+
+	/**
+	 * Periodic Hann windows by size, shared and never written.
+	 */
+	private static final ConcurrentMap<Integer, float[]> HANN_WINDOWS = new ConcurrentHashMap<Integer, float[]>();
+
+	private static final int LOOKUP_SIZE = 4096;
+	private static final double LOOKUP_SCALE = LOOKUP_SIZE / TWO_PI;
+	/**
+	 * Cosine and sine of the phases -pi to pi in LOOKUP_SIZE steps, with one
+	 * extra entry so interpolating at pi stays in range.
+	 */
+	private static final float[] COSINES = new float[LOOKUP_SIZE + 2];
+	private static final float[] SINES = new float[LOOKUP_SIZE + 2];
+
+	static {
+		for (int i = 0; i < COSINES.length; i++) {
+			double phase = -Math.PI + i / LOOKUP_SCALE;
+			COSINES[i] = (float) Math.cos(phase);
+			SINES[i] = (float) Math.sin(phase);
+		}
+	}
+
+	private final FloatFFT fft;
+	private final int size;
+	private final int bins;
+	private final int stepSize;
+	private final boolean polarLookup;
+
+	private final float[] analysisWindow;
+	private final float[] synthesisWindow;
+	/**
+	 * The phase a bin advances in one step, i * 2 pi * step / size.
+	 */
+	private final double[] expectedPhaseAdvance;
+	/**
+	 * Converts a phase deviation to a deviation in bins and back.
+	 */
+	private final double phaseToBin;
+	private final double binToPhase;
+
+	private final float[] fftData;
+	private final float[] previousPhase;
+	private final double[] summedPhase;
+	private final float[] shiftedMagnitudes;
+	private final double[] shiftedBins;
+	private final float[] outputAccumulator;
+	private float[] output = new float[0];
+
+	private double pitchShiftFactor;
+
+	/**
+	 * Create a pitch shifter that uses {@link Math#sin(double)} and
+	 * {@link Math#cos(double)} for the resynthesis.
+	 * 
+	 * @param factor
+	 *            The pitch shift factor, 2 shifts an octave up.
+	 * @param size
+	 *            The size of the audio blocks, a power of two.
+	 * @param overlap
+	 *            The overlap of the audio blocks, a quarter or less of the
+	 *            size gives the best results.
+	 */
+	public PhaseVocoderPitchShifter(double factor, int size, int overlap) {
+		this(factor, size, overlap, false);
+	}
+
+	/**
+	 * Create a pitch shifter.
+	 * 
+	 * @param factor
+	 *            The pitch shift factor, 2 shifts an octave up.
+	 * @param size
+	 *            The size of the audio blocks, a power of two.
+	 * @param overlap
+	 *            The overlap of the audio blocks, a quarter or less of the
+	 *            size gives the best results.
+	 * @param polarLookup
+	 *            Convert the resynthesised bins with interpolated lookup
+	 *            tables instead of computing sine and cosine.
+	 */
+	public PhaseVocoderPitchShifter(double factor, int size, int overlap, boolean polarLookup) {
+		this.pitchShiftFactor = factor;
+		this.size = size;
+		this.bins = size / 2;
+		this.polarLookup = polarLookup;
+
+		long osamp = size / (size - overlap);
+		this.stepSize = (int) (size / osamp);
+		double excpt = TWO_PI * (size - overlap) / size;
+		this.phaseToBin = osamp / TWO_PI;
+		this.binToPhase = TWO_PI / osamp;
+
+		fft = FFTPlan.get(size, null).getTransform();
+		analysisWindow = hannWindow(size);
+		synthesisWindow = new float[size];
+		// overlapping the squared window adds up to this on average
+		double windowSum = 0;
+		for (int i = 0; i < size; i++) {
+			windowSum += analysisWindow[i] * analysisWindow[i];
+		}
+		float gain = (float) (stepSize / windowSum);
+		for (int i = 0; i < size; i++) {
+			synthesisWindow[i] = analysisWindow[i] * gain;
+		}
+
+		expectedPhaseAdvance = new double[bins];
+		for (int i = 0; i < bins; i++) {
+			expectedPhaseAdvance[i] = i * excpt;
+		}
+
+		fftData = new float[size];
+		previousPhase = new float[bins];
+		summedPhase = new double[bins];
+		shiftedMagnitudes = new float[bins];
+		shiftedBins = new double[bins];
+		outputAccumulator = new float[size];
+	}
+
+	private static float[] hannWindow(int size) {
+		float[] window = HANN_WINDOWS.get(size);
+		if (window == null) {
+			window = new float[size];
+			for (int i = 0; i < size; i++) {
+				window[i] = (float) (-.5 * Math.cos(TWO_PI * i / size) + .5);
+			}
+			float[] existing = HANN_WINDOWS.putIfAbsent(size, window);
+			if (existing != null) {
+				window = existing;
+			}
+		}
+		return window;
+	}
+
+	public void setPitchShiftFactor(float newPitchShiftFactor) {
+		this.pitchShiftFactor = newPitchShiftFactor;
+	}
+
+	@Override
+	public boolean process(AudioEvent audioEvent) {
+		float[] audioBuffer = audioEvent.getFloatBuffer();
+
+		int length = Math.min(audioBuffer.length, size);
+		for (int i = 0; i < length; i++) {
+			fftData[i] = audioBuffer[i] * analysisWindow[i];
+		}
+		Arrays.fill(fftData, length, size, 0);
+		fft.realForward(fftData);
+
+		analyse();
+		synthesise();
+
+		fft.realInverse(fftData, true);
+		for (int i = 0; i < size; i++) {
+			outputAccumulator[i] += synthesisWindow[i] * fftData[i];
+		}
+
+		if (output.length != audioBuffer.length) {
+			output = new float[audioBuffer.length];
+		}
+		// the processors after this one may have written to the block
+		int offset = Math.max(0, output.length - stepSize);
+		Arrays.fill(output, 0, offset, 0);
+		System.arraycopy(outputAccumulator, 0, output, offset, Math.min(stepSize, output.length));
+		audioEvent.setFloatBuffer(output);
+
+		System.arraycopy(outputAccumulator, stepSize, outputAccumulator, 0, size - stepSize);
+		Arrays.fill(outputAccumulator, size - stepSize, size, 0);
+		return true;
+	}
+
+	/**
+	 * Estimates the true frequency of every bin, in bins, from its phase
+	 * advance and moves it with its magnitude to the shifted bin.
+	 */
+	private void analyse() {
+		double factor = pitchShiftFactor;
+		Arrays.fill(shiftedMagnitudes, 0);
+		Arrays.fill(shiftedBins, 0);
+
+		// the real valued DC bin has no phase advance and always stays in place
+		shiftedMagnitudes[0] = fftData[0];
+
+		for (int i = 1; i < bins; i++) {
+			float real = fftData[2 * i];
+			float imaginary = fftData[2 * i + 1];
+			float magnitude = (float) Math.sqrt(real * real + imaginary * imaginary);
+			float phase = (float) Math.atan2(imaginary, real);
+
+			double delta = phase - previousPhase[i] - expectedPhaseAdvance[i];
+			previousPhase[i] = phase;
+
+			// map the deviation into the +/- pi interval
+			long qpd = (long) (delta / Math.PI);
+			if (qpd >= 0) {
+				qpd += qpd & 1;
+			} else {
+				qpd -= qpd & 1;
+			}
+			delta -= Math.PI * qpd;
+
+			int index = (int) (i * factor);
+			if (index > 0 && index < bins) {
+				shiftedMagnitudes[index] += magnitude;
+				shiftedBins[index] = (i + delta * phaseToBin) * factor;
+			}
+		}
+	}
+
+	/**
+	 * Advances the phase of every shifted bin by its frequency and writes the
+	 * bins back as complex numbers. The Nyquist bin is left out.
+	 */
+	private void synthesise() {
+		fftData[0] = shiftedMagnitudes[0];
+		fftData[1] = 0;
+
+		for (int i = 1; i < bins; i++) {
+			double phase = summedPhase[i] + (shiftedBins[i] - i) * binToPhase + expectedPhaseAdvance[i];
+			phase -= TWO_PI * Math.rint(phase / TWO_PI);
+			summedPhase[i] = phase;
+
+			float magnitude = shiftedMagnitudes[i];
+			if (polarLookup) {
+				polarLookup(magnitude, phase, fftData, 2 * i);
+			} else {
+				fftData[2 * i] = (float) (magnitude * Math.cos(phase));
+				fftData[2 * i + 1] = (float) (magnitude * Math.sin(phase));
+			}
+		}
+	}
+
+	/**
+	 * Converts magnitude and phase to a complex number with the interpolated
+	 * sine and cosine tables.
+	 * 
+	 * @param magnitude
+	 *            The magnitude.
+	 * @param phase
+	 *            The phase, between -pi and pi.
+	 * @param target
+	 *            Receives the real part at <code>offset</code> and the
+	 *            imaginary part after it.
+	 * @param offset
+	 *            The index of the real part.
+	 */
+	static void polarLookup(float magnitude, double phase, float[] target, int offset) {
+		double position = (phase + Math.PI) * LOOKUP_SCALE;
+		int index = (int) position;
+		float fraction = (float) (position - index);
+		target[offset] = magnitude * (COSINES[index] + fraction * (COSINES[index + 1] - COSINES[index]));
+		target[offset + 1] = magnitude * (SINES[index] + fraction * (SINES[index + 1] - SINES[index]));
+	}
+
+	@Override
+	public void processingFinished() {
+
+	}
+}
@@ -6,11 +6,13 @@ import be.tarsos.dsp.util.fft.FFT;
 /**
  * This is a translation of code by Stephan M. Bernsee. See the following explanation on this code:
  * <a href="http://www.dspdimension.com/admin/pitch-shifting-using-the-ft/">Pitch shifting using the STFT</a>.
+ * For rendering, see {@link PhaseVocoderPitchShifter}, which does the same
+ * without allocating or computing windows per block.
  * 
  * @author Joren Six
  * @author Stephan M. Bernsee
  */
-public class PitchShifter implements AudioProcessor{
+public class PitchShifter implements MutatingAudioProcessor{
 	
 	private final FFT fft;
 	private final int size;
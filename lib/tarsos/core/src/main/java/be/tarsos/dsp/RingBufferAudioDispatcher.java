@@ -0,0 +1,199 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+package be.tarsos.dsp;
+
+import java.io.IOException;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+
+/**
+ * An {@link AudioDispatcher} that keeps the decoded samples in a circular
+ * buffer instead of shifting the overlap to the front of the block on every
+ * hop. Each hop reads and converts only the new samples, so with a large
+ * overlap (e.g. 2048/1984 for onset detection) the dispatcher does O(hop)
+ * work instead of O(buffer).
+ * <p>
+ * The ring has a power of two capacity of at least the buffer size and every
+ * sample is stored twice, at <code>i</code> and <code>i + capacity</code>.
+ * Any block is then a contiguous window of the ring, which is handed to the
+ * processors with {@link AudioEvent#setFloatBuffer(float[], int, int)}.
+ * Processors that call {@link AudioEvent#getRMS()} or
+ * {@link AudioEvent#copyFloatBuffer(float[])} read the window directly,
+ * {@link AudioEvent#getFloatBuffer()} copies it to an array of its own.
+ * </p>
+ * <p>
+ * Unlike the {@link AudioDispatcher}, changes processors make to a block
+ * never end up in the overlap of the next block.
+ * </p>
+ */
+public class RingBufferAudioDispatcher extends AudioDispatcher {
+
+	private final TarsosDSPAudioFloatConverter converter;
+
+	private final int frameSize;
+
+	/**
+	 * Every sample is stored twice: ring[i] == ring[i + capacity].
+	 */
+	private float[] ring;
+
+	private int capacity;
+
+	private byte[] byteBuffer;
+
+	/**
+	 * The number of samples written to the ring since the first block,
+	 * including the zeros of a zero padded first block.
+	 */
+	private long samplesWritten;
+
+	/**
+	 * Create a new dispatcher from a stream.
+	 *
+	 * @param stream
+	 *            The stream to read data from.
+	 * @param audioBufferSize
+	 *            The size of the buffer defines how much samples are processed
+	 *            in one step. Common values are 1024,2048.
+	 * @param bufferOverlap
+	 *            How much consecutive buffers overlap (in samples).
+	 */
+	public RingBufferAudioDispatcher(final TarsosDSPAudioInputStream stream, final int audioBufferSize, final int bufferOverlap) {
+		super(stream, audioBufferSize, bufferOverlap);
+		converter = TarsosDSPAudioFloatConverter.getConverter(stream.getFormat());
+		frameSize = stream.getFormat().getFrameSize();
+	}
+
+	@Override
+	protected int readNextAudioBlock() throws IOException {
+		final int bufferSize = getBufferSize();
+		final int overlap = getOverlap();
+		final boolean isFirstBuffer = isFirstBuffer();
+		ensureCapacity(bufferSize, overlap);
+
+		final int samplesToRead;
+		final int offsetInSamples;
+		if (isFirstBuffer && !isZeroPadFirstBuffer()) {
+			samplesToRead = bufferSize;
+			offsetInSamples = 0;
+		} else {
+			samplesToRead = bufferSize - overlap;
+			offsetInSamples = overlap;
+		}
+		if (isFirstBuffer) {
+			// a zero padded first block starts with 'overlap' zeros, a fresh ring holds those already
+			samplesWritten = offsetInSamples;
+		}
+
+		final int bytesToRead = samplesToRead * frameSize;
+		int totalBytesRead = 0;
+		boolean endOfStream = false;
+		while (!isStopped() && !endOfStream && totalBytesRead < bytesToRead) {
+			int bytesRead;
+			try {
+				bytesRead = getAudioInputStream().read(byteBuffer, totalBytesRead, bytesToRead - totalBytesRead);
+			} catch (IndexOutOfBoundsException e) {
+				// The pipe decoder generates an out of bounds if end of stream is reached.
+				bytesRead = -1;
+			}
+			if (bytesRead == -1) {
+				endOfStream = true;
+			} else {
+				totalBytesRead += bytesRead;
+			}
+		}
+
+		if (!endOfStream && totalBytesRead != bytesToRead && !isStopped()) {
+			throw new IOException(String.format("The end of the audio stream has not been reached and the number of bytes read (%d) is not equal "
+					+ "to the expected amount of bytes(%d).", totalBytesRead, bytesToRead));
+		}
+
+		final int samplesRead = totalBytesRead / frameSize;
+		int blockLength = bufferSize;
+		if (endOfStream && isZeroPadLastBuffer()) {
+			for (int i = totalBytesRead; i < bytesToRead; i++) {
+				byteBuffer[i] = 0;
+			}
+			append(samplesToRead);
+		} else if (endOfStream) {
+			// Send a smaller block through the chain.
+			append(samplesRead);
+			blockLength = offsetInSamples + samplesRead;
+		} else {
+			append(samplesToRead);
+		}
+
+		int blockStart = (int) ((samplesWritten - blockLength) & (capacity - 1));
+		AudioEvent audioEvent = getAudioEvent();
+		audioEvent.setFloatBuffer(ring, blockStart, blockLength);
+		audioEvent.setOverlap(offsetInSamples);
+
+		return totalBytesRead;
+	}
+
+	/**
+	 * Converts the first samples of the byte buffer into the ring and its
+	 * mirror.
+	 */
+	private void append(int samples) {
+		if (samples == 0) {
+			return;
+		}
+		int start = (int) (samplesWritten & (capacity - 1));
+		// start < capacity and samples <= capacity, so the target never runs past the mirror
+		converter.toFloatArray(byteBuffer, 0, ring, start, samples);
+		int end = start + samples;
+		if (end <= capacity) {
+			System.arraycopy(ring, start, ring, start + capacity, samples);
+		} else {
+			System.arraycopy(ring, start, ring, start + capacity, capacity - start);
+			System.arraycopy(ring, capacity, ring, 0, end - capacity);
+		}
+		samplesWritten += samples;
+	}
+
+	private void ensureCapacity(int bufferSize, int overlap) {
+		if (ring != null && bufferSize <= capacity && byteBuffer.length == bufferSize * frameSize) {
+			return;
+		}
+		int newCapacity = Integer.highestOneBit(bufferSize);
+		if (newCapacity < bufferSize) {
+			newCapacity <<= 1;
+		}
+		float[] newRing = new float[2 * newCapacity];
+		if (ring != null) {
+			// keep the samples the next block overlaps with after setStepSizeAndOverlap
+			int keep = (int) Math.min(overlap, samplesWritten);
+			for (long i = samplesWritten - keep; i < samplesWritten; i++) {
+				float sample = ring[(int) (i & (capacity - 1))];
+				newRing[(int) (i & (newCapacity - 1))] = sample;
+				newRing[(int) (i & (newCapacity - 1)) + newCapacity] = sample;
+			}
+		}
+		ring = newRing;
+		capacity = newCapacity;
+		byteBuffer = new byte[bufferSize * frameSize];
+	}
+}
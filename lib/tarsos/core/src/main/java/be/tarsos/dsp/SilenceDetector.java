@@ -28,7 +28,7 @@ package be.tarsos.dsp;
 /**
  * The continuing silence detector does not break the audio processing pipeline when silence is detected.
  */
-public class SilenceDetector implements AudioProcessor {
+public class SilenceDetector implements MutatingAudioProcessor {
 	
 	public static final double DEFAULT_SILENCE_THRESHOLD = -70.0;//db
 	
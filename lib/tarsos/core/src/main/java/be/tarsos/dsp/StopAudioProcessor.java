@@ -29,7 +29,7 @@ package be.tarsos.dsp;
  * @author Joren Six
  *
  */
-public class StopAudioProcessor implements AudioProcessor {
+public class StopAudioProcessor implements MutatingAudioProcessor {
 
 	private double stopTime;
 	public StopAudioProcessor(double stopTime){
@@ -25,7 +25,7 @@
 package be.tarsos.dsp.effects;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 
 /**
@@ -35,7 +35,7 @@ import be.tarsos.dsp.AudioProcessor;
  * 
  * @author Joren Six
  */
-public class DelayEffect implements AudioProcessor {
+public class DelayEffect implements MutatingAudioProcessor {
 	
 	private double sampleRate;
 	private float[] echoBuffer;//in seconds
@@ -50,7 +50,7 @@
 package be.tarsos.dsp.effects;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 /**
  * <p>
@@ -61,7 +61,7 @@ import be.tarsos.dsp.AudioProcessor;
  * 
  * @author Joren Six
  */
-public class FlangerEffect implements AudioProcessor {
+public class FlangerEffect implements MutatingAudioProcessor {
 
 	/**
 	 * A simple delay buffer, it holds a number of samples determined by the
@@ -43,7 +43,7 @@
 package be.tarsos.dsp.filters;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 /**
  * An Infinite Impulse Response, or IIR, filter is a filter that uses a set of
@@ -59,7 +59,7 @@ import be.tarsos.dsp.AudioProcessor;
  * @author Joren Six
  * 
  */
-public abstract class IIRFilter implements AudioProcessor {
+public abstract class IIRFilter implements MutatingAudioProcessor {
 	
 	/** The b coefficients. */
 	protected float[] b;
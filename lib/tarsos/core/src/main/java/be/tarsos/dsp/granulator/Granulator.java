@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 /**
  * Granulator plays back samples using granular synthesis. 
@@ -17,7 +17,7 @@ import be.tarsos.dsp.AudioProcessor;
  * @author ollie
  * @author Joren
  */
-public class Granulator implements AudioProcessor  {
+public class Granulator implements MutatingAudioProcessor  {
 
 	public static final float ADAPTIVE_INTERP_LOW_THRESH = 0.5f;
 	public static final float ADAPTIVE_INTERP_HIGH_THRESH = 2.5f;
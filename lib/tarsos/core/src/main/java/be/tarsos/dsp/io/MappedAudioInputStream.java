@@ -0,0 +1,328 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+package be.tarsos.dsp.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import be.tarsos.dsp.writer.WaveHeader;
+
+/**
+ * Reads PCM frames straight from a (memory-mapped) {@link ByteBuffer}. Unlike
+ * the streams based on <code>javax.sound</code> there is no intermediate
+ * buffering: {@link #read(byte[], int, int)} copies from the mapping into the
+ * caller's array and {@link #skip(long)} only moves the read position.
+ * <p>
+ * {@link #open(File)} parses RIFF/WAVE and AIFF/AIFC headers itself and maps
+ * the sample data of the file. {@link #view(long, long)} returns a stream over
+ * a range of frames that shares the mapping but has its own read position, so
+ * several threads can each process a segment of one file without opening it
+ * again. The mapping is released when the last view is garbage collected.
+ * </p>
+ */
+public class MappedAudioInputStream implements TarsosDSPAudioInputStream {
+
+	private static final short FORMAT_IEEE_FLOAT = 3;
+	private static final short FORMAT_EXTENSIBLE = (short) 0xFFFE;
+
+	private final ByteBuffer data;
+	private final TarsosDSPAudioFormat format;
+	private final int frameSize;
+	private volatile boolean closed;
+
+	/**
+	 * Wraps raw frames in the given format. The buffer is not copied; the
+	 * stream reads from its position up to its limit. A trailing partial
+	 * frame is ignored.
+	 *
+	 * @param data
+	 *            The raw frames.
+	 * @param format
+	 *            The format of the frames.
+	 */
+	public MappedAudioInputStream(ByteBuffer data, TarsosDSPAudioFormat format) {
+		if (format.getFrameSize() <= 0) {
+			throw new IllegalArgumentException("The frame size of " + format + " is not specified");
+		}
+		this.format = format;
+		this.frameSize = format.getFrameSize();
+		this.data = data.slice();
+		this.data.limit(this.data.limit() - this.data.limit() % frameSize);
+	}
+
+	/**
+	 * Maps the sample data of a PCM WAV or AIFF file.
+	 *
+	 * @param file
+	 *            A WAV (PCM, IEEE float or extensible) or AIFF/AIFC
+	 *            (uncompressed, <code>sowt</code> or float) file.
+	 * @return A stream positioned at the first frame.
+	 * @throws IOException
+	 *             If the file can not be read, is larger than 2GB or is not a
+	 *             supported PCM file.
+	 */
+	public static MappedAudioInputStream open(File file) throws IOException {
+		final ByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file.getName() + " is too large to be mapped");
+			}
+			// the mapping stays valid after the channel is closed
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (mapped.remaining() < 12) {
+			throw new IOException(file.getName() + " is too short to be a WAV or AIFF file");
+		}
+		String container = fourCC(mapped, 0);
+		String type = fourCC(mapped, 8);
+		if ("RIFF".equals(container) && "WAVE".equals(type)) {
+			return parseWave(mapped.order(ByteOrder.LITTLE_ENDIAN), file.getName());
+		} else if ("FORM".equals(container) && ("AIFF".equals(type) || "AIFC".equals(type))) {
+			return parseAiff(mapped.order(ByteOrder.BIG_ENDIAN), "AIFC".equals(type), file.getName());
+		}
+		throw new IOException(file.getName() + " is not a WAV or AIFF file");
+	}
+
+	private static MappedAudioInputStream parseWave(ByteBuffer file, String name) throws IOException {
+		short formatCode = 0;
+		int channels = 0;
+		int sampleRate = 0;
+		int blockAlign = 0;
+		int bitsPerSample = 0;
+		int position = 12;
+		while (position + 8 <= file.limit()) {
+			String id = fourCC(file, position);
+			long size = file.getInt(position + 4) & 0xFFFFFFFFL;
+			int body = position + 8;
+			if ("fmt ".equals(id)) {
+				formatCode = file.getShort(body);
+				channels = file.getShort(body + 2);
+				sampleRate = file.getInt(body + 4);
+				blockAlign = file.getShort(body + 12);
+				bitsPerSample = file.getShort(body + 14);
+				if (formatCode == FORMAT_EXTENSIBLE && size >= 40) {
+					// the first two bytes of the sub format GUID hold the format code
+					formatCode = file.getShort(body + 24);
+				}
+			} else if ("data".equals(id)) {
+				if (channels <= 0 || blockAlign <= 0) {
+					throw new IOException(name + " has no fmt chunk before its data");
+				}
+				final TarsosDSPAudioFormat.Encoding encoding;
+				if (formatCode == WaveHeader.FORMAT_PCM) {
+					encoding = bitsPerSample <= 8 ? TarsosDSPAudioFormat.Encoding.PCM_UNSIGNED : TarsosDSPAudioFormat.Encoding.PCM_SIGNED;
+				} else if (formatCode == FORMAT_IEEE_FLOAT) {
+					encoding = TarsosDSPAudioFloatConverter.PCM_FLOAT;
+				} else {
+					throw new IOException(name + " uses unsupported WAV format code " + formatCode);
+				}
+				// samples are stored in whole bytes, padded up to the block alignment
+				int sampleSizeInBits = blockAlign / channels * 8;
+				TarsosDSPAudioFormat format = new TarsosDSPAudioFormat(encoding, sampleRate, sampleSizeInBits,
+						channels, blockAlign, sampleRate, false);
+				// streaming writers often leave the data size at zero or at its maximum
+				long available = file.limit() - body;
+				long length = size == 0 || size > available ? available : size;
+				return new MappedAudioInputStream(range(file, body, length), format);
+			}
+			// chunks are padded to an even number of bytes
+			position = (int) Math.min(file.limit(), body + size + (size & 1));
+		}
+		throw new IOException(name + " has no data chunk");
+	}
+
+	private static MappedAudioInputStream parseAiff(ByteBuffer file, boolean compressed, String name) throws IOException {
+		int channels = 0;
+		long frameCount = -1;
+		int sampleSize = 0;
+		double sampleRate = 0;
+		TarsosDSPAudioFormat.Encoding encoding = TarsosDSPAudioFormat.Encoding.PCM_SIGNED;
+		boolean bigEndian = true;
+		int position = 12;
+		while (position + 8 <= file.limit()) {
+			String id = fourCC(file, position);
+			long size = file.getInt(position + 4) & 0xFFFFFFFFL;
+			int body = position + 8;
+			if ("COMM".equals(id)) {
+				channels = file.getShort(body);
+				frameCount = file.getInt(body + 2) & 0xFFFFFFFFL;
+				sampleSize = file.getShort(body + 6);
+				sampleRate = readExtended(file, body + 8);
+				if (compressed) {
+					String compression = fourCC(file, body + 18);
+					if ("sowt".equals(compression)) {
+						bigEndian = false;
+					} else if ("fl32".equalsIgnoreCase(compression) || "fl64".equalsIgnoreCase(compression)) {
+						encoding = TarsosDSPAudioFloatConverter.PCM_FLOAT;
+					} else if (!"NONE".equals(compression) && !"twos".equals(compression)) {
+						throw new IOException(name + " uses unsupported AIFC compression " + compression);
+					}
+				}
+			} else if ("SSND".equals(id)) {
+				if (channels <= 0 || sampleSize <= 0) {
+					throw new IOException(name + " has no COMM chunk before its sound data");
+				}
+				if (encoding == TarsosDSPAudioFloatConverter.PCM_FLOAT && sampleSize != 32 && sampleSize != 64) {
+					sampleSize = sampleSize < 64 ? 32 : 64;
+				}
+				int frameSize = channels * ((sampleSize + 7) / 8);
+				TarsosDSPAudioFormat format = new TarsosDSPAudioFormat(encoding, (float) sampleRate, sampleSize,
+						channels, frameSize, (float) sampleRate, bigEndian);
+				long offset = file.getInt(body) & 0xFFFFFFFFL;
+				int start = (int) Math.min(file.limit(), body + 8 + offset);
+				long length = Math.min(file.limit() - start, size - 8 - offset);
+				if (frameCount >= 0) {
+					length = Math.min(length, frameCount * frameSize);
+				}
+				return new MappedAudioInputStream(range(file, start, Math.max(0, length)), format);
+			}
+			position = (int) Math.min(file.limit(), body + size + (size & 1));
+		}
+		throw new IOException(name + " has no SSND chunk");
+	}
+
+	/**
+	 * Decodes the 80 bit IEEE 754 extended precision number AIFF uses for the
+	 * sample rate.
+	 */
+	private static double readExtended(ByteBuffer buffer, int index) {
+		int exponent = buffer.getShort(index) & 0x7FFF;
+		long mantissa = buffer.getLong(index + 2);
+		if (exponent == 0 && mantissa == 0) {
+			return 0;
+		}
+		// keep the 53 most significant bits of the 64 bit mantissa
+		return Math.scalb((double) (mantissa >>> 11), exponent - 16383 - 52);
+	}
+
+	private static String fourCC(ByteBuffer buffer, int index) {
+		byte[] id = new byte[4];
+		for (int i = 0; i < id.length; i++) {
+			id[i] = buffer.get(index + i);
+		}
+		return new String(id, StandardCharsets.US_ASCII);
+	}
+
+	private static ByteBuffer range(ByteBuffer buffer, int start, long length) {
+		ByteBuffer range = buffer.duplicate();
+		range.limit((int) (start + length));
+		range.position(start);
+		return range;
+	}
+
+	/**
+	 * Moves the read position forward. Runs in constant time.
+	 *
+	 * @param bytesToSkip
+	 *            The number of bytes to skip, rounded down to whole frames.
+	 * @return The number of bytes skipped, less than requested at the end of
+	 *         the stream.
+	 */
+	@Override
+	public long skip(long bytesToSkip) throws IOException {
+		long frames = Math.max(0, bytesToSkip) / frameSize;
+		int skipped = (int) Math.min(frames * frameSize, data.remaining());
+		data.position(data.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (closed || !data.hasRemaining()) {
+			return -1;
+		}
+		int count = Math.min(len - len % frameSize, data.remaining());
+		data.get(b, off, count);
+		return count;
+	}
+
+	/**
+	 * Marks the stream as closed. The mapping itself is shared with other
+	 * views and released by the garbage collector.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+	}
+
+	@Override
+	public TarsosDSPAudioFormat getFormat() {
+		return format;
+	}
+
+	@Override
+	public long getFrameLength() {
+		return data.limit() / frameSize;
+	}
+
+	/**
+	 * @return The index of the next frame that will be read.
+	 */
+	public long getFramePosition() {
+		return data.position() / frameSize;
+	}
+
+	/**
+	 * Moves the read position to a frame. Runs in constant time.
+	 *
+	 * @param frame
+	 *            The index of the next frame to read, at most
+	 *            {@link #getFrameLength()}.
+	 */
+	public void setFramePosition(long frame) {
+		if (frame < 0 || frame > getFrameLength()) {
+			throw new IllegalArgumentException("Frame " + frame + " is outside of [0," + getFrameLength() + "]");
+		}
+		data.position((int) (frame * frameSize));
+	}
+
+	/**
+	 * Creates a stream over a range of frames of this stream. The view shares
+	 * the underlying buffer but has its own read position, it can be created
+	 * from any thread and is unaffected by reads on this stream.
+	 *
+	 * @param firstFrame
+	 *            The first frame of the view.
+	 * @param frameCount
+	 *            The number of frames in the view, clipped to the end of this
+	 *            stream.
+	 * @return A new stream positioned at <code>firstFrame</code>.
+	 */
+	public MappedAudioInputStream view(long firstFrame, long frameCount) {
+		if (firstFrame < 0 || firstFrame > getFrameLength() || frameCount < 0) {
+			throw new IllegalArgumentException("Frames [" + firstFrame + "," + (firstFrame + frameCount)
+					+ ") are outside of [0," + getFrameLength() + "]");
+		}
+		long lastFrame = Math.min(getFrameLength(), firstFrame + frameCount);
+		ByteBuffer range = data.duplicate();
+		range.limit((int) (lastFrame * frameSize));
+		range.position((int) (firstFrame * frameSize));
+		return new MappedAudioInputStream(range, format);
+	}
+}
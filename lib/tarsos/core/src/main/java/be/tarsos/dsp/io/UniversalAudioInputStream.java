@@ -30,10 +30,21 @@ public class UniversalAudioInputStream implements TarsosDSPAudioInputStream {
 	
 	private final InputStream underlyingStream;
 	private final TarsosDSPAudioFormat format;
+	private final long frameLength;
 	
 	public UniversalAudioInputStream(InputStream underlyingInputStream, TarsosDSPAudioFormat format){
+		this(underlyingInputStream, format, -1);
+	}
+
+	/**
+	 * @param underlyingInputStream The stream with raw audio in the given format.
+	 * @param format The format of the raw audio.
+	 * @param frameLength The length of the stream in sample frames, or -1 if unknown.
+	 */
+	public UniversalAudioInputStream(InputStream underlyingInputStream, TarsosDSPAudioFormat format, long frameLength){
 		this.underlyingStream = underlyingInputStream;
 		this.format = format;
+		this.frameLength = frameLength;
 	}
 
 	@Override
@@ -66,7 +77,7 @@ public class UniversalAudioInputStream implements TarsosDSPAudioInputStream {
 
 	@Override
 	public long getFrameLength() {
-		return -1;
+		return frameLength;
 	}
 
 }
@@ -36,6 +36,7 @@ import javax.sound.sampled.TargetDataLine;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.io.MappedAudioInputStream;
 import be.tarsos.dsp.io.PipedAudioStream;
 import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
 import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
@@ -222,7 +223,10 @@ public class AudioDispatcherFactory {
 	
 	
 	/**
-	 * Create a stream from a file and use that to create a new AudioDispatcher
+	 * Create a stream from a file and use that to create a new AudioDispatcher.
+	 * PCM WAV and AIFF files are memory-mapped and read without intermediate
+	 * copies, see {@link MappedAudioInputStream}. Other files are decoded by
+	 * <code>javax.sound</code>.
 	 * 
 	 * @param audioFile
 	 *            The file.
@@ -237,8 +241,14 @@ public class AudioDispatcherFactory {
 	 */
 	public static AudioDispatcher fromFile(final File audioFile, final int audioBufferSize,final int bufferOverlap)
 			throws UnsupportedAudioFileException, IOException {
-		final AudioInputStream stream = AudioSystem.getAudioInputStream(audioFile);
-		TarsosDSPAudioInputStream audioStream = new JVMAudioInputStream(stream);
+		TarsosDSPAudioInputStream audioStream;
+		try {
+			audioStream = MappedAudioInputStream.open(audioFile);
+		} catch (IOException e) {
+			// not a PCM WAV or AIFF file, let javax.sound decode it
+			final AudioInputStream stream = AudioSystem.getAudioInputStream(audioFile);
+			audioStream = new JVMAudioInputStream(stream);
+		}
 		return new AudioDispatcher(audioStream, audioBufferSize, bufferOverlap);
 	}
 	
@@ -25,11 +25,13 @@ package be.tarsos.dsp.mfcc;
 
 import be.tarsos.dsp.AudioEvent;
 import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.BatchAudioProcessor;
+import be.tarsos.dsp.FrameBatch;
 import be.tarsos.dsp.util.fft.FFT;
 import be.tarsos.dsp.util.fft.HammingWindow;
 
 
-public class MFCC implements AudioProcessor {
+public class MFCC implements AudioProcessor, BatchAudioProcessor {
 	
     private int amountOfCepstrumCoef; //Number of MFCCs per frame
     protected int amountOfMelFilters; //Number of mel filters (SPHINX-III uses 40)
@@ -41,6 +43,10 @@ public class MFCC implements AudioProcessor {
     //Per frame zijn er dan CEPSTRA coeficienten
     private float[] mfcc;
     
+    //One row of coefficients per frame of the last batch, reused between batches
+    private float[][] batchMfcc;
+    private int batchFrameCount;
+    
     int centerFrequencies[];
 
     private FFT fft;
@@ -79,6 +85,29 @@ public class MFCC implements AudioProcessor {
 		return true;
 	}
 
+	@Override
+	public boolean processBatch(FrameBatch batch) {
+		if(batchMfcc == null || batchMfcc.length < batch.getFrameCount()){
+			batchMfcc = new float[batch.getFrameCount()][];
+		}
+		if(audioFloatBuffer == null || audioFloatBuffer.length != batch.getFrameSize()){
+			audioFloatBuffer = new float[batch.getFrameSize()];
+		}
+		for(int frame = 0 ; frame < batch.getFrameCount() ; frame++){
+			// the magnitude spectrum transforms in place, so work on a copy of the frame
+			batch.copyFrame(frame, audioFloatBuffer);
+			float bin[] = magnitudeSpectrum(audioFloatBuffer);
+			float fbank[] = melFilter(bin, centerFrequencies);
+			float f[] = nonLinearTransformation(fbank);
+			batchMfcc[frame] = cepCoefficients(f);
+		}
+		batchFrameCount = batch.getFrameCount();
+		if(batchFrameCount > 0){
+			mfcc = batchMfcc[batchFrameCount - 1];
+		}
+		return true;
+	}
+
 	@Override
 	public void processingFinished() {
 
@@ -264,6 +293,23 @@ public class MFCC implements AudioProcessor {
 		return mfcc.clone();
 	}
 
+	/**
+	 * The coefficients of every frame of the last batch, see
+	 * {@link #processBatch(FrameBatch)}. Beware: the outer array is reused
+	 * for the next batch and can be longer than the batch.
+	 * @return One row of cepstrum coefficients per frame.
+	 */
+	public float[][] getBatchMFCC() {
+		return batchMfcc;
+	}
+
+	/**
+	 * @return The number of rows of {@link #getBatchMFCC()} that belong to the last batch.
+	 */
+	public int getBatchFrameCount() {
+		return batchFrameCount;
+	}
+
 	public int[] getCenterFrequencies() {
 		return centerFrequencies;
 	}
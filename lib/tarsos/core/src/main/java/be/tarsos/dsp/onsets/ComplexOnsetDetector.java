@@ -25,6 +25,8 @@ package be.tarsos.dsp.onsets;
 
 import be.tarsos.dsp.AudioEvent;
 import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.BatchAudioProcessor;
+import be.tarsos.dsp.FrameBatch;
 import be.tarsos.dsp.util.PeakPicker;
 import be.tarsos.dsp.util.fft.FFT;
 import be.tarsos.dsp.util.fft.HannWindow;
@@ -42,7 +44,7 @@ import be.tarsos.dsp.util.fft.HannWindow;
  * @author Joren Six
  * @author Paul Brossiers
  */
-public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
+public class ComplexOnsetDetector implements AudioProcessor, BatchAudioProcessor, OnsetDetector{
 	
 	
 	/**
@@ -94,6 +96,11 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 	 */
 	private final float[] dev1;
 	
+	/**
+	 * Reused FFT input, power and phase buffers.
+	 */
+	private float[] data, power, phase;
+	
 	/**
 	 * 
 	 * @param fftSize The size of the fft to take (e.g. 512)
@@ -150,12 +157,23 @@ public class ComplexOnsetDetector implements AudioProcessor, OnsetDetector{
 		return true;
 	}
 	
+	@Override
+	public boolean processBatch(FrameBatch batch) {
+		for(int frame = 0 ; frame < batch.getFrameCount() ; frame++){
+			onsetDetection(batch.getAudioEvent(frame));
+		}
+		return true;
+	}
+	
 	
 	private void onsetDetection(AudioEvent audioEvent){
 		//calculate the complex fft (the magnitude and phase)
-		float[] data = audioEvent.getFloatBuffer().clone();
-		float[] power = new float[data.length/2];
-		float[] phase = new float[data.length/2];
+		if(data == null || data.length != audioEvent.getBufferSize()){
+			data = new float[audioEvent.getBufferSize()];
+			power = new float[data.length/2];
+			phase = new float[data.length/2];
+		}
+		audioEvent.copyFloatBuffer(data);
 		fft.powerPhaseFFT(data, power, phase);
 		
 		float onsetValue = 0;
@@ -25,7 +25,7 @@
 package be.tarsos.dsp.onsets;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 import be.tarsos.dsp.util.fft.FFT;
 
 /**
@@ -76,7 +76,7 @@ import be.tarsos.dsp.util.fft.FFT;
  * @see <a href="http://arrow.dit.ie/cgi/viewcontent.cgi?article=1018&context=argcon">"Drum Source Separation using Percussive Feature Detection and Spectral Modulation"</a>
  * @see <a href="http://vamp-plugins.org/code-doc/PercussionOnsetDetector_8cpp-source.html">VAMP plugin example</a>
  */
-public class PercussionOnsetDetector implements AudioProcessor, OnsetDetector {
+public class PercussionOnsetDetector implements MutatingAudioProcessor, OnsetDetector {
 
 	public static final double DEFAULT_THRESHOLD = 8;
 	
@@ -36,6 +36,7 @@
 
 package be.tarsos.dsp.pitch;
 
+import be.tarsos.dsp.util.fft.FFTPlan;
 import be.tarsos.dsp.util.fft.FloatFFT;
 
 /**
@@ -106,6 +107,11 @@ public final class FastYin implements PitchDetector {
 	 */
 	private final float[] yinStyleACF;
 	
+	/**
+	 * Power terms of equation (7) in the Yin paper, reused for every buffer.
+	 */
+	private final float[] powerTerms;
+	
 	/**
 	 * An FFT object to quickly calculate the difference function.
 	 */
@@ -144,7 +150,8 @@ public final class FastYin implements PitchDetector {
 		audioBufferFFT = new float[2*bufferSize];
 		kernel = new float[2*bufferSize];
 		yinStyleACF = new float[2*bufferSize];
-		fft = new FloatFFT(bufferSize);
+		powerTerms = new float[yinBuffer.length];
+		fft = FFTPlan.get(bufferSize, null).getTransform();
 		result = new PitchDetectionResult();
 	}
 
@@ -197,10 +204,11 @@ public final class FastYin implements PitchDetector {
 	private void difference(final float[] audioBuffer) {
 		// POWER TERM CALCULATION
 		// ... for the power terms in equation (7) in the Yin paper
-		float[] powerTerms = new float[yinBuffer.length];
+		float power = 0;
 		for (int j = 0; j < yinBuffer.length; ++j) {
-			powerTerms[0] += audioBuffer[j] * audioBuffer[j];
+			power += audioBuffer[j] * audioBuffer[j];
 		}
+		powerTerms[0] = power;
 		// now iteratively calculate all others (saves a few multiplications)
 		for (int tau = 1; tau < yinBuffer.length; ++tau) {
 			powerTerms[tau] = powerTerms[tau-1] - audioBuffer[tau-1] * audioBuffer[tau-1] + audioBuffer[tau+yinBuffer.length] * audioBuffer[tau+yinBuffer.length];  
@@ -26,9 +26,6 @@
  */
 package be.tarsos.dsp.pitch;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>
  * Implementation of The McLeod Pitch Method (MPM). It is described in the
@@ -114,20 +111,23 @@ public final class McLeodPitchMethod implements PitchDetector {
 	private float turningPointX, turningPointY;
 
 	/**
-	 * A list with minimum and maximum values of the nsdf curve.
+	 * The positions of the maximum values of the nsdf curve. Only the first
+	 * <code>maxPositionCount</code> entries are valid.
 	 */
-	private final List<Integer> maxPositions = new ArrayList<Integer>();
+	private final int[] maxPositions;
+	private int maxPositionCount;
 
 	/**
-	 * A list of estimates of the period of the signal (in samples).
+	 * Estimates of the period of the signal (in samples). Only the first
+	 * <code>estimateCount</code> entries are valid.
 	 */
-	private final List<Float> periodEstimates = new ArrayList<Float>();
+	private final float[] periodEstimates;
 
 	/**
-	 * A list of estimates of the amplitudes corresponding with the period
-	 * estimates.
+	 * Estimates of the amplitudes corresponding with the period estimates.
 	 */
-	private final List<Float> ampEstimates = new ArrayList<Float>();
+	private final float[] ampEstimates;
+	private int estimateCount;
 
 	/**
 	 * The result of the pitch detection iteration.
@@ -171,6 +171,10 @@ public final class McLeodPitchMethod implements PitchDetector {
 	public McLeodPitchMethod(final float audioSampleRate, final int audioBufferSize, final double cutoffMPM) {
 		this.sampleRate = audioSampleRate;
 		nsdf = new float[audioBufferSize];
+		// there is at most one maximum between two zero crossings
+		maxPositions = new int[audioBufferSize / 2 + 1];
+		periodEstimates = new float[maxPositions.length];
+		ampEstimates = new float[maxPositions.length];
 		this.cutoff = cutoffMPM;
 		result = new PitchDetectionResult();
 	}
@@ -203,11 +207,9 @@ public final class McLeodPitchMethod implements PitchDetector {
 	public PitchDetectionResult getPitch(final float[] audioBuffer) {
 		final float pitch;
 
-		// 0. Clear previous results (Is this faster than initializing a list
-		// again and again?)
-		maxPositions.clear();
-		periodEstimates.clear();
-		ampEstimates.clear();
+		// 0. Clear previous results, the arrays are reused
+		maxPositionCount = 0;
+		estimateCount = 0;
 
 		// 1. Calculate the normalized square difference for each Tau value.
 		normalizedSquareDifference(audioBuffer);
@@ -216,7 +218,8 @@ public final class McLeodPitchMethod implements PitchDetector {
 
 		double highestAmplitude = Double.NEGATIVE_INFINITY;
 
-		for (final Integer tau : maxPositions) {
+		for (int m = 0; m < maxPositionCount; m++) {
+			final int tau = maxPositions[m];
 			// make sure every annotation has a probability attached
 			highestAmplitude = Math.max(highestAmplitude, nsdf[tau]);
 
@@ -224,14 +227,15 @@ public final class McLeodPitchMethod implements PitchDetector {
 				// calculates turningPointX and Y
 				parabolicInterpolation(tau);
 				// store the turning points
-				ampEstimates.add(turningPointY);
-				periodEstimates.add(turningPointX);
+				ampEstimates[estimateCount] = turningPointY;
+				periodEstimates[estimateCount] = turningPointX;
+				estimateCount++;
 				// remember the highest amplitude
 				highestAmplitude = Math.max(highestAmplitude, turningPointY);
 			}
 		}
 
-		if (periodEstimates.isEmpty()) {
+		if (estimateCount == 0) {
 			pitch = -1;
 		} else {
 			// use the overall maximum to calculate a cutoff.
@@ -241,14 +245,14 @@ public final class McLeodPitchMethod implements PitchDetector {
 
 			// find first period above or equal to cutoff
 			int periodIndex = 0;
-			for (int i = 0; i < ampEstimates.size(); i++) {
-				if (ampEstimates.get(i) >= actualCutoff) {
+			for (int i = 0; i < estimateCount; i++) {
+				if (ampEstimates[i] >= actualCutoff) {
 					periodIndex = i;
 					break;
 				}
 			}
 
-			final double period = periodEstimates.get(periodIndex);
+			final double period = periodEstimates[periodIndex];
 			final float pitchEstimate = (float) (sampleRate / period);
 			if (pitchEstimate > LOWER_PITCH_CUTOFF) {
 				pitch = pitchEstimate;
@@ -381,7 +385,7 @@ public final class McLeodPitchMethod implements PitchDetector {
 			if (pos < nsdf.length - 1 && nsdf[pos] <= 0) {
 				// if there was a maximum add it to the list of maxima
 				if (curMaxPos > 0) {
-					maxPositions.add(curMaxPos);
+					maxPositions[maxPositionCount++] = curMaxPos;
 					curMaxPos = 0; // clear the maximum position, so we start
 					// looking for a new ones
 				}
@@ -391,7 +395,7 @@ public final class McLeodPitchMethod implements PitchDetector {
 			}
 		}
 		if (curMaxPos > 0) { // if there was a maximum in the last part
-			maxPositions.add(curMaxPos); // add it to the vector of maxima
+			maxPositions[maxPositionCount++] = curMaxPos; // add it to the array of maxima
 		}
 	}
 }
@@ -26,13 +26,15 @@ package be.tarsos.dsp.pitch;
 
 import be.tarsos.dsp.AudioEvent;
 import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.BatchAudioProcessor;
+import be.tarsos.dsp.FrameBatch;
 
 /**
  * Is responsible to call a pitch estimation algorithm. It also calculates progress. 
  * The underlying pitch detection algorithm must implement the {@link PitchDetector} interface. 
  * @author Joren Six
  */
-public class PitchProcessor implements AudioProcessor {
+public class PitchProcessor implements AudioProcessor, BatchAudioProcessor {
 	
 	/**
 	 * A list of pitch estimation algorithms.
@@ -136,6 +138,21 @@ public class PitchProcessor implements AudioProcessor {
 		return true;
 	}
 
+	/**
+	 * Estimates the pitch of every frame of the batch and calls the handler
+	 * for each, in order, with the event of
+	 * {@link FrameBatch#getAudioEvent(int)}.
+	 */
+	@Override
+	public boolean processBatch(FrameBatch batch) {
+		for(int frame = 0 ; frame < batch.getFrameCount() ; frame++){
+			AudioEvent audioEvent = batch.getAudioEvent(frame);
+			PitchDetectionResult result = detector.getPitch(audioEvent.getFloatBuffer());
+			handler.handlePitch(result,audioEvent);
+		}
+		return true;
+	}
+
 	@Override
 	public void processingFinished() {
 	}
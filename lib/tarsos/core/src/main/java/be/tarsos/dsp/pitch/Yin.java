@@ -71,6 +71,11 @@ public final class Yin implements PitchDetector {
 	 */
 	private final PitchDetectionResult result;
 
+	/**
+	 * Calculates step 2, the difference function.
+	 */
+	private final YinDifferenceFunction differenceFunction;
+
 	/**
 	 * Create a new pitch detector for a stream with the defined sample rate.
 	 * Processes the audio in blocks of the defined size.
@@ -97,8 +102,29 @@ public final class Yin implements PitchDetector {
 	 *            pitch candidates. See the YIN paper for more details.
 	 */
 	public Yin(final float audioSampleRate, final int bufferSize, final double yinThreshold) {
+		this(audioSampleRate, bufferSize, yinThreshold, YinDifferenceFunction.getDefault());
+	}
+
+	/**
+	 * Create a new pitch detector for a stream with the defined sample rate.
+	 * Processes the audio in blocks of the defined size.
+	 * 
+	 * @param audioSampleRate
+	 *            The sample rate of the audio stream. E.g. 44.1 kHz.
+	 * @param bufferSize
+	 *            The size of a buffer. E.g. 1024.
+	 * @param yinThreshold
+	 *            The parameter that defines which peaks are kept as possible
+	 *            pitch candidates. See the YIN paper for more details.
+	 * @param differenceFunction
+	 *            The implementation of the difference function, e.g.
+	 *            {@link YinDifferenceFunction#SCALAR}.
+	 */
+	public Yin(final float audioSampleRate, final int bufferSize, final double yinThreshold,
+			final YinDifferenceFunction differenceFunction) {
 		this.sampleRate = audioSampleRate;
 		this.threshold = yinThreshold;
+		this.differenceFunction = differenceFunction;
 		yinBuffer = new float[bufferSize / 2];
 		result = new PitchDetectionResult();
 	}
@@ -150,17 +176,7 @@ public final class Yin implements PitchDetector {
 	 * paper.
 	 */
 	private void difference(final float[] audioBuffer) {
-		int index, tau;
-		float delta;
-		for (tau = 0; tau < yinBuffer.length; tau++) {
-			yinBuffer[tau] = 0;
-		}
-		for (tau = 1; tau < yinBuffer.length; tau++) {
-			for (index = 0; index < yinBuffer.length; index++) {
-				delta = audioBuffer[index] - audioBuffer[index + tau];
-				yinBuffer[tau] += delta * delta;
-			}
-		}
+		differenceFunction.difference(audioBuffer, yinBuffer);
 	}
 
 	/**
@@ -0,0 +1,125 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*  
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+
+package be.tarsos.dsp.pitch;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Step 2 of the YIN algorithm: the difference function of an audio buffer,
+ * evaluated for every lag tau in [0, yinBuffer.length). Implementations must
+ * leave yinBuffer[0] at zero.
+ * <p>
+ * {@link #getDefault()} returns a SIMD implementation based on the
+ * <code>jdk.incubator.vector</code> module when the JVM was started with
+ * <code>--add-modules jdk.incubator.vector</code>, and the scalar
+ * implementation otherwise. Set the system property
+ * <code>be.tarsos.dsp.pitch.yin.vectorized=false</code> to force the scalar
+ * path.
+ * </p>
+ */
+public interface YinDifferenceFunction {
+
+	/**
+	 * Calculates the difference function.
+	 *
+	 * @param audioBuffer
+	 *            The audio buffer, at least twice as long as the yin buffer.
+	 * @param yinBuffer
+	 *            The buffer that receives the difference for each lag.
+	 */
+	void difference(float[] audioBuffer, float[] yinBuffer);
+
+	/**
+	 * The straightforward O(N²) implementation.
+	 */
+	YinDifferenceFunction SCALAR = new YinDifferenceFunction() {
+		@Override
+		public void difference(final float[] audioBuffer, final float[] yinBuffer) {
+			int index, tau;
+			float delta;
+			for (tau = 0; tau < yinBuffer.length; tau++) {
+				yinBuffer[tau] = 0;
+			}
+			for (tau = 1; tau < yinBuffer.length; tau++) {
+				for (index = 0; index < yinBuffer.length; index++) {
+					delta = audioBuffer[index] - audioBuffer[index + tau];
+					yinBuffer[tau] += delta * delta;
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "scalar";
+		}
+	};
+
+	/**
+	 * @return The fastest implementation available on this JVM.
+	 */
+	static YinDifferenceFunction getDefault() {
+		return DefaultHolder.DEFAULT;
+	}
+
+	/**
+	 * @return The vectorized implementation, or null if the Vector API is not
+	 *         available on this JVM.
+	 */
+	static YinDifferenceFunction vectorized() {
+		return DefaultHolder.VECTORIZED;
+	}
+
+	/**
+	 * Lazily selects the implementation once per class loader.
+	 */
+	final class DefaultHolder {
+		private static final Logger LOG = Logger.getLogger(YinDifferenceFunction.class.getName());
+		private static final String VECTORIZED_CLASS = "be.tarsos.dsp.pitch.VectorizedYinDifference";
+		private static final String VECTORIZED_PROPERTY = "be.tarsos.dsp.pitch.yin.vectorized";
+
+		static final YinDifferenceFunction VECTORIZED = loadVectorized();
+		static final YinDifferenceFunction DEFAULT =
+				VECTORIZED != null && !"false".equalsIgnoreCase(System.getProperty(VECTORIZED_PROPERTY))
+						? VECTORIZED : SCALAR;
+
+		private DefaultHolder() {
+		}
+
+		private static YinDifferenceFunction loadVectorized() {
+			try {
+				YinDifferenceFunction function = (YinDifferenceFunction) Class.forName(VECTORIZED_CLASS)
+						.getDeclaredConstructor().newInstance();
+				// the Vector API classes are only linked on first use
+				function.difference(new float[64], new float[32]);
+				LOG.fine("Using vectorized YIN difference function: " + function);
+				return function;
+			} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+				LOG.log(Level.FINE, "Vector API not available, using scalar YIN difference function", e);
+				return null;
+			}
+		}
+	}
+}
@@ -81,7 +81,7 @@ class FilterKit {
     // Max error acceptable in Izero
     private static final double IzeroEPSILON = 1E-21;
 
-    private static double Izero(double x) {
+    static double Izero(double x) {
         double sum, u, halfx, temp;
         int n;
 
@@ -0,0 +1,360 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+
+package be.tarsos.dsp.resample;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts between two fixed sample rates whose ratio reduces to a fraction
+ * with a small numerator, e.g. 48000 to 44100Hz (147/160) or 44100 to 16000Hz
+ * (160/441). Output frame n lies at input time n * down / up, so only
+ * {@code up} different filter phases ever occur. Their coefficients are
+ * computed once per ratio and shared by all instances; every output sample is
+ * then a single dot product with one phase of the filter bank, without the
+ * coefficient interpolation and floating point time keeping the variable
+ * ratio {@link Resampler} needs.
+ * <p>
+ * The filter is the Kaiser windowed sinc of {@link Resampler}, with the same
+ * rolloff, window and length, so both sound alike. Channels are interleaved;
+ * all lengths passed to and returned by the process methods count samples,
+ * like those of {@link Resampler}. A session ends with the batch flagged as
+ * last, after which exactly {@code ceil(frames * up / down)} frames have been
+ * produced, aligned with the input.
+ */
+public class PolyphaseResampler {
+
+	/**
+	 * The largest number of filter phases, the numerator of the reduced ratio.
+	 */
+	public static final int MAX_PHASES = 1024;
+
+	private static final double ROLLOFF = 0.90;
+	private static final double BETA = 6;
+	// frames filtered per call to consumeOutput
+	private static final int BLOCK_FRAMES = 4096;
+
+	private static final ConcurrentMap<String, float[]> FILTER_BANKS = new ConcurrentHashMap<String, float[]>();
+
+	private final int up;
+	private final int down;
+	private final int channels;
+	private final int taps;
+	private final float[] bank;
+	private final int startStep;
+	private final int phaseStep;
+
+	// interleaved input, from the first frame the next output still needs
+	private final float[] input;
+	private int bufferedFrames;
+	// first input frame under the filter for the next output, and its phase
+	private int start;
+	private int phase;
+	private final float[] output;
+
+	private long inputFrames;
+	private long outputFrames;
+	private boolean flushed;
+
+	/**
+	 * Create a mono resampling session.
+	 *
+	 * @param inputSampleRate  the sample rate of the input
+	 * @param outputSampleRate the sample rate to convert to
+	 * @param highQuality      true for the longer, steeper filter
+	 * @throws IllegalArgumentException if the rates are not supported, see
+	 *                                  {@link #isSupported(int, int)}
+	 */
+	public PolyphaseResampler(int inputSampleRate, int outputSampleRate, boolean highQuality) {
+		this(inputSampleRate, outputSampleRate, 1, highQuality);
+	}
+
+	/**
+	 * Create a resampling session for interleaved audio.
+	 *
+	 * @param inputSampleRate  the sample rate of the input
+	 * @param outputSampleRate the sample rate to convert to
+	 * @param channels         the number of interleaved channels
+	 * @param highQuality      true for the longer, steeper filter
+	 * @throws IllegalArgumentException if the rates are not supported, see
+	 *                                  {@link #isSupported(int, int)}, or
+	 *                                  there are no channels
+	 */
+	public PolyphaseResampler(int inputSampleRate, int outputSampleRate, int channels, boolean highQuality) {
+		if (!isSupported(inputSampleRate, outputSampleRate)) {
+			throw new IllegalArgumentException("Cannot resample from " + inputSampleRate + " to " + outputSampleRate
+					+ "Hz with at most " + MAX_PHASES + " filter phases");
+		}
+		if (channels < 1) {
+			throw new IllegalArgumentException("channels must be positive");
+		}
+		int divisor = gcd(inputSampleRate, outputSampleRate);
+		this.up = outputSampleRate / divisor;
+		this.down = inputSampleRate / divisor;
+		this.channels = channels;
+
+		// the wings of Resampler's filter reach this far at unity, further when lowering the rate
+		int wing = highQuality ? 17 : 5;
+		double scale = Math.min(1.0, (double) up / down);
+		double halfLength = wing / scale;
+		// rounded up to even, so there are a multiple of four taps
+		int halfTaps = 2 * (int) Math.ceil(halfLength / 2);
+		this.taps = 2 * halfTaps;
+		this.bank = filterBank(up, taps, ROLLOFF * scale, halfLength);
+		this.startStep = down / up;
+		this.phaseStep = down % up;
+
+		this.input = new float[(taps + BLOCK_FRAMES) * channels];
+		this.output = new float[BLOCK_FRAMES * channels];
+		// the first output is centred on the first input frame
+		this.bufferedFrames = halfTaps - 1;
+	}
+
+	/**
+	 * @return true if the ratio of the rates reduces to at most
+	 *         {@link #MAX_PHASES} filter phases
+	 */
+	public static boolean isSupported(int inputSampleRate, int outputSampleRate) {
+		if (inputSampleRate <= 0 || outputSampleRate <= 0) {
+			return false;
+		}
+		return outputSampleRate / gcd(inputSampleRate, outputSampleRate) <= MAX_PHASES;
+	}
+
+	/**
+	 * @return the number of input frames on either side of an output frame
+	 *         the filter reaches, the delay before the first output while
+	 *         streaming
+	 */
+	public int getFilterWidth() {
+		return taps / 2;
+	}
+
+	/**
+	 * @return the output sample rate divided by the input sample rate
+	 */
+	public double getFactor() {
+		return (double) up / down;
+	}
+
+	/**
+	 * Process a batch of samples. Consumes whole frames, as many as the room
+	 * in the output buffer allows.
+	 *
+	 * @param inputBuffer  interleaved input samples
+	 * @param lastBatch    true if this is known to be the last batch of samples
+	 * @param outputBuffer resampled interleaved samples are put here
+	 * @return true once the last batch has been consumed and all its output
+	 *         produced
+	 */
+	public boolean process(final FloatBuffer inputBuffer, boolean lastBatch, final FloatBuffer outputBuffer) {
+		SampleBuffers sampleBuffers = new SampleBuffers() {
+			public int getInputBufferLength() {
+				return inputBuffer.remaining();
+			}
+
+			public int getOutputBufferLength() {
+				return outputBuffer.remaining();
+			}
+
+			public void produceInput(float[] array, int offset, int length) {
+				inputBuffer.get(array, offset, length);
+			}
+
+			public void consumeOutput(float[] array, int offset, int length) {
+				outputBuffer.put(array, offset, length);
+			}
+		};
+		return process(sampleBuffers, lastBatch);
+	}
+
+	/**
+	 * Process a batch of samples. Alternative interface if you prefer to work
+	 * with arrays.
+	 *
+	 * @param inBuffer        interleaved input samples
+	 * @param inBufferOffset  offset into inBuffer at which to start processing
+	 * @param inBufferLen     number of valid samples in inBuffer
+	 * @param lastBatch       pass true if this is the last batch of samples
+	 * @param outBuffer       array to hold the resampled data
+	 * @param outBufferOffset offset in the output buffer
+	 * @param outBufferLen    room in the output buffer
+	 * @return the number of samples consumed and generated
+	 */
+	public Resampler.Result process(float[] inBuffer, int inBufferOffset, int inBufferLen, boolean lastBatch,
+			float[] outBuffer, int outBufferOffset, int outBufferLen) {
+		FloatBuffer inputBuffer = FloatBuffer.wrap(inBuffer, inBufferOffset, inBufferLen);
+		FloatBuffer outputBuffer = FloatBuffer.wrap(outBuffer, outBufferOffset, outBufferLen);
+
+		process(inputBuffer, lastBatch, outputBuffer);
+
+		return new Resampler.Result(inputBuffer.position() - inBufferOffset,
+				outputBuffer.position() - outBufferOffset);
+	}
+
+	boolean process(SampleBuffers buffers, boolean lastBatch) {
+		while (true) {
+			int room = buffers.getOutputBufferLength() / channels;
+			if (room == 0) {
+				break;
+			}
+			int frames = filter(Math.min(room, BLOCK_FRAMES));
+			if (frames > 0) {
+				buffers.consumeOutput(output, 0, frames * channels);
+				continue;
+			}
+
+			// the buffered input is used up, make room for more
+			System.arraycopy(input, start * channels, input, 0, (bufferedFrames - start) * channels);
+			bufferedFrames -= start;
+			start = 0;
+
+			int available = buffers.getInputBufferLength() / channels;
+			if (available > 0) {
+				int length = Math.min(available, input.length / channels - bufferedFrames);
+				buffers.produceInput(input, bufferedFrames * channels, length * channels);
+				bufferedFrames += length;
+				inputFrames += length;
+			} else if (lastBatch && !flushed) {
+				// silence after the end, so the filter reaches past the last frame
+				int padding = taps / 2;
+				for (int i = bufferedFrames * channels; i < (bufferedFrames + padding) * channels; i++) {
+					input[i] = 0;
+				}
+				bufferedFrames += padding;
+				flushed = true;
+			} else {
+				break;
+			}
+		}
+		return flushed && outputFrames == totalOutputFrames();
+	}
+
+	/**
+	 * Filters at most {@code maxFrames} frames into the output buffer.
+	 */
+	private int filter(int maxFrames) {
+		int limit = flushed ? (int) Math.min(maxFrames, totalOutputFrames() - outputFrames) : maxFrames;
+		int frames = 0;
+		while (frames < limit && start + taps <= bufferedFrames) {
+			int coefficients = phase * taps;
+			if (channels == 1) {
+				// four independent sums keep the multipliers busy, taps is a multiple of four
+				float sum0 = 0;
+				float sum1 = 0;
+				float sum2 = 0;
+				float sum3 = 0;
+				for (int k = 0; k < taps; k += 4) {
+					int c = coefficients + k;
+					int x = start + k;
+					sum0 += bank[c] * input[x];
+					sum1 += bank[c + 1] * input[x + 1];
+					sum2 += bank[c + 2] * input[x + 2];
+					sum3 += bank[c + 3] * input[x + 3];
+				}
+				output[frames] = (sum0 + sum1) + (sum2 + sum3);
+			} else {
+				// summed in the same order as a mono stream, so every channel gets the same samples
+				int stride = 4 * channels;
+				for (int channel = 0; channel < channels; channel++) {
+					float sum0 = 0;
+					float sum1 = 0;
+					float sum2 = 0;
+					float sum3 = 0;
+					int x = start * channels + channel;
+					for (int k = 0; k < taps; k += 4) {
+						int c = coefficients + k;
+						sum0 += bank[c] * input[x];
+						sum1 += bank[c + 1] * input[x + channels];
+						sum2 += bank[c + 2] * input[x + 2 * channels];
+						sum3 += bank[c + 3] * input[x + 3 * channels];
+						x += stride;
+					}
+					output[frames * channels + channel] = (sum0 + sum1) + (sum2 + sum3);
+				}
+			}
+			frames++;
+
+			start += startStep;
+			phase += phaseStep;
+			if (phase >= up) {
+				phase -= up;
+				start++;
+			}
+		}
+		outputFrames += frames;
+		return frames;
+	}
+
+	private long totalOutputFrames() {
+		return (inputFrames * up + down - 1) / down;
+	}
+
+	/**
+	 * Returns the coefficients of all phases, phase after phase. Tap k of
+	 * phase p weighs the input frame at {@code taps / 2 - 1 - k + p / up}
+	 * frames before the output, so each phase is a dot product with the input
+	 * in order. Every phase is normalised to unity gain at DC.
+	 */
+	private static float[] filterBank(int up, int taps, double cutoff, double halfLength) {
+		String key = up + "/" + taps + "/" + cutoff;
+		float[] bank = FILTER_BANKS.get(key);
+		if (bank == null) {
+			bank = new float[up * taps];
+			double windowScale = 1.0 / FilterKit.Izero(BETA);
+			for (int p = 0; p < up; p++) {
+				double sum = 0;
+				double[] phaseCoefficients = new double[taps];
+				for (int k = 0; k < taps; k++) {
+					double t = taps / 2 - 1 - k + (double) p / up;
+					double r = t / halfLength;
+					double value = 0;
+					if (Math.abs(r) < 1) {
+						double x = Math.PI * cutoff * t;
+						double sinc = x == 0 ? 1 : Math.sin(x) / x;
+						value = cutoff * sinc * FilterKit.Izero(BETA * Math.sqrt(1 - r * r)) * windowScale;
+					}
+					phaseCoefficients[k] = value;
+					sum += value;
+				}
+				for (int k = 0; k < taps; k++) {
+					bank[p * taps + k] = (float) (phaseCoefficients[k] / sum);
+				}
+			}
+			FILTER_BANKS.putIfAbsent(key, bank);
+		}
+		return bank;
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int remainder = a % b;
+			a = b;
+			b = remainder;
+		}
+		return a;
+	}
+}
@@ -23,8 +23,10 @@
 
 package be.tarsos.dsp.resample;
 
+import java.util.Arrays;
+
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 
 /**
@@ -33,10 +35,13 @@ import be.tarsos.dsp.AudioProcessor;
  * Together with the time stretcher this can be used for pitch shifting.
  * @author Joren Six
  */
-public class RateTransposer implements AudioProcessor {
+public class RateTransposer implements MutatingAudioProcessor {
 
 	private double factor;
     private Resampler r;
+	// only set while converting between two fixed sample rates
+	private PolyphaseResampler polyphase;
+	private float[] converted = new float[0];
     
 	/**
 	 * Create a new sample rate transposer. The factor determines the new sample
@@ -58,13 +63,55 @@ public class RateTransposer implements AudioProcessor {
 		r= new Resampler(false,0.1,4.0);
 	}
 	
+	/**
+	 * Create a sample rate transposer between two fixed sample rates, e.g.
+	 * from 48kHz to 44.1kHz. When the ratio of the rates allows it a
+	 * {@link PolyphaseResampler} with precomputed filter phases does the
+	 * work, which is considerably faster than interpolating the filter for
+	 * every sample.
+	 * 
+	 * @param sourceSampleRate
+	 *            The sample rate of the incoming audio.
+	 * @param targetSampleRate
+	 *            The sample rate to convert to.
+	 */
+	public RateTransposer(int sourceSampleRate, int targetSampleRate){
+		this((double) targetSampleRate / sourceSampleRate);
+		if (PolyphaseResampler.isSupported(sourceSampleRate, targetSampleRate)) {
+			polyphase = new PolyphaseResampler(sourceSampleRate, targetSampleRate, false);
+		}
+	}
+	
+	/**
+	 * Changes the factor. A transposer created for two fixed sample rates
+	 * continues with the interpolating resampler.
+	 * 
+	 * @param tempo The new factor.
+	 */
 	public void setFactor(double tempo){
 		this.factor = tempo;
+		this.polyphase = null;
 	}
 	
 	@Override
 	public boolean process(AudioEvent audioEvent) {
 		float[] src = audioEvent.getFloatBuffer();
+		if (polyphase != null) {
+			// the polyphase filter lags by its width, so the number of samples per block varies
+			int length = 0;
+			int consumed = 0;
+			while (consumed < src.length) {
+				if (converted.length - length < polyphase.getFilterWidth()) {
+					converted = Arrays.copyOf(converted, (int) (src.length * factor) + 2 * polyphase.getFilterWidth() + length);
+				}
+				Resampler.Result result = polyphase.process(src, consumed, src.length - consumed, false, converted, length, converted.length - length);
+				consumed += result.inputSamplesConsumed;
+				length += result.outputSamplesGenerated;
+			}
+			audioEvent.setFloatBuffer(Arrays.copyOf(converted, length));
+			audioEvent.setOverlap((int) (audioEvent.getOverlap() * factor));
+			return true;
+		}
 		//Creation of float array in loop could be prevented if src.length is known beforehand...
 		//Possible optimization is to instantiate it outside the loop and get a pointer to the 
 		//array here, in the process method method.
@@ -25,7 +25,7 @@ package be.tarsos.dsp.resample;
 
 import be.tarsos.dsp.AudioDispatcher;
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 /**
  * Currently not working sample rate transposer, works only for integer factors. 
@@ -35,7 +35,7 @@ import be.tarsos.dsp.AudioProcessor;
  * @author Joren Six
  * @author Olli Parviainen
  */
-public class SoundTouchRateTransposer implements AudioProcessor {
+public class SoundTouchRateTransposer implements MutatingAudioProcessor {
 
 	private double rate;
 	int slopeCount;
@@ -24,12 +24,12 @@
 package be.tarsos.dsp.synthesis;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
 /**
  * A low frequency oscillator to change the amplitude of a signal.
  */
-public class AmplitudeLFO implements AudioProcessor {
+public class AmplitudeLFO implements MutatingAudioProcessor {
 	
 	private double frequency;
 	private double scaleParameter;
@@ -24,9 +24,9 @@
 package be.tarsos.dsp.synthesis;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
-public class SineGenerator implements AudioProcessor{
+public class SineGenerator implements MutatingAudioProcessor{
 	
 	private double gain;
 	private double frequency;
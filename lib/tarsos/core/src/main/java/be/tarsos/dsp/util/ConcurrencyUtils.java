@@ -59,20 +59,30 @@ package be.tarsos.dsp.util;
 
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
 
 /**
  * Concurrency utilities.
+ * <p>
+ * Large transforms are split over the threads of an executor. By default that
+ * is a fork/join pool of daemon threads with one thread per processor, shared
+ * by every transform. An application that already runs work in parallel can
+ * hand its own executor to {@link #setExecutor(ExecutorService)}, or keep
+ * every transform on the calling thread with
+ * {@link #setParallelTransforms(boolean)}.
+ * </p>
  * 
  * @author Piotr Wendykier (piotr.wendykier@gmail.com)
  */
 public class ConcurrencyUtils {
     /**
-     * Thread pool.
+     * Executor set by the application, null for the default pool.
      */
-    private static final ExecutorService THREAD_POOL = Executors.newCachedThreadPool(new CustomThreadFactory(new CustomExceptionHandler()));
+    private static volatile ExecutorService executor;
+
+    private static volatile boolean parallelTransforms = true;
 
     private static int THREADS_BEGIN_N_1D_FFT_2THREADS = 8192;
 
@@ -82,7 +92,7 @@ public class ConcurrencyUtils {
 
     private static int THREADS_BEGIN_N_3D = 65536;
 
-    private static int NTHREADS = prevPow2(getNumberOfProcessors());
+    private static volatile int NTHREADS = prevPow2(getNumberOfProcessors());
 
     private ConcurrencyUtils() {
 
@@ -95,21 +105,18 @@ public class ConcurrencyUtils {
 
     }
 
-    private static class CustomThreadFactory implements ThreadFactory {
-        private static final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
-
-        private final Thread.UncaughtExceptionHandler handler;
-
-        CustomThreadFactory(Thread.UncaughtExceptionHandler handler) {
-            this.handler = handler;
-        }
-
-        public Thread newThread(Runnable r) {
-            Thread t = defaultFactory.newThread(r);
-            t.setUncaughtExceptionHandler(handler);
-            return t;
-        }
-    };
+    /**
+     * The default pool, only created when a transform needs it.
+     */
+    private static class DefaultPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool(getNumberOfProcessors(), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("tarsos-fft-" + thread.getPoolIndex());
+                return thread;
+            }
+        }, new CustomExceptionHandler(), false);
+    }
 
     /**
      * Returns the number of available processors.
@@ -121,12 +128,43 @@ public class ConcurrencyUtils {
     }
 
     /**
-     * Returns the current number of threads.
+     * Returns the current number of threads, one when transforms are not
+     * parallelized.
      * 
      * @return the current number of threads.
      */
     public static int getNumberOfThreads() {
-        return NTHREADS;
+        return parallelTransforms ? NTHREADS : 1;
+    }
+
+    /**
+     * Allows or forbids splitting a transform over several threads. Forbid it
+     * when transforms already run in parallel, e.g. one per file, to avoid
+     * more runnable threads than processors.
+     * 
+     * @param parallel false to run every transform on the calling thread.
+     */
+    public static void setParallelTransforms(boolean parallel) {
+        parallelTransforms = parallel;
+    }
+
+    /**
+     * @return false if every transform runs on the calling thread.
+     */
+    public static boolean isParallelTransforms() {
+        return parallelTransforms;
+    }
+
+    /**
+     * Sets the executor parts of a transform are submitted to. The caller
+     * owns the executor and shuts it down. The calling thread waits for the
+     * parts, so a bounded executor must not be the one the transforms are
+     * called from unless it is a fork/join pool, which helps while it waits.
+     * 
+     * @param executorService the executor to use, null for the default pool.
+     */
+    public static void setExecutor(ExecutorService executorService) {
+        executor = executorService;
     }
 
     /**
@@ -308,7 +346,11 @@ public class ConcurrencyUtils {
      * @return a Future representing the task
      */
     public static Future<?> submit(Runnable task) {
-        return THREAD_POOL.submit(task);
+        ExecutorService executorService = executor;
+        if (executorService == null) {
+            executorService = DefaultPool.POOL;
+        }
+        return executorService.submit(task);
     }
 
     /**
@@ -66,6 +66,11 @@ public class BlackmanWindow extends WindowFunction {
 		this(0.16f);
 	}
 
+	@Override
+	protected Object getShapeKey() {
+		return getClass().getName() + ":" + alpha;
+	}
+
   protected float value(int length, int index){
       float a0 = (1 - this.alpha) / 2f;
       float a1 = 0.5f;
@@ -29,6 +29,11 @@ package be.tarsos.dsp.util.fft;
  * Wrapper for calling a hopefully Fast Fourier transform. Makes it easy to
  * switch FFT algorithm with minimal overhead.
  * Support for window functions is also present.
+ * <p>
+ * The tables of the transform and the window curve come from an
+ * {@link FFTPlan} that is shared with every other FFT of the same size and
+ * window shape, so creating an FFT is cheap once a plan exists.
+ * </p>
  * 
  * @author Joren Six
  */
@@ -58,13 +63,11 @@ public class FFT {
 	 * arning: the window is not applied in reverse when a backwards transform is requested.
 	 */
 	public FFT(final int size, final WindowFunction windowFunction){
-		fft = new FloatFFT(size);
+		FFTPlan plan = FFTPlan.get(size, windowFunction);
+		fft = plan.getTransform();
 		fftSize = size;
 		this.windowFunction = windowFunction;
-		if(windowFunction==null)
-			window = null;
-		else
-		   window = windowFunction.generateCurve(size);
+		window = plan.getWindow();
 	}
 
 	/**
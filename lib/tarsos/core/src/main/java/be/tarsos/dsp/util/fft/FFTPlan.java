@@ -0,0 +1,135 @@
+/*
+*      _______                       _____   _____ _____
+*     |__   __|                     |  __ \ / ____|  __ \
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|
+*
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+*
+*/
+
+
+package be.tarsos.dsp.util.fft;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The tables an {@link FFT} of a certain size and window needs: the twiddle
+ * factors and bit reversal indexes of a {@link FloatFFT} and the window curve.
+ * Plans are created once per size and window shape (see
+ * {@link WindowFunction#getShapeKey()}) and shared by every FFT, on any
+ * thread. The tables are never written after the plan is created and the
+ * transform keeps its work arrays per thread.
+ * <p>
+ * Plans are kept for the lifetime of the class loader, which is fine for the
+ * handful of sizes an application uses.
+ * </p>
+ */
+public final class FFTPlan {
+
+	private static final ConcurrentMap<Key, FFTPlan> PLANS = new ConcurrentHashMap<Key, FFTPlan>();
+
+	private final int size;
+
+	private final FloatFFT transform;
+
+	/**
+	 * The window curve, null without a window. Shared, never written.
+	 */
+	private final float[] window;
+
+	private FFTPlan(int size, WindowFunction windowFunction) {
+		this.size = size;
+		if (windowFunction == null) {
+			transform = new FloatFFT(size);
+			window = null;
+		} else {
+			// every window shape of a size shares the tables of the transform
+			transform = get(size, null).getTransform();
+			window = windowFunction.generateCurve(size);
+		}
+	}
+
+	/**
+	 * Returns the plan for a size and window, creating it the first time.
+	 * 
+	 * @param size
+	 *            The size of the fft.
+	 * @param windowFunction
+	 *            The window applied before a forward transform, or null.
+	 * @return The shared plan.
+	 */
+	public static FFTPlan get(int size, WindowFunction windowFunction) {
+		Key key = new Key(size, windowFunction == null ? null : windowFunction.getShapeKey());
+		FFTPlan plan = PLANS.get(key);
+		if (plan == null) {
+			// two threads may both create the plan, only one is kept
+			plan = new FFTPlan(size, windowFunction);
+			FFTPlan existing = PLANS.putIfAbsent(key, plan);
+			if (existing != null) {
+				plan = existing;
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * @return The size of the fft.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return The transform, safe to use from many threads at once.
+	 */
+	public FloatFFT getTransform() {
+		return transform;
+	}
+
+	/**
+	 * @return The window curve, shared by every user of the plan and not to
+	 *         be modified, or null without a window.
+	 */
+	float[] getWindow() {
+		return window;
+	}
+
+	private static final class Key {
+		private final int size;
+		private final Object shape;
+
+		Key(int size, Object shape) {
+			this.size = size;
+			this.shape = shape;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return size == key.size && (shape == null ? key.shape == null : shape.equals(key.shape));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * size + (shape == null ? 0 : shape.hashCode());
+		}
+	}
+}
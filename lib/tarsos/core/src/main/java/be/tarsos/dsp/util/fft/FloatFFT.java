@@ -58,6 +58,7 @@
 
 package be.tarsos.dsp.util.fft;
 
+import java.util.Arrays;
 import java.util.concurrent.Future;
 
 import be.tarsos.dsp.util.ConcurrencyUtils;
@@ -105,6 +106,13 @@ public class FloatFFT {
 
     private Plans plan;
 
+    /**
+     * Work array of the mixed radix and Bluestein plans, kept per thread so
+     * one instance can transform on many threads at once. The tables above
+     * are only written by the constructor.
+     */
+    private final ThreadLocal<float[]> scratch = new ThreadLocal<float[]>();
+
     private static final int[] factors = { 4, 2, 3, 5 };
 
     private static final float PI = 3.14159265358979311599796346854418516f;
@@ -735,6 +743,24 @@ public class FloatFFT {
         }
     }
 
+    /**
+     * Takes the work array of this thread, cleared, or a new one if it does
+     * not fit or is in use by a transform further up the stack.
+     */
+    private float[] takeScratch(int length) {
+        float[] buffer = scratch.get();
+        if (buffer == null || buffer.length != length) {
+            return new float[length];
+        }
+        scratch.set(null);
+        Arrays.fill(buffer, 0);
+        return buffer;
+    }
+
+    private void releaseScratch(float[] buffer) {
+        scratch.set(buffer);
+    }
+
     private static int getReminder(int n, int factors[]) {
         int reminder = n;
 
@@ -1129,7 +1155,12 @@ public class FloatFFT {
     }
 
     private void bluestein_complex(final float[] a, final int offa, final int isign) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
+        bluestein_complex(a, offa, isign, ak);
+        releaseScratch(ak);
+    }
+
+    private void bluestein_complex(final float[] a, final int offa, final int isign, final float[] ak) {
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1293,7 +1324,12 @@ public class FloatFFT {
     }
 
     private void bluestein_real_full(final float[] a, final int offa, final int isign) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
+        bluestein_real_full(a, offa, isign, ak);
+        releaseScratch(ak);
+    }
+
+    private void bluestein_real_full(final float[] a, final int offa, final int isign, final float[] ak) {
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1446,7 +1482,12 @@ public class FloatFFT {
     }
 
     private void bluestein_real_forward(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
+        bluestein_real_forward(a, offa, ak);
+        releaseScratch(ak);
+    }
+
+    private void bluestein_real_forward(final float[] a, final int offa, final float[] ak) {
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1539,7 +1580,12 @@ public class FloatFFT {
     }
 
     private void bluestein_real_inverse(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
+        bluestein_real_inverse(a, offa, ak);
+        releaseScratch(ak);
+    }
+
+    private void bluestein_real_inverse(final float[] a, final int offa, final float[] ak) {
         if (n % 2 == 0) {
             ak[0] = a[offa] * bk1[0];
             ak[1] = a[offa] * bk1[1];
@@ -1660,7 +1706,12 @@ public class FloatFFT {
     }
 
     private void bluestein_real_inverse2(final float[] a, final int offa) {
-        final float[] ak = new float[2 * nBluestein];
+        final float[] ak = takeScratch(2 * nBluestein);
+        bluestein_real_inverse2(a, offa, ak);
+        releaseScratch(ak);
+    }
+
+    private void bluestein_real_inverse2(final float[] a, final int offa, final float[] ak) {
         int nthreads = ConcurrencyUtils.getNumberOfThreads();
         if ((nthreads > 1) && (n > ConcurrencyUtils.getThreadsBeginN_1D_FFT_2Threads())) {
             nthreads = 2;
@@ -1755,11 +1806,16 @@ public class FloatFFT {
        rfftf1: further processing of Real forward FFT
       --------------------------------------------------------*/
     void rfftf(final float a[], final int offa) {
+        final float[] ch = takeScratch(n);
+        rfftf(a, offa, ch);
+        releaseScratch(ch);
+    }
+
+    private void rfftf(final float a[], final int offa, final float[] ch) {
         if (n == 1)
             return;
         int l1, l2, na, kh, nf, ip, iw, ido, idl1;
 
-        final float[] ch = new float[n];
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 1;
@@ -1825,11 +1881,16 @@ public class FloatFFT {
        rfftb1: further processing of Real backward FFT
       --------------------------------------------------------*/
     void rfftb(final float a[], final int offa) {
+        final float[] ch = takeScratch(n);
+        rfftb(a, offa, ch);
+        releaseScratch(ch);
+    }
+
+    private void rfftb(final float a[], final int offa, final float[] ch) {
         if (n == 1)
             return;
         int l1, l2, na, nf, ip, iw, ido, idl1;
 
-        float[] ch = new float[n];
         final int twon = 2 * n;
         nf = (int) wtable_r[1 + twon];
         na = 0;
@@ -3351,6 +3412,12 @@ public class FloatFFT {
        cfftf1: further processing of Complex forward FFT
       --------------------------------------------------------*/
     void cfftf(float a[], int offa, int isign) {
+        final float[] ch = takeScratch(2 * n);
+        cfftf(a, offa, isign, ch);
+        releaseScratch(ch);
+    }
+
+    private void cfftf(float a[], int offa, int isign, final float[] ch) {
         int idot;
         int l1, l2;
         int na, nf, ip, iw, ido, idl1;
@@ -3358,7 +3425,6 @@ public class FloatFFT {
         final int twon = 2 * n;
 
         int iw1, iw2;
-        float[] ch = new float[twon];
 
         iw1 = twon;
         iw2 = 4 * n;
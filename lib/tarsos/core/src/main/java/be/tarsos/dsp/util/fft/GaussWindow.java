@@ -71,6 +71,11 @@ public class GaussWindow extends WindowFunction {
 		this(0.25);
 	}
 
+	@Override
+	protected Object getShapeKey() {
+		return getClass().getName() + ":" + alpha;
+	}
+
 	protected float value(int length, int index) {
 		return (float) Math.pow(Math.E,	-0.5 * Math.pow((index - (length - 1) / (double) 2)	/ (this.alpha * (length - 1) / (double) 2),(double) 2));
 	}
@@ -118,6 +118,17 @@ public abstract class WindowFunction {
 		return samples;
 	}
 
+	/**
+	 * Identifies the shape of the curve for the plan cache of {@link FFT}:
+	 * windows with equal keys share one generated curve per length. Windows
+	 * with parameters that change the shape override this to include them.
+	 * 
+	 * @return An object that is equal for windows with the same shape.
+	 */
+	protected Object getShapeKey() {
+		return getClass();
+	}
+
 	/**
 	 * The value of the window function
 	 * @param length with the lengt of the window (in samples)
@@ -26,9 +26,9 @@ package be.tarsos.dsp.wavelet;
 import java.util.Arrays;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
-public class HaarWaveletCoder implements AudioProcessor{
+public class HaarWaveletCoder implements MutatingAudioProcessor{
 	
 	private final HaarWaveletTransform transform;
 	
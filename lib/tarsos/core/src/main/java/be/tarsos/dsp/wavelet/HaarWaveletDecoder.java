@@ -24,9 +24,9 @@
 package be.tarsos.dsp.wavelet;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
-public class HaarWaveletDecoder implements AudioProcessor{
+public class HaarWaveletDecoder implements MutatingAudioProcessor{
 	
 	private final HaarWaveletTransform transform;
 	
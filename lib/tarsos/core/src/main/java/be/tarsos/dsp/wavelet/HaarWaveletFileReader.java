@@ -28,9 +28,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
-public class HaarWaveletFileReader implements AudioProcessor {
+public class HaarWaveletFileReader implements MutatingAudioProcessor {
 
 	private final int compression;
 	private FileInputStream rawInputStream;
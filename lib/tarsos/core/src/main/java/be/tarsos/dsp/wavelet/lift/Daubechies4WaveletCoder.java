@@ -26,9 +26,9 @@ package be.tarsos.dsp.wavelet.lift;
 import java.util.Arrays;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
-public class Daubechies4WaveletCoder implements AudioProcessor {
+public class Daubechies4WaveletCoder implements MutatingAudioProcessor {
 
 	private final Daubechies4Wavelet transform;
 
@@ -24,9 +24,9 @@
 package be.tarsos.dsp.wavelet.lift;
 
 import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.MutatingAudioProcessor;
 
-public class Daubechies4WaveletDecoder implements AudioProcessor {
+public class Daubechies4WaveletDecoder implements MutatingAudioProcessor {
 
 	private final Daubechies4Wavelet transform;
 
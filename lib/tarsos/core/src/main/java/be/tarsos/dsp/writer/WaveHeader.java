@@ -165,7 +165,7 @@ public class WaveHeader {
     public int read(InputStream in) throws IOException {
         /* RIFF header */
         readId(in, "RIFF");
-        
+        readInt(in); // RIFF chunk size, implied by the data length
         readId(in, "WAVE");
 
         /* fmt chunk */
@@ -0,0 +1,84 @@
+/*
+*      _______                       _____   _____ _____  
+*     |__   __|                     |  __ \ / ____|  __ \ 
+*        | | __ _ _ __ ___  ___  ___| |  | | (___ | |__) |
+*        | |/ _` | '__/ __|/ _ \/ __| |  | |\___ \|  ___/ 
+*        | | (_| | |  \__ \ (_) \__ \ |__| |____) | |     
+*        |_|\__,_|_|  |___/\___/|___/_____/|_____/|_|     
+*                                                         
+* -------------------------------------------------------------
+*
+* TarsosDSP is developed by Joren Six at IPEM, University Ghent
+*  
+* -------------------------------------------------------------
+*
+*  Info: http://0110.be/tag/TarsosDSP
+*  Github: https://github.com/JorenSix/TarsosDSP
+*  Releases: http://0110.be/releases/TarsosDSP/
+*  
+*  TarsosDSP includes modified source code by various authors,
+*  for credits and info, see README.
+* 
+*/
+
+
+package be.tarsos.dsp.pitch;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * YIN difference function using the JDK Vector API. Every lag is reduced with
+ * fused multiply-adds over the widest vector shape of the CPU, using two
+ * independent accumulators to hide FMA latency. The summation order differs
+ * from {@link YinDifferenceFunction#SCALAR}, so results agree up to float
+ * rounding.
+ * <p>
+ * Compiled for Java 17 with <code>--add-modules jdk.incubator.vector</code>
+ * and only loaded through {@link YinDifferenceFunction#getDefault()}.
+ * </p>
+ */
+public final class VectorizedYinDifference implements YinDifferenceFunction {
+
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public void difference(final float[] audioBuffer, final float[] yinBuffer) {
+		final int length = yinBuffer.length;
+		final int lanes = SPECIES.length();
+		final int unrolledBound = length - 2 * lanes + 1;
+		final int bound = SPECIES.loopBound(length);
+
+		yinBuffer[0] = 0;
+		for (int tau = 1; tau < length; tau++) {
+			FloatVector sum0 = FloatVector.zero(SPECIES);
+			FloatVector sum1 = FloatVector.zero(SPECIES);
+			int index = 0;
+			for (; index < unrolledBound; index += 2 * lanes) {
+				FloatVector delta0 = FloatVector.fromArray(SPECIES, audioBuffer, index)
+						.sub(FloatVector.fromArray(SPECIES, audioBuffer, index + tau));
+				FloatVector delta1 = FloatVector.fromArray(SPECIES, audioBuffer, index + lanes)
+						.sub(FloatVector.fromArray(SPECIES, audioBuffer, index + lanes + tau));
+				sum0 = delta0.fma(delta0, sum0);
+				sum1 = delta1.fma(delta1, sum1);
+			}
+			for (; index < bound; index += lanes) {
+				FloatVector delta = FloatVector.fromArray(SPECIES, audioBuffer, index)
+						.sub(FloatVector.fromArray(SPECIES, audioBuffer, index + tau));
+				sum0 = delta.fma(delta, sum0);
+			}
+			float sum = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+			for (; index < length; index++) {
+				float delta = audioBuffer[index] - audioBuffer[index + tau];
+				sum += delta * delta;
+			}
+			yinBuffer[tau] = sum;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "vectorized (" + SPECIES + ")";
+	}
+}
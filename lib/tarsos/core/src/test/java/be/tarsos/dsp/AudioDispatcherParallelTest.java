@@ -0,0 +1,180 @@
+package be.tarsos.dsp;
+
+import static be.tarsos.dsp.TestAudio.noise;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import be.tarsos.dsp.filters.LowPassFS;
+import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+
+/**
+ * Checks that {@link AudioDispatcher#setParallelProcessing(ExecutorService)}
+ * gives every processor the same blocks as a sequential run, when read-only
+ * processors are mixed with {@link MutatingAudioProcessor}s, and that a stop
+ * from within a parallel stage ends the run after that block.
+ */
+public class AudioDispatcherParallelTest {
+
+	private static final int SAMPLE_RATE = 44100;
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+	@After
+	public void shutDownExecutor() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testParallelRunMatchesSequentialRun() throws UnsupportedAudioFileException {
+		float[] audio = noise(SAMPLE_RATE * 3 + 321);
+		for (int[] pair : new int[][] { { 2048, 1024 }, { 1024, 0 }, { 512, 384 } }) {
+			List<Recorder> sequential = runChain(audio, pair[0], pair[1], null);
+			List<Recorder> parallel = runChain(audio, pair[0], pair[1], executor);
+			assertEquals(sequential.size(), parallel.size());
+			for (int i = 0; i < sequential.size(); i++) {
+				String name = pair[0] + "/" + pair[1] + ", recorder " + i;
+				List<float[]> expected = sequential.get(i).blocks;
+				List<float[]> actual = parallel.get(i).blocks;
+				assertFalse(name, expected.isEmpty());
+				assertEquals(name, expected.size(), actual.size());
+				for (int block = 0; block < expected.size(); block++) {
+					assertArrayEquals(name + ", block " + block, expected.get(block), actual.get(block), 0);
+				}
+				assertEquals(name, sequential.get(i).timeStamps, parallel.get(i).timeStamps);
+				assertEquals(name, 1, parallel.get(i).finished);
+			}
+		}
+	}
+
+	@Test
+	public void testStopInParallelStageEndsRunAfterBlock() throws UnsupportedAudioFileException {
+		final int stopBlock = 5;
+		final AudioDispatcher dispatcher = AudioDispatcherFactory.fromFloatArray(noise(SAMPLE_RATE), SAMPLE_RATE, 1024, 512);
+		dispatcher.setParallelProcessing(executor);
+
+		// the first processor of a stage runs on the dispatching thread, the stop comes from the executor
+		Recorder slow = new Recorder() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				if (blocks.size() == stopBlock) {
+					sleep(50);
+				}
+				return super.process(audioEvent);
+			}
+		};
+		Recorder stopping = new Recorder() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				boolean proceed = super.process(audioEvent);
+				if (blocks.size() == stopBlock + 1) {
+					dispatcher.stop();
+				}
+				return proceed;
+			}
+		};
+		Recorder sibling = new Recorder();
+		Recorder next = new Recorder();
+
+		dispatcher.addAudioProcessor(slow);
+		dispatcher.addAudioProcessor(stopping);
+		dispatcher.addAudioProcessor(sibling);
+		dispatcher.addAudioProcessor(new GainProcessor(0.5));
+		dispatcher.addAudioProcessor(next);
+		dispatcher.run();
+
+		for (Recorder recorder : new Recorder[] { slow, stopping, sibling, next }) {
+			assertEquals(stopBlock + 1, recorder.blocks.size());
+			assertEquals(1, recorder.finished);
+		}
+		// the stage finished the block before processingFinished was called
+		assertFalse(slow.processedAfterFinish);
+		assertFalse(sibling.processedAfterFinish);
+		assertTrue(dispatcher.isStopped());
+	}
+
+	/**
+	 * Runs reader, reader, gain, reader, gate, low pass, reader, reader: three
+	 * parallel stages with mutating processors in between. The gate skips the
+	 * rest of the chain for every third block.
+	 */
+	private static List<Recorder> runChain(float[] audio, int bufferSize, int overlap, ExecutorService executor)
+			throws UnsupportedAudioFileException {
+		AudioDispatcher dispatcher = AudioDispatcherFactory.fromFloatArray(audio, SAMPLE_RATE, bufferSize, overlap);
+		dispatcher.setParallelProcessing(executor);
+		List<Recorder> recorders = new ArrayList<Recorder>();
+		for (int i = 0; i < 5; i++) {
+			recorders.add(new Recorder());
+		}
+		dispatcher.addAudioProcessor(recorders.get(0));
+		dispatcher.addAudioProcessor(recorders.get(1));
+		dispatcher.addAudioProcessor(new GainProcessor(0.8));
+		dispatcher.addAudioProcessor(recorders.get(2));
+		dispatcher.addAudioProcessor(new Gate());
+		dispatcher.addAudioProcessor(new LowPassFS(2000, SAMPLE_RATE));
+		dispatcher.addAudioProcessor(recorders.get(3));
+		dispatcher.addAudioProcessor(recorders.get(4));
+		dispatcher.run();
+		return recorders;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Only reads the block: keeps a copy of it and its time stamp.
+	 */
+	private static class Recorder implements AudioProcessor {
+		final List<float[]> blocks = new ArrayList<float[]>();
+		final List<Double> timeStamps = new ArrayList<Double>();
+		volatile int finished;
+		volatile boolean processedAfterFinish;
+
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			if (finished > 0) {
+				processedAfterFinish = true;
+			}
+			blocks.add(audioEvent.getFloatBuffer().clone());
+			timeStamps.add(audioEvent.getTimeStamp());
+			if (finished > 0) {
+				processedAfterFinish = true;
+			}
+			return true;
+		}
+
+		@Override
+		public void processingFinished() {
+			finished++;
+		}
+	}
+
+	private static class Gate implements MutatingAudioProcessor {
+		private int block;
+
+		@Override
+		public boolean process(AudioEvent audioEvent) {
+			return block++ % 3 != 2;
+		}
+
+		@Override
+		public void processingFinished() {
+		}
+	}
+}
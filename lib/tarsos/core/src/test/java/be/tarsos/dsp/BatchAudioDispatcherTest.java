@@ -0,0 +1,141 @@
+package be.tarsos.dsp;
+
+import static be.tarsos.dsp.TestAudio.encode;
+import static be.tarsos.dsp.TestAudio.noise;
+import static be.tarsos.dsp.TestAudio.stream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Checks that the frames of every {@link FrameBatch} are the blocks an
+ * {@link AudioDispatcher} with the same frame size and overlap sends: the same
+ * number of frames, the same samples including the overlap carried from one
+ * batch to the next and the zero padded last frame, and the same time stamps.
+ */
+public class BatchAudioDispatcherTest {
+
+	private static final TarsosDSPAudioFormat FORMAT = TestAudio.pcm16(44100);
+
+	private static final int[][] FRAME_AND_OVERLAP = { { 2048, 1984 }, { 1024, 512 }, { 512, 0 }, { 1000, 999 } };
+
+	@Test
+	public void testFramesMatchAudioDispatcher() {
+		// lengths around one frame and ones that are not a whole number of hops
+		int[] lengths = { 0, 1, 511, 1000, 2047, 2048, 2049, 44100 + 123 };
+		for (int length : lengths) {
+			byte[] bytes = encode(noise(length), FORMAT);
+			for (int[] pair : FRAME_AND_OVERLAP) {
+				List<Frame> expected = dispatch(bytes, pair[0], pair[1]);
+				for (int framesPerBatch : new int[] { 1, 2, 7, 64, 1000 }) {
+					String name = length + " samples, " + pair[0] + "/" + pair[1] + ", " + framesPerBatch + " per batch";
+					BatchAudioDispatcher dispatcher = new BatchAudioDispatcher(stream(bytes, FORMAT), pair[0], pair[1], framesPerBatch);
+					List<Frame> actual = dispatchBatches(dispatcher);
+
+					assertEquals(name, expected.size(), actual.size());
+					assertEquals(name, expected.size(), dispatcher.getFramesProcessed());
+					for (int i = 0; i < expected.size(); i++) {
+						expected.get(i).assertEquals(name + ", frame " + i, actual.get(i));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testAudioEventOfFrameMatchesAudioDispatcher() {
+		byte[] bytes = encode(noise(10000), FORMAT);
+		List<Frame> expected = dispatch(bytes, 2048, 1984);
+		BatchAudioDispatcher dispatcher = new BatchAudioDispatcher(stream(bytes, FORMAT), 2048, 1984, 16);
+		final List<Frame> actual = new ArrayList<Frame>();
+		dispatcher.addBatchProcessor(new BatchAudioProcessor() {
+			@Override
+			public boolean processBatch(FrameBatch batch) {
+				for (int frame = 0; frame < batch.getFrameCount(); frame++) {
+					actual.add(new Frame(batch.getAudioEvent(frame)));
+				}
+				return true;
+			}
+
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			expected.get(i).assertEquals("frame " + i, actual.get(i));
+			assertEquals("frame " + i, expected.get(i).overlap, actual.get(i).overlap);
+		}
+	}
+
+	private static List<Frame> dispatch(byte[] bytes, int frameSize, int overlap) {
+		final List<Frame> frames = new ArrayList<Frame>();
+		AudioDispatcher dispatcher = new AudioDispatcher(stream(bytes, FORMAT), frameSize, overlap);
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				frames.add(new Frame(audioEvent));
+				return true;
+			}
+
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		return frames;
+	}
+
+	private static List<Frame> dispatchBatches(BatchAudioDispatcher dispatcher) {
+		final List<Frame> frames = new ArrayList<Frame>();
+		dispatcher.addBatchProcessor(new BatchAudioProcessor() {
+			@Override
+			public boolean processBatch(FrameBatch batch) {
+				for (int frame = 0; frame < batch.getFrameCount(); frame++) {
+					float[] samples = new float[batch.getFrameSize()];
+					batch.copyFrame(frame, samples);
+					frames.add(new Frame(samples, batch.getTimeStamp(frame), batch.getSamplesProcessed(frame), -1));
+				}
+				return true;
+			}
+
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		return frames;
+	}
+
+	private static final class Frame {
+		final float[] samples;
+		final double timeStamp;
+		final long samplesProcessed;
+		final int overlap;
+
+		Frame(AudioEvent event) {
+			this(event.getFloatBuffer().clone(), event.getTimeStamp(), event.getSamplesProcessed(), event.getOverlap());
+		}
+
+		Frame(float[] samples, double timeStamp, long samplesProcessed, int overlap) {
+			this.samples = samples;
+			this.timeStamp = timeStamp;
+			this.samplesProcessed = samplesProcessed;
+			this.overlap = overlap;
+		}
+
+		void assertEquals(String message, Frame actual) {
+			assertArrayEquals(message, samples, actual.samples, 0);
+			org.junit.Assert.assertEquals(message, timeStamp, actual.timeStamp, 0);
+			org.junit.Assert.assertEquals(message, samplesProcessed, actual.samplesProcessed);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package be.tarsos.dsp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.Test;
+
+import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+import be.tarsos.dsp.pitch.Yin;
+
+/**
+ * Checks the {@link PhaseVocoderPitchShifter}: a factor of one returns the
+ * input delayed by the overlap, up to close to the Nyquist frequency; the
+ * sine and cosine tables stay within 5e-7; and a shifted sine has the
+ * shifted pitch, with and without the tables.
+ */
+public class PhaseVocoderPitchShifterTest {
+
+	private static final int SAMPLE_RATE = 44100;
+	private static final int SIZE = 1024;
+
+	@Test
+	public void testFactorOneReturnsInputDelayedByOverlap() throws UnsupportedAudioFileException {
+		float[] input = sines(SAMPLE_RATE, 220, 1375.3, 5000, 12000.7);
+		for (int overlap : new int[] { 768, 896 }) {
+			for (boolean polarLookup : new boolean[] { false, true }) {
+				float[] output = shift(input, 1, overlap, polarLookup);
+				// the first and last frames miss overlapping windows
+				double error = maxError(input, output, overlap, SIZE, input.length - SIZE);
+				assertTrue(overlap + ", lookup " + polarLookup + ": " + error, error < 1e-4);
+			}
+		}
+	}
+
+	@Test
+	public void testFactorOneKeepsFrequenciesUpToNyquist() throws UnsupportedAudioFileException {
+		// the bins just below the Nyquist frequency are resynthesised as well
+		for (double frequency : new double[] { 15000, 19000.5, 21000 }) {
+			float[] input = sines(SAMPLE_RATE, frequency);
+			float[] output = shift(input, 1, 768, false);
+			double inputRms = rms(input, SIZE, input.length - 2 * SIZE);
+			double outputRms = rms(output, SIZE + 768, input.length - 2 * SIZE + 768);
+			assertEquals(frequency + " Hz", inputRms, outputRms, inputRms * 0.01);
+			double error = maxError(input, output, 768, SIZE, input.length - SIZE);
+			assertTrue(frequency + " Hz: " + error, error < 1e-4);
+		}
+	}
+
+	@Test
+	public void testLookupTablesWithinTolerance() {
+		float[] complex = new float[2];
+		double maxError = 0;
+		int steps = 1000000;
+		for (int i = 0; i <= steps; i++) {
+			double phase = -Math.PI + 2 * Math.PI * i / steps;
+			PhaseVocoderPitchShifter.polarLookup(1, phase, complex, 0);
+			maxError = Math.max(maxError, Math.abs(complex[0] - Math.cos(phase)));
+			maxError = Math.max(maxError, Math.abs(complex[1] - Math.sin(phase)));
+		}
+		assertTrue(String.valueOf(maxError), maxError < 5e-7);
+	}
+
+	@Test
+	public void testShiftedSineHasShiftedPitch() throws UnsupportedAudioFileException {
+		double frequency = 440;
+		for (double factor : new double[] { 0.75, 1.5, 2 }) {
+			for (boolean polarLookup : new boolean[] { false, true }) {
+				float[] output = shift(sines(SAMPLE_RATE, frequency), factor, 768, polarLookup);
+				float[] window = new float[2048];
+				System.arraycopy(output, output.length / 2, window, 0, window.length);
+				float pitch = new Yin(SAMPLE_RATE, window.length).getPitch(window).getPitch();
+				String name = factor + ", lookup " + polarLookup;
+				assertEquals(name, frequency * factor, pitch, frequency * factor * 0.01);
+			}
+		}
+	}
+
+	/**
+	 * Runs the shifter and places the shifted samples of every block where
+	 * the block is in the stream, the last <code>size - overlap</code>
+	 * samples.
+	 */
+	private static float[] shift(float[] input, double factor, int overlap, boolean polarLookup)
+			throws UnsupportedAudioFileException {
+		final int hop = SIZE - overlap;
+		final float[] output = new float[input.length + SIZE];
+		AudioDispatcher dispatcher = AudioDispatcherFactory.fromFloatArray(input, SAMPLE_RATE, SIZE, overlap);
+		dispatcher.addAudioProcessor(new PhaseVocoderPitchShifter(factor, SIZE, overlap, polarLookup));
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			private int block;
+
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				System.arraycopy(audioEvent.getFloatBuffer(), SIZE - hop, output, block * hop + SIZE - hop, hop);
+				block++;
+				return true;
+			}
+
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		return output;
+	}
+
+	/**
+	 * Two seconds of equally loud sines.
+	 */
+	private static float[] sines(int sampleRate, double... frequencies) {
+		float[] audio = new float[2 * sampleRate];
+		for (int i = 0; i < audio.length; i++) {
+			double sample = 0;
+			for (double frequency : frequencies) {
+				sample += Math.sin(2 * Math.PI * frequency * i / sampleRate);
+			}
+			audio[i] = (float) (0.5 * sample / frequencies.length);
+		}
+		return audio;
+	}
+
+	private static double maxError(float[] input, float[] output, int delay, int from, int to) {
+		double error = 0;
+		for (int i = from; i < to; i++) {
+			error = Math.max(error, Math.abs(output[i + delay] - input[i]));
+		}
+		return error;
+	}
+
+	private static double rms(float[] audio, int from, int to) {
+		double sum = 0;
+		for (int i = from; i < to; i++) {
+			sum += audio[i] * audio[i];
+		}
+		return Math.sqrt(sum / (to - from));
+	}
+}
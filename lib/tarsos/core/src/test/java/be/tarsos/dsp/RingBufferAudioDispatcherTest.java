@@ -0,0 +1,110 @@
+package be.tarsos.dsp;
+
+import static be.tarsos.dsp.TestAudio.encode;
+import static be.tarsos.dsp.TestAudio.noise;
+import static be.tarsos.dsp.TestAudio.stream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Checks that the ring buffer dispatcher hands every processor the same
+ * blocks, time stamps and sample counts as the {@link AudioDispatcher} over
+ * the same stream.
+ */
+public class RingBufferAudioDispatcherTest {
+
+	private static final float SAMPLE_RATE = 44100;
+	private static final int[][] BUFFER_AND_OVERLAP = { { 2048, 1984 }, { 2048, 1024 }, { 1024, 512 }, { 1000, 999 },
+			{ 512, 0 }, { 4096, 3072 } };
+
+	@Test
+	public void testBlocksMatchAudioDispatcher() {
+		// neither length is a whole number of hops, so the last block is partial;
+		// the short one does not even fill the largest buffers
+		for (int samples : new int[] { 44100 + 123, 3000 }) {
+			float[] audio = noise(samples);
+			for (TarsosDSPAudioFormat format : new TarsosDSPAudioFormat[] { TestAudio.pcm16(SAMPLE_RATE), TestAudio.float32(SAMPLE_RATE) }) {
+				for (int[] pair : BUFFER_AND_OVERLAP) {
+					for (boolean zeroPadFirst : new boolean[] { false, true }) {
+						for (boolean zeroPadLast : new boolean[] { true, false }) {
+							String name = samples + " samples, " + format.getEncoding() + ", " + pair[0] + "/" + pair[1]
+									+ ", zero pad first " + zeroPadFirst + ", last " + zeroPadLast;
+							byte[] bytes = encode(audio, format);
+
+							AudioDispatcher reference = new AudioDispatcher(stream(bytes, format), pair[0], pair[1]);
+							AudioDispatcher ring = new RingBufferAudioDispatcher(stream(bytes, format), pair[0], pair[1]);
+							List<Block> expected = record(reference, zeroPadFirst, zeroPadLast);
+							List<Block> actual = record(ring, zeroPadFirst, zeroPadLast);
+
+							assertFalse(name, expected.isEmpty());
+							assertEquals(name, expected.size(), actual.size());
+							for (int i = 0; i < expected.size(); i++) {
+								expected.get(i).assertEquals(name + ", block " + i, actual.get(i));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLastBlockIsPartialWithoutZeroPadding() {
+		int samples = 10000;
+		byte[] bytes = encode(noise(samples), TestAudio.pcm16(SAMPLE_RATE));
+		AudioDispatcher ring = new RingBufferAudioDispatcher(stream(bytes, TestAudio.pcm16(SAMPLE_RATE)), 2048, 1984);
+		List<Block> blocks = record(ring, false, false);
+		Block last = blocks.get(blocks.size() - 1);
+		// 2048 + 124 * 64 = 9984, the last block holds the overlap and the 16 remaining samples
+		assertEquals(1984 + 16, last.buffer.length);
+		assertEquals(samples, last.samplesProcessed + last.buffer.length - last.overlap);
+	}
+
+	private static List<Block> record(AudioDispatcher dispatcher, boolean zeroPadFirst, boolean zeroPadLast) {
+		final List<Block> blocks = new ArrayList<Block>();
+		dispatcher.setZeroPadFirstBuffer(zeroPadFirst);
+		dispatcher.setZeroPadLastBuffer(zeroPadLast);
+		dispatcher.addAudioProcessor(new AudioProcessor() {
+			@Override
+			public boolean process(AudioEvent audioEvent) {
+				blocks.add(new Block(audioEvent));
+				return true;
+			}
+
+			@Override
+			public void processingFinished() {
+			}
+		});
+		dispatcher.run();
+		return blocks;
+	}
+
+	private static final class Block {
+		final float[] buffer;
+		final double timeStamp;
+		final long samplesProcessed;
+		final int overlap;
+
+		Block(AudioEvent event) {
+			buffer = event.getFloatBuffer().clone();
+			timeStamp = event.getTimeStamp();
+			samplesProcessed = event.getSamplesProcessed();
+			overlap = event.getOverlap();
+		}
+
+		void assertEquals(String message, Block actual) {
+			assertArrayEquals(message, buffer, actual.buffer, 0);
+			org.junit.Assert.assertEquals(message, timeStamp, actual.timeStamp, 0);
+			org.junit.Assert.assertEquals(message, samplesProcessed, actual.samplesProcessed);
+			org.junit.Assert.assertEquals(message, overlap, actual.overlap);
+		}
+	}
+}
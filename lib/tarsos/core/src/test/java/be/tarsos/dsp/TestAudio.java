@@ -0,0 +1,54 @@
+package be.tarsos.dsp;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import be.tarsos.dsp.io.MappedAudioInputStream;
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Test signals and the in-memory streams the dispatcher tests read them from.
+ */
+final class TestAudio {
+
+	private TestAudio() {
+	}
+
+	/**
+	 * White noise between -0.5 and 0.5, the same for every call with the same
+	 * length.
+	 */
+	static float[] noise(int samples) {
+		Random random = new Random(samples);
+		float[] audio = new float[samples];
+		for (int i = 0; i < audio.length; i++) {
+			audio[i] = random.nextFloat() - 0.5f;
+		}
+		return audio;
+	}
+
+	/**
+	 * Mono signed 16 bit little-endian PCM.
+	 */
+	static TarsosDSPAudioFormat pcm16(float sampleRate) {
+		return new TarsosDSPAudioFormat(sampleRate, 16, 1, true, false);
+	}
+
+	/**
+	 * Mono 32 bit little-endian float PCM.
+	 */
+	static TarsosDSPAudioFormat float32(float sampleRate) {
+		return new TarsosDSPAudioFormat(TarsosDSPAudioFloatConverter.PCM_FLOAT, sampleRate, 32, 1, 4, sampleRate, false);
+	}
+
+	static byte[] encode(float[] audio, TarsosDSPAudioFormat format) {
+		byte[] bytes = new byte[audio.length * format.getFrameSize()];
+		TarsosDSPAudioFloatConverter.getConverter(format).toByteArray(audio, bytes);
+		return bytes;
+	}
+
+	static MappedAudioInputStream stream(byte[] bytes, TarsosDSPAudioFormat format) {
+		return new MappedAudioInputStream(ByteBuffer.wrap(bytes), format);
+	}
+}
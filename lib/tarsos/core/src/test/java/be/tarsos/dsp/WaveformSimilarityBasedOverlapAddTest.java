@@ -0,0 +1,140 @@
+package be.tarsos.dsp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.Parameters;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.SeekMode;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Checks the FFT and coarse-to-fine overlap searches against the brute-force
+ * search, at every sequence of stretching a melody and noise.
+ */
+public class WaveformSimilarityBasedOverlapAddTest {
+
+	private static final float SAMPLE_RATE = 44100;
+	private static final double[] TEMPOS = { 0.5, 0.8, 1.25, 2 };
+
+	@Test
+	public void testFFTSearchFindsBruteForcePosition() {
+		for (double tempo : TEMPOS) {
+			for (float[] audio : new float[][] { melody(3), noise(3) }) {
+				SearchStatistics statistics = compareSearches(Parameters.musicDefaults(tempo, SAMPLE_RATE), audio, SeekMode.FFT);
+				// positions may only differ where two offsets score the same
+				assertEquals("score lost at tempo " + tempo, 0, statistics.worstScoreLoss, 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testFFTSearchStretchesLikeBruteForce() {
+		float[] audio = melody(3);
+		for (double tempo : TEMPOS) {
+			Parameters parameters = Parameters.musicDefaults(tempo, SAMPLE_RATE);
+			float[] expected = stretch(parameters, audio);
+			float[] actual = stretch(parameters.withSeekMode(SeekMode.FFT), audio);
+			assertArrayEquals("tempo " + tempo, expected, actual, 0);
+		}
+	}
+
+	@Test
+	public void testCoarseToFineSearchFindsSimilarPosition() {
+		for (double tempo : TEMPOS) {
+			for (float[] audio : new float[][] { melody(3), noisyMelody(3, 0.05), noisyMelody(3, 0.2) }) {
+				SearchStatistics statistics = compareSearches(Parameters.musicDefaults(tempo, SAMPLE_RATE), audio, SeekMode.COARSE_TO_FINE);
+				assertTrue("mean score ratio " + statistics.meanScoreRatio + " at tempo " + tempo, statistics.meanScoreRatio > 0.99);
+			}
+		}
+	}
+
+	private static final class SearchStatistics {
+		private int sequences;
+		private double worstScoreLoss;
+		private double meanScoreRatio;
+	}
+
+	/**
+	 * Stretches the audio with the brute-force search and, at every sequence,
+	 * also asks the other search for its position.
+	 */
+	private static SearchStatistics compareSearches(Parameters parameters, float[] audio, SeekMode mode) {
+		WaveformSimilarityBasedOverlapAdd wsola = new WaveformSimilarityBasedOverlapAdd(parameters);
+		int frameLength = wsola.getInputBufferSize();
+		int skip = frameLength - wsola.getOverlap();
+		AudioEvent event = new AudioEvent(new TarsosDSPAudioFormat(SAMPLE_RATE, 16, 1, true, false));
+		SearchStatistics statistics = new SearchStatistics();
+		double ratioSum = 0;
+		for (int position = 0; position + frameLength <= audio.length; position += skip) {
+			float[] frame = new float[frameLength];
+			System.arraycopy(audio, position, frame, 0, frameLength);
+
+			int expected = wsola.seekBestOverlapPosition(frame, 0, SeekMode.BRUTE_FORCE);
+			int actual = wsola.seekBestOverlapPosition(frame, 0, mode);
+			double expectedScore = wsola.overlapScore(frame, 0, expected);
+			double actualScore = wsola.overlapScore(frame, 0, actual);
+			statistics.sequences++;
+			statistics.worstScoreLoss = Math.max(statistics.worstScoreLoss, expectedScore - actualScore);
+			ratioSum += actualScore / expectedScore;
+
+			event.setFloatBuffer(frame);
+			wsola.process(event);
+		}
+		statistics.meanScoreRatio = ratioSum / statistics.sequences;
+		return statistics;
+	}
+
+	private static float[] stretch(Parameters parameters, float[] audio) {
+		WaveformSimilarityBasedOverlapAdd wsola = new WaveformSimilarityBasedOverlapAdd(parameters);
+		int frameLength = wsola.getInputBufferSize();
+		int skip = frameLength - wsola.getOverlap();
+		AudioEvent event = new AudioEvent(new TarsosDSPAudioFormat(SAMPLE_RATE, 16, 1, true, false));
+		float[] stretched = new float[0];
+		for (int position = 0; position + frameLength <= audio.length; position += skip) {
+			float[] frame = new float[frameLength];
+			System.arraycopy(audio, position, frame, 0, frameLength);
+			event.setFloatBuffer(frame);
+			wsola.process(event);
+			float[] sequence = event.getFloatBuffer();
+			stretched = Arrays.copyOf(stretched, stretched.length + sequence.length);
+			System.arraycopy(sequence, 0, stretched, stretched.length - sequence.length, sequence.length);
+		}
+		return stretched;
+	}
+
+	private static float[] melody(double seconds) {
+		double[] notes = { 220.0, 246.94, 261.63, 293.66, 329.63, 293.66, 261.63, 246.94 };
+		float[] audio = new float[(int) (seconds * SAMPLE_RATE)];
+		for (int i = 0; i < audio.length; i++) {
+			double frequency = notes[(int) (i / (SAMPLE_RATE / 4)) % notes.length];
+			double t = i / SAMPLE_RATE;
+			audio[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * t) + 0.25 * Math.sin(4 * Math.PI * frequency * t)
+					+ 0.125 * Math.sin(6 * Math.PI * frequency * t));
+		}
+		return audio;
+	}
+
+	private static float[] noisyMelody(double seconds, double noise) {
+		float[] audio = melody(seconds);
+		Random random = new Random(7);
+		for (int i = 0; i < audio.length; i++) {
+			audio[i] += (float) (noise * random.nextGaussian());
+		}
+		return audio;
+	}
+
+	private static float[] noise(double seconds) {
+		Random random = new Random(42);
+		float[] audio = new float[(int) (seconds * SAMPLE_RATE)];
+		for (int i = 0; i < audio.length; i++) {
+			audio[i] = random.nextFloat() * 2 - 1;
+		}
+		return audio;
+	}
+}
@@ -0,0 +1,332 @@
+package be.tarsos.dsp.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.tarsos.dsp.io.jvm.JVMAudioInputStream;
+import be.tarsos.dsp.writer.WaveHeader;
+
+/**
+ * Checks the WAV and AIFF header parsing against javax.sound: format, frame
+ * length and sample bytes of the mapped stream must equal those of a
+ * {@link JVMAudioInputStream} over the same file.
+ */
+public class MappedAudioInputStreamTest {
+
+	private static final float SAMPLE_RATE = 44100;
+	private static final int FRAMES = 5001;
+	private static final short FORMAT_IEEE_FLOAT = 3;
+	private static final short FORMAT_EXTENSIBLE = (short) 0xFFFE;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWaveMatchesJavaSound() throws Exception {
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(SAMPLE_RATE, 8, 1, false, false), AudioFileFormat.Type.WAVE));
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(SAMPLE_RATE, 16, 2, true, false), AudioFileFormat.Type.WAVE));
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(SAMPLE_RATE, 24, 1, true, false), AudioFileFormat.Type.WAVE));
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(48000, 24, 2, true, false), AudioFileFormat.Type.WAVE));
+	}
+
+	@Test
+	public void testFloatWaveMatchesJavaSound() throws Exception {
+		for (int channels = 1; channels <= 2; channels++) {
+			TarsosDSPAudioFormat format = floatFormat(channels);
+			byte[] data = encode(format);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new WaveHeader(FORMAT_IEEE_FLOAT, (short) channels, (int) SAMPLE_RATE, (short) 32, data.length).write(out);
+			out.write(data);
+			assertMatchesJavaSound(write("float.wav", out.toByteArray()));
+		}
+	}
+
+	@Test
+	public void testExtensibleWaveMatchesJavaSound() throws Exception {
+		TarsosDSPAudioFormat format = new TarsosDSPAudioFormat(SAMPLE_RATE, 24, 2, true, false);
+		byte[] data = encode(format);
+		ByteBuffer header = ByteBuffer.allocate(68).order(ByteOrder.LITTLE_ENDIAN);
+		putFourCC(header, "RIFF").putInt(60 + data.length);
+		putFourCC(header, "WAVE");
+		putFourCC(header, "fmt ").putInt(40);
+		header.putShort(FORMAT_EXTENSIBLE).putShort((short) 2).putInt((int) SAMPLE_RATE)
+				.putInt((int) SAMPLE_RATE * 6).putShort((short) 6).putShort((short) 24);
+		// extension size, valid bits, channel mask and the PCM sub format GUID
+		header.putShort((short) 22).putShort((short) 24).putInt(3);
+		header.put(new byte[] { 1, 0, 0, 0, 0, 0, 0x10, 0, (byte) 0x80, 0, 0, (byte) 0xAA, 0, 0x38, (byte) 0x9B, 0x71 });
+		putFourCC(header, "data").putInt(data.length);
+		File file = write("extensible.wav", concat(header.array(), data));
+
+		assertMatchesJavaSound(file);
+		assertSamples(format, MappedAudioInputStream.open(file));
+	}
+
+	@Test
+	public void testAiffMatchesJavaSound() throws Exception {
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(SAMPLE_RATE, 8, 1, true, true), AudioFileFormat.Type.AIFF));
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(SAMPLE_RATE, 16, 2, true, true), AudioFileFormat.Type.AIFF));
+		assertMatchesJavaSound(writeJavaSound(new AudioFormat(SAMPLE_RATE, 24, 1, true, true), AudioFileFormat.Type.AIFF));
+	}
+
+	@Test
+	public void testAiffSampleRates() throws Exception {
+		// exercises the 80 bit extended decode over several exponents
+		for (float sampleRate : new float[] { 8000, 11025, 22050, 44056, 48000, 96000, 192000 }) {
+			File file = writeJavaSound(new AudioFormat(sampleRate, 16, 1, true, true), AudioFileFormat.Type.AIFF);
+			assertEquals(sampleRate, MappedAudioInputStream.open(file).getFormat().getSampleRate(), 0);
+		}
+	}
+
+	@Test
+	public void testAifcWithCompressionTypes() throws Exception {
+		TarsosDSPAudioFormat littleEndian = new TarsosDSPAudioFormat(SAMPLE_RATE, 16, 2, true, false);
+		MappedAudioInputStream sowt = MappedAudioInputStream.open(writeAifc("sowt", 16, littleEndian));
+		assertEquals(false, sowt.getFormat().isBigEndian());
+		assertEquals(FRAMES, sowt.getFrameLength());
+		assertSamples(littleEndian, sowt);
+
+		TarsosDSPAudioFormat bigEndian = new TarsosDSPAudioFormat(SAMPLE_RATE, 16, 2, true, true);
+		assertSamples(bigEndian, MappedAudioInputStream.open(writeAifc("NONE", 16, bigEndian)));
+
+		TarsosDSPAudioFormat floats = new TarsosDSPAudioFormat(TarsosDSPAudioFloatConverter.PCM_FLOAT, SAMPLE_RATE, 32,
+				1, 4, SAMPLE_RATE, true);
+		MappedAudioInputStream fl32 = MappedAudioInputStream.open(writeAifc("fl32", 32, floats));
+		assertEquals(TarsosDSPAudioFloatConverter.PCM_FLOAT, fl32.getFormat().getEncoding());
+		assertSamples(floats, fl32);
+	}
+
+	@Test
+	public void testZeroAndOversizedDataChunks() throws Exception {
+		File reference = writeJavaSound(new AudioFormat(SAMPLE_RATE, 16, 2, true, false), AudioFileFormat.Type.WAVE);
+		byte[] expected = readAll(MappedAudioInputStream.open(reference));
+		byte[] file = Files.readAllBytes(reference.toPath());
+		int dataSize = indexOf(file, "data") + 4;
+
+		for (int size : new int[] { 0, -1, Integer.MAX_VALUE }) {
+			ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN).putInt(dataSize, size);
+			// a streaming writer may also leave a partial frame at the end
+			MappedAudioInputStream stream = MappedAudioInputStream.open(write("streamed.wav", concat(file, new byte[] { 7 })));
+			assertEquals("data size " + size, FRAMES, stream.getFrameLength());
+			assertArrayEquals("data size " + size, expected, readAll(stream));
+		}
+	}
+
+	@Test
+	public void testRejectsUnsupportedFiles() throws Exception {
+		assertNotOpened(write("text.wav", "not an audio file at all".getBytes(StandardCharsets.US_ASCII)));
+
+		ByteArrayOutputStream alaw = new ByteArrayOutputStream();
+		new WaveHeader(WaveHeader.FORMAT_ALAW, (short) 1, (int) SAMPLE_RATE, (short) 8, 100).write(alaw);
+		alaw.write(new byte[100]);
+		assertNotOpened(write("alaw.wav", alaw.toByteArray()));
+
+		byte[] noData = Arrays.copyOf(Files.readAllBytes(
+				writeJavaSound(new AudioFormat(SAMPLE_RATE, 16, 1, true, false), AudioFileFormat.Type.WAVE).toPath()), 36);
+		assertNotOpened(write("nodata.wav", noData));
+	}
+
+	@Test
+	public void testSetFramePosition() throws Exception {
+		File file = writeJavaSound(new AudioFormat(SAMPLE_RATE, 16, 2, true, false), AudioFileFormat.Type.WAVE);
+		MappedAudioInputStream stream = MappedAudioInputStream.open(file);
+		byte[] all = readAll(stream);
+		int frameSize = stream.getFormat().getFrameSize();
+
+		stream.setFramePosition(1234);
+		assertEquals(1234, stream.getFramePosition());
+		assertArrayEquals(Arrays.copyOfRange(all, 1234 * frameSize, all.length), readAll(stream));
+		assertEquals(FRAMES, stream.getFramePosition());
+
+		stream.setFramePosition(0);
+		assertEquals(2 * frameSize, stream.skip(2 * frameSize + 1));
+		assertEquals(2, stream.getFramePosition());
+
+		stream.setFramePosition(FRAMES);
+		assertEquals(-1, stream.read(new byte[frameSize], 0, frameSize));
+		try {
+			stream.setFramePosition(FRAMES + 1);
+			fail("positioned past the end");
+		} catch (IllegalArgumentException expected) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testViewReadsItsFrames() throws Exception {
+		File file = writeJavaSound(new AudioFormat(SAMPLE_RATE, 24, 2, true, false), AudioFileFormat.Type.WAVE);
+		MappedAudioInputStream stream = MappedAudioInputStream.open(file);
+		int frameSize = stream.getFormat().getFrameSize();
+		byte[] all = readAll(MappedAudioInputStream.open(file));
+
+		stream.setFramePosition(10);
+		MappedAudioInputStream view = stream.view(1000, 2000);
+		assertEquals(2000, view.getFrameLength());
+		assertEquals(0, view.getFramePosition());
+		assertArrayEquals(Arrays.copyOfRange(all, 1000 * frameSize, 3000 * frameSize), readAll(view));
+		// reading the view leaves the stream it was created from alone
+		assertEquals(10, stream.getFramePosition());
+
+		MappedAudioInputStream tail = stream.view(FRAMES - 100, 1000);
+		assertEquals(100, tail.getFrameLength());
+		assertArrayEquals(Arrays.copyOfRange(all, (FRAMES - 100) * frameSize, all.length), readAll(tail));
+
+		MappedAudioInputStream nested = view.view(500, 10);
+		assertArrayEquals(Arrays.copyOfRange(all, 1500 * frameSize, 1510 * frameSize), readAll(nested));
+		assertEquals(0, stream.view(FRAMES, 10).getFrameLength());
+	}
+
+	private void assertMatchesJavaSound(File file) throws IOException, UnsupportedAudioFileException {
+		MappedAudioInputStream mapped = MappedAudioInputStream.open(file);
+		AudioInputStream reference = AudioSystem.getAudioInputStream(file);
+		AudioFormat expected = reference.getFormat();
+		TarsosDSPAudioFormat actual = mapped.getFormat();
+		String name = file.getName() + " " + expected;
+		assertEquals(name, expected.getEncoding().toString(), actual.getEncoding().toString());
+		assertEquals(name, expected.getSampleRate(), actual.getSampleRate(), 0);
+		assertEquals(name, expected.getSampleSizeInBits(), actual.getSampleSizeInBits());
+		assertEquals(name, expected.getChannels(), actual.getChannels());
+		assertEquals(name, expected.getFrameSize(), actual.getFrameSize());
+		if (expected.getSampleSizeInBits() > 8) {
+			assertEquals(name, expected.isBigEndian(), actual.isBigEndian());
+		}
+
+		JVMAudioInputStream jvm = new JVMAudioInputStream(reference);
+		assertEquals(name, jvm.getFrameLength(), mapped.getFrameLength());
+		assertArrayEquals(name, readAll(jvm), readAll(mapped));
+		jvm.close();
+	}
+
+	private static void assertSamples(TarsosDSPAudioFormat format, MappedAudioInputStream stream) throws IOException {
+		float[] expected = signal(format.getChannels());
+		float[] actual = new float[expected.length];
+		TarsosDSPAudioFloatConverter.getConverter(stream.getFormat()).toFloatArray(readAll(stream), actual);
+		// the quantization step of the format
+		double tolerance = format.getEncoding() == TarsosDSPAudioFloatConverter.PCM_FLOAT ? 0
+				: 1.0 / (1 << (format.getSampleSizeInBits() - 1));
+		assertArrayEquals(expected, actual, (float) tolerance);
+	}
+
+	private static void assertNotOpened(File file) {
+		try {
+			MappedAudioInputStream.open(file);
+			fail(file.getName() + " was opened");
+		} catch (IOException expected) {
+			// expected
+		}
+	}
+
+	private File writeJavaSound(AudioFormat format, AudioFileFormat.Type type) throws IOException {
+		byte[] data = encode(JVMAudioInputStream.toTarsosDSPFormat(format));
+		File file = folder.newFile();
+		AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(data), format, FRAMES), type, file);
+		return file;
+	}
+
+	/**
+	 * Writes an AIFC file by hand; javax.sound only writes plain AIFF.
+	 */
+	private File writeAifc(String compression, int sampleSize, TarsosDSPAudioFormat format) throws IOException {
+		byte[] data = encode(format);
+		ByteBuffer header = ByteBuffer.allocate(72).order(ByteOrder.BIG_ENDIAN);
+		putFourCC(header, "FORM").putInt(64 + data.length);
+		putFourCC(header, "AIFC");
+		putFourCC(header, "FVER").putInt(4).putInt(0xA2805140);
+		putFourCC(header, "COMM").putInt(24);
+		header.putShort((short) format.getChannels()).putInt(FRAMES).putShort((short) sampleSize);
+		putExtended(header, format.getSampleRate());
+		// compression type followed by an empty, padded Pascal string name
+		putFourCC(header, compression).putShort((short) 0);
+		putFourCC(header, "SSND").putInt(8 + data.length).putInt(0).putInt(0);
+		return write("aifc.aif", concat(header.array(), data));
+	}
+
+	private File write(String name, byte[] content) throws IOException {
+		File file = new File(folder.newFolder(), name);
+		Files.write(file.toPath(), content);
+		return file;
+	}
+
+	private static TarsosDSPAudioFormat floatFormat(int channels) {
+		return new TarsosDSPAudioFormat(TarsosDSPAudioFloatConverter.PCM_FLOAT, SAMPLE_RATE, 32, channels, 4 * channels,
+				SAMPLE_RATE, false);
+	}
+
+	private static byte[] encode(TarsosDSPAudioFormat format) {
+		byte[] data = new byte[FRAMES * format.getFrameSize()];
+		TarsosDSPAudioFloatConverter.getConverter(format).toByteArray(signal(format.getChannels()), data);
+		return data;
+	}
+
+	/**
+	 * Interleaved frames of a different sine per channel with a little noise.
+	 */
+	private static float[] signal(int channels) {
+		Random random = new Random(channels);
+		float[] samples = new float[FRAMES * channels];
+		for (int i = 0; i < samples.length; i++) {
+			int channel = i % channels;
+			double time = i / channels / SAMPLE_RATE;
+			samples[i] = (float) (0.5 * Math.sin(2 * Math.PI * 440 * (channel + 1) * time) + 0.1 * random.nextGaussian());
+		}
+		return samples;
+	}
+
+	private static byte[] readAll(TarsosDSPAudioInputStream stream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// a buffer that is no multiple of the frame size
+		byte[] buffer = new byte[1001];
+		int read;
+		while ((read = stream.read(buffer, 0, buffer.length)) > 0) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	private static ByteBuffer putFourCC(ByteBuffer buffer, String id) {
+		return buffer.put(id.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static void putExtended(ByteBuffer buffer, double value) {
+		int exponent = Math.getExponent(value);
+		long mantissa = (long) Math.scalb(value, 63 - exponent);
+		buffer.putShort((short) (exponent + 16383)).putLong(mantissa);
+	}
+
+	private static int indexOf(byte[] file, String id) {
+		byte[] bytes = id.getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i + bytes.length <= file.length; i++) {
+			if (Arrays.equals(Arrays.copyOfRange(file, i, i + bytes.length), bytes)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(id + " not found");
+	}
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = Arrays.copyOf(first, first.length + second.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+}
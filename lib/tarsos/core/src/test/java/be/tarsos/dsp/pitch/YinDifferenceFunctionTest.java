@@ -0,0 +1,75 @@
+package be.tarsos.dsp.pitch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the vectorized YIN difference function against the scalar one. Runs
+ * only when the JVM was started with --add-modules jdk.incubator.vector.
+ */
+public class YinDifferenceFunctionTest {
+
+	private static final float SAMPLE_RATE = 44100;
+
+	private YinDifferenceFunction vectorized;
+
+	@Before
+	public void setUp() {
+		vectorized = YinDifferenceFunction.vectorized();
+		assumeNotNull(vectorized);
+	}
+
+	@Test
+	public void testDifferenceMatchesScalarForNoise() {
+		Random random = new Random(42);
+		for (int bufferSize : new int[] { 64, 100, 1024, 2048, 4096 }) {
+			float[] audio = new float[bufferSize];
+			for (int i = 0; i < audio.length; i++) {
+				audio[i] = random.nextFloat() * 2 - 1;
+			}
+			assertSameDifference(audio);
+		}
+	}
+
+	@Test
+	public void testDifferenceMatchesScalarForSines() {
+		for (double frequency : new double[] { 55, 220, 440, 1000, 3520 }) {
+			assertSameDifference(sine(frequency, 2048));
+		}
+	}
+
+	@Test
+	public void testPitchMatchesScalar() {
+		for (double frequency = 60; frequency < 1500; frequency *= 1.1) {
+			float[] audio = sine(frequency, 2048);
+			float scalarPitch = new Yin(SAMPLE_RATE, 2048, 0.2, YinDifferenceFunction.SCALAR).getPitch(audio).getPitch();
+			float vectorPitch = new Yin(SAMPLE_RATE, 2048, 0.2, vectorized).getPitch(audio).getPitch();
+			assertEquals("pitch of " + frequency + " Hz sine", scalarPitch, vectorPitch, 0.01);
+		}
+	}
+
+	private void assertSameDifference(float[] audio) {
+		float[] expected = new float[audio.length / 2];
+		float[] actual = new float[audio.length / 2];
+		YinDifferenceFunction.SCALAR.difference(audio, expected);
+		vectorized.difference(audio, actual);
+		assertEquals(0, actual[0], 0);
+		for (int tau = 1; tau < expected.length; tau++) {
+			// only the summation order differs
+			assertEquals("tau " + tau, expected[tau], actual[tau], Math.abs(expected[tau]) * 1e-4 + 1e-6);
+		}
+	}
+
+	private static float[] sine(double frequency, int length) {
+		float[] audio = new float[length];
+		for (int i = 0; i < length; i++) {
+			audio[i] = (float) (0.8 * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+		}
+		return audio;
+	}
+}
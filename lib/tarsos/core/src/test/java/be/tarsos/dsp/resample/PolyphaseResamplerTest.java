@@ -0,0 +1,177 @@
+package be.tarsos.dsp.resample;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+
+/**
+ * Checks the {@link PolyphaseResampler}: it produces
+ * <code>ceil(frames * up / down)</code> frames however the input is split in
+ * batches, its output is close to that of the {@link Resampler} it shares the
+ * filter with, and interleaved channels are resampled as if each was on its
+ * own. Also checks that {@link RateTransposer#RateTransposer(int, int)} hands
+ * out the polyphase output block by block.
+ */
+public class PolyphaseResamplerTest {
+
+	private static final int[][] RATES = { { 48000, 44100 }, { 44100, 48000 }, { 44100, 16000 }, { 44100, 22050 },
+			{ 22050, 44100 }, { 8000, 44100 } };
+
+	@Test
+	public void testOutputLength() {
+		for (int[] rates : RATES) {
+			for (int frames : new int[] { 1, 147, 999, rates[0] + 17 }) {
+				float[] input = sine(440, rates[0], frames, 0);
+				float[] whole = resample(input, rates[0], rates[1], 1, frames);
+				long expected = (long) Math.ceil((double) frames * rates[1] / rates[0]);
+				String name = rates[0] + " to " + rates[1] + ", " + frames + " frames";
+				assertEquals(name, expected, whole.length);
+				for (int batch : new int[] { 1, 100, 4096 }) {
+					assertArrayEquals(name + " in batches of " + batch, whole, resample(input, rates[0], rates[1], 1, batch), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesResampler() {
+		for (int[] rates : RATES) {
+			for (boolean highQuality : new boolean[] { false, true }) {
+				float[] input = sine(440, rates[0], 2 * rates[0], 0);
+				PolyphaseResampler polyphase = new PolyphaseResampler(rates[0], rates[1], highQuality);
+				float[] expected = resampleWithResampler(input, (double) rates[1] / rates[0], highQuality);
+				float[] actual = resample(polyphase, input, 1, 4096);
+				// the ends depend on how each fills in the samples before and after the input
+				int margin = 4 * polyphase.getFilterWidth() * rates[1] / rates[0] + 4;
+				double error = 0;
+				for (int i = margin; i < Math.min(expected.length, actual.length) - margin; i++) {
+					error = Math.max(error, Math.abs(expected[i] - actual[i]));
+				}
+				String name = rates[0] + " to " + rates[1] + ", high quality " + highQuality + ": " + error;
+				// the resampler rounds the filter phase to the coefficients its table holds, the short filter drifts more
+				assertTrue(name, error < (highQuality ? 5e-4 : 2.5e-3));
+			}
+		}
+	}
+
+	@Test
+	public void testChannelsAreInterleaved() {
+		for (int[] rates : RATES) {
+			int frames = rates[0] / 2 + 3;
+			float[] left = sine(440, rates[0], frames, 0);
+			float[] right = sine(1234.5, rates[0], frames, 1);
+			float[] interleaved = new float[2 * frames];
+			for (int i = 0; i < frames; i++) {
+				interleaved[2 * i] = left[i];
+				interleaved[2 * i + 1] = right[i];
+			}
+			float[] expectedLeft = resample(left, rates[0], rates[1], 1, 1000);
+			float[] expectedRight = resample(right, rates[0], rates[1], 1, 1000);
+			// an odd batch size splits frames between batches
+			float[] stereo = resample(interleaved, rates[0], rates[1], 2, 1001);
+
+			String name = rates[0] + " to " + rates[1];
+			assertEquals(name, 2 * expectedLeft.length, stereo.length);
+			float[] actualLeft = new float[expectedLeft.length];
+			float[] actualRight = new float[expectedRight.length];
+			for (int i = 0; i < actualLeft.length; i++) {
+				actualLeft[i] = stereo[2 * i];
+				actualRight[i] = stereo[2 * i + 1];
+			}
+			assertArrayEquals(name, expectedLeft, actualLeft, 0);
+			assertArrayEquals(name, expectedRight, actualRight, 0);
+		}
+	}
+
+	@Test
+	public void testRateTransposerUsesPolyphaseResampler() {
+		int blockSize = 2048;
+		int blocks = 50;
+		float[] input = sine(440, 48000, blockSize * blocks, 0);
+		RateTransposer transposer = new RateTransposer(48000, 44100);
+		AudioEvent event = new AudioEvent(new TarsosDSPAudioFormat(48000, 16, 1, true, false));
+		float[] transposed = new float[0];
+		for (int block = 0; block < blocks; block++) {
+			event.setFloatBuffer(Arrays.copyOfRange(input, block * blockSize, (block + 1) * blockSize));
+			event.setOverlap(1024);
+			transposer.process(event);
+			assertEquals((int) (1024 * 44100 / 48000.0), event.getOverlap());
+			float[] out = event.getFloatBuffer();
+			transposed = Arrays.copyOf(transposed, transposed.length + out.length);
+			System.arraycopy(out, 0, transposed, transposed.length - out.length, out.length);
+		}
+
+		// without a last block the output lags by the width of the filter
+		PolyphaseResampler polyphase = new PolyphaseResampler(48000, 44100, false);
+		float[] whole = resample(polyphase, input, 1, input.length);
+		int lag = polyphase.getFilterWidth() * 44100 / 48000;
+		assertTrue(transposed.length >= whole.length - lag - 2 && transposed.length <= whole.length);
+		assertArrayEquals(Arrays.copyOf(whole, transposed.length), transposed, 0);
+	}
+
+	private static float[] resample(float[] input, int from, int to, int channels, int batch) {
+		return resample(new PolyphaseResampler(from, to, channels, true), input, channels, batch);
+	}
+
+	/**
+	 * Resamples in batches of <code>batch</code> samples into an output buffer
+	 * with room for a few hundred frames, flagging the batch that ends the
+	 * input as last.
+	 */
+	private static float[] resample(PolyphaseResampler resampler, float[] input, int channels, int batch) {
+		float[] output = new float[1024];
+		int outputLength = 0;
+		FloatBuffer out = FloatBuffer.allocate(300 * channels);
+		int position = 0;
+		boolean done = false;
+		while (!done) {
+			int length = Math.min(batch, input.length - position);
+			FloatBuffer in = FloatBuffer.wrap(input, position, length);
+			boolean last = position + length == input.length;
+			while (true) {
+				boolean complete = resampler.process(in, last, out);
+				out.flip();
+				int produced = out.remaining();
+				if (output.length < outputLength + produced) {
+					output = Arrays.copyOf(output, 2 * (outputLength + produced));
+				}
+				out.get(output, outputLength, produced);
+				outputLength += produced;
+				out.clear();
+				// a frame split between batches waits for the next batch
+				if (last ? complete : in.remaining() < channels) {
+					done = last;
+					break;
+				}
+			}
+			position += length - in.remaining();
+		}
+		return Arrays.copyOf(output, outputLength);
+	}
+
+	private static float[] resampleWithResampler(float[] input, double factor, boolean highQuality) {
+		Resampler resampler = new Resampler(highQuality, factor, factor);
+		float[] output = new float[(int) Math.ceil(input.length * factor) + resampler.getFilterWidth()];
+		FloatBuffer in = FloatBuffer.wrap(input);
+		FloatBuffer out = FloatBuffer.wrap(output);
+		while (!resampler.process(factor, in, true, out) && out.hasRemaining()) {
+		}
+		return Arrays.copyOf(output, out.position());
+	}
+
+	private static float[] sine(double frequency, int sampleRate, int samples, double phase) {
+		float[] audio = new float[samples];
+		for (int i = 0; i < samples; i++) {
+			audio[i] = (float) (0.5 * Math.sin(2 * Math.PI * frequency * i / sampleRate + phase));
+		}
+		return audio;
+	}
+}
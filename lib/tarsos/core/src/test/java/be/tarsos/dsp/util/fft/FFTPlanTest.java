@@ -0,0 +1,146 @@
+package be.tarsos.dsp.util.fft;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Checks that the transform of a shared {@link FFTPlan} gives bit-identical
+ * results to a fresh {@link FloatFFT}, also when four threads use it at once.
+ * The sizes cover the power of two, mixed radix and Bluestein plans; the
+ * latter two take their work arrays from the per-thread scratch.
+ */
+public class FFTPlanTest {
+
+	/**
+	 * Power of two, mixed radix (2^3 * 5^3 and 2^6 * 3 * 5) and Bluestein (a
+	 * prime and 7 * 11 * 13).
+	 */
+	private static final int[] SIZES = { 1024, 2048, 1000, 960, 1009, 1001 };
+
+	private static final int THREADS = 4;
+
+	private static final int ROUNDS = 50;
+
+	@Test
+	public void testPlansAreShared() {
+		for (int size : SIZES) {
+			FFTPlan plan = FFTPlan.get(size, null);
+			assertSame(plan, FFTPlan.get(size, null));
+			assertSame(plan.getTransform(), FFTPlan.get(size, new HannWindow()).getTransform());
+		}
+	}
+
+	@Test
+	public void testSharedTransformMatchesFreshTransform() throws Exception {
+		final List<Case> cases = new ArrayList<Case>();
+		Random random = new Random(15);
+		for (int size : SIZES) {
+			for (Kind kind : Kind.values()) {
+				cases.add(new Case(size, kind, random));
+			}
+		}
+
+		// on one thread, where consecutive calls reuse the scratch of the previous size
+		for (int round = 0; round < 2; round++) {
+			for (Case c : cases) {
+				c.check();
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			final CountDownLatch start = new CountDownLatch(THREADS);
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				final int offset = thread;
+				results.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start.countDown();
+						start.await();
+						// every thread walks the cases in a different order
+						for (int round = 0; round < ROUNDS; round++) {
+							for (int i = 0; i < cases.size(); i++) {
+								cases.get((i * (offset + 1) + round) % cases.size()).check();
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private enum Kind {
+		REAL_FORWARD, REAL_FORWARD_FULL, COMPLEX_FORWARD, REAL_INVERSE;
+
+		int length(int size) {
+			return this == REAL_FORWARD || this == REAL_INVERSE ? size : 2 * size;
+		}
+
+		void apply(FloatFFT transform, float[] data) {
+			switch (this) {
+			case REAL_FORWARD:
+				transform.realForward(data);
+				break;
+			case REAL_FORWARD_FULL:
+				transform.realForwardFull(data);
+				break;
+			case COMPLEX_FORWARD:
+				transform.complexForward(data);
+				break;
+			case REAL_INVERSE:
+				transform.realInverse(data, true);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * An input and the output of a fresh transform for it.
+	 */
+	private static final class Case {
+		private final int size;
+		private final Kind kind;
+		private final float[] input;
+		private final float[] expected;
+
+		Case(int size, Kind kind, Random random) {
+			this.size = size;
+			this.kind = kind;
+			input = new float[kind.length(size)];
+			for (int i = 0; i < size; i++) {
+				input[i] = random.nextFloat() * 2 - 1;
+			}
+			if (kind == Kind.COMPLEX_FORWARD) {
+				for (int i = size; i < input.length; i++) {
+					input[i] = random.nextFloat() * 2 - 1;
+				}
+			}
+			expected = input.clone();
+			kind.apply(new FloatFFT(size), expected);
+		}
+
+		void check() {
+			float[] actual = input.clone();
+			kind.apply(FFTPlan.get(size, null).getTransform(), actual);
+			assertArrayEquals(kind + " of size " + size, expected, actual, 0);
+		}
+	}
+}
@@ -4,13 +4,17 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.cache.annotation.EnableCaching;
+import com.example.LogicBro.config.AudioConfig;
 import com.example.LogicBro.config.AudioUploadProperties;
+import com.example.LogicBro.config.ExecutorProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties(AudioUploadProperties.class)
+@EnableConfigurationProperties({AudioUploadProperties.class, ExecutorProperties.class, AudioConfig.class})
 @EnableAsync
 @EnableCaching
+@EnableScheduling
 public class LogicBroApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,142 @@
+package com.example.LogicBro.config;
+
+import com.example.LogicBro.entity.AnalysisResult;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Brings an analysis_results table created before results were keyed by
+ * content into the shape {@link AnalysisResult} expects, before Hibernate's
+ * {@code ddl-auto=update} runs. That update only adds columns, so on its own it
+ * would leave audio_file_id NOT NULL, fill the new hash columns of legacy rows
+ * with empty strings and then fail to create the unique key over them.
+ *
+ * <p>Legacy rows carry no serialized result and cannot be served from the
+ * store, so they are deleted rather than backfilled. The migration reads the
+ * current schema first and is a no-op once the unique key exists.
+ */
+@Component
+public class AnalysisResultsMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisResultsMigration.class);
+    private static final String TABLE = "analysis_results";
+
+    private final DataSource dataSource;
+
+    public AnalysisResultsMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void migrate() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = findTable(connection, metaData);
+            if (table == null) {
+                return; // created from the entity on first start
+            }
+            String product = metaData.getDatabaseProductName().toLowerCase(Locale.ROOT);
+            boolean mysql = product.contains("mysql") || product.contains("mariadb");
+
+            Set<String> columns = new HashSet<>();
+            Set<String> notNull = new HashSet<>();
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, null)) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT);
+                    columns.add(column);
+                    if (rs.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls) {
+                        notNull.add(column);
+                    }
+                }
+            }
+
+            if (notNull.contains("audio_file_id")) {
+                statement.executeUpdate(mysql
+                    ? "ALTER TABLE " + TABLE + " MODIFY audio_file_id BIGINT NULL"
+                    : "ALTER TABLE " + TABLE + " ALTER COLUMN audio_file_id DROP NOT NULL");
+                logger.info("Made {}.audio_file_id nullable", TABLE);
+            }
+            if (hasContentKey(connection, metaData, table)) {
+                return;
+            }
+
+            for (String column : new String[] {"content_hash", "parameter_hash"}) {
+                if (!columns.contains(column)) {
+                    statement.executeUpdate("ALTER TABLE " + TABLE + " ADD COLUMN " + column + " VARCHAR(64)");
+                }
+            }
+
+            int deleted = statement.executeUpdate("DELETE FROM " + TABLE
+                + " WHERE content_hash IS NULL OR content_hash = '' OR parameter_hash IS NULL OR parameter_hash = ''");
+            // MySQL cannot select from the table it deletes from unless the subquery is materialized
+            deleted += statement.executeUpdate("DELETE FROM " + TABLE + " WHERE result_id NOT IN ("
+                + "SELECT kept.result_id FROM (SELECT MIN(result_id) AS result_id FROM " + TABLE
+                + " GROUP BY content_hash, parameter_hash) kept)");
+            if (deleted > 0) {
+                logger.info("Deleted {} legacy rows from {} that were not keyed by content", deleted, TABLE);
+            }
+
+            for (String column : new String[] {"content_hash", "parameter_hash"}) {
+                if (!notNull.contains(column)) {
+                    statement.executeUpdate(mysql
+                        ? "ALTER TABLE " + TABLE + " MODIFY " + column + " VARCHAR(64) NOT NULL"
+                        : "ALTER TABLE " + TABLE + " ALTER COLUMN " + column + " SET NOT NULL");
+                }
+            }
+            statement.executeUpdate("CREATE UNIQUE INDEX " + AnalysisResult.CONTENT_KEY + " ON " + TABLE
+                + " (content_hash, parameter_hash)");
+            logger.info("Created unique index {} on {}", AnalysisResult.CONTENT_KEY, TABLE);
+        }
+    }
+
+    private static String findTable(Connection connection, DatabaseMetaData metaData) throws SQLException {
+        try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), null,
+                new String[] {"TABLE"})) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                if (TABLE.equalsIgnoreCase(name)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasContentKey(Connection connection, DatabaseMetaData metaData, String table)
+            throws SQLException {
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), table,
+                true, false)) {
+            while (rs.next()) {
+                if ("content_hash".equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the migration before the entity manager factory, and so before
+     * Hibernate's schema update.
+     */
+    @Component
+    static class EntityManagerFactoryDependsOnMigration extends EntityManagerFactoryDependsOnPostProcessor {
+        EntityManagerFactoryDependsOnMigration() {
+            super(AnalysisResultsMigration.class);
+        }
+    }
+}
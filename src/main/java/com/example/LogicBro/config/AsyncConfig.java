@@ -1,26 +1,74 @@
 package com.example.LogicBro.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
 public class AsyncConfig {
-    
-    @Bean(name = "audioProcessingExecutor")
-    public Executor audioProcessingExecutor() {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    /**
+     * Blocking stages: analysis requests that read files, decode through FFmpeg
+     * and persist results. Feature extraction itself runs on the analysis
+     * fork/join pool, so these threads mostly wait. Virtual threads when
+     * configured and available, a bounded platform pool otherwise.
+     */
+    @Bean(name = "ioExecutor")
+    public AsyncTaskExecutor ioExecutor(ExecutorProperties properties) {
+        if (properties.getIoThreads() == ExecutorProperties.IoThreads.VIRTUAL) {
+            AsyncTaskExecutor virtual = virtualThreadExecutor("Io-");
+            if (virtual != null) {
+                return virtual;
+            }
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(8);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("AudioProcessing-");
+        executor.setCorePoolSize(properties.getIoPoolSize());
+        executor.setMaxPoolSize(properties.getIoPoolSize());
+        executor.setQueueCapacity(properties.getIoQueueCapacity());
+        executor.setThreadNamePrefix("Io-");
         executor.initialize();
         return executor;
     }
 
+    /**
+     * Serves requests, uploads included, on virtual threads when those are
+     * configured, so slow clients do not hold on to Tomcat's worker pool.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> ioProtocolHandlerCustomizer(ExecutorProperties properties) {
+        return protocolHandler -> {
+            if (properties.getIoThreads() == ExecutorProperties.IoThreads.VIRTUAL) {
+                AsyncTaskExecutor virtual = virtualThreadExecutor("Http-");
+                if (virtual != null) {
+                    protocolHandler.setExecutor(virtual);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns null when the runtime has no virtual threads (before Java 21).
+     */
+    private static AsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        try {
+            return new VirtualThreadTaskExecutor(threadNamePrefix);
+        } catch (UnsupportedOperationException e) {
+            logger.info("Virtual threads need Java 21, {} tasks use platform threads", threadNamePrefix);
+            return null;
+        }
+    }
+
     @Bean(name = "modularSoundExecutor")
     public Executor modularSoundExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -32,6 +80,33 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * Workers for queued analysis jobs. The queue is bounded and overflow is
+     * rejected rather than run on the caller, so a burst of submissions gets
+     * a 429 instead of tying up request threads.
+     */
+    @Bean(name = "analysisJobExecutor")
+    public ThreadPoolTaskExecutor analysisJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(32);
+        executor.setThreadNamePrefix("AnalysisJob-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * The DSP pool: work-stealing platform threads that run feature extraction
+     * and the segments of long files, shared by all analyses and sized to the
+     * CPU count unless configured otherwise.
+     */
+    @Bean(name = "analysisForkJoinPool", destroyMethod = "shutdown")
+    public ForkJoinPool analysisForkJoinPool(ExecutorProperties properties) {
+        return new ForkJoinPool(properties.resolveDspThreads());
+    }
+
     @Bean(name = "analysisExecutor")
     public Executor analysisExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
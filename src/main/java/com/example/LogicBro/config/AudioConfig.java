@@ -29,6 +29,16 @@ public class AudioConfig {
     @Min(0)
     private int overlap = 1024;
 
+    /**
+     * Sample rate the PCM is band-limited and decimated to before pitch and
+     * rhythm extraction (Hz), e.g. 11025 or 8000. The buffer and overlap above
+     * are rescaled to cover the same time. Equal to sampleRate to analyze at
+     * the full rate.
+     */
+    @Min(8000)
+    @Max(192000)
+    private int analysisSampleRate = 44100;
+
     /**
      * Analysis configuration
      */
@@ -2,6 +2,7 @@ package com.example.LogicBro.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 
 @Validated
@@ -34,11 +35,26 @@ public class AudioUploadProperties {
      */
     private String tempDir = "temp";
 
+    /**
+     * Maximum size of the decoded PCM cache kept under the temp directory (in bytes)
+     */
+    private long pcmCacheMaxBytes = 2L * 1024 * 1024 * 1024; // 2GB default
+
     /**
      * Directory for storing analysis results
      */
     private String analysisPath = "analysis";
 
+    /**
+     * Directory for rendered tempo and pitch variations, kept per content hash and parameters
+     */
+    private String renderPath = "renders";
+
+    /**
+     * Maximum size of the renderings kept under the render path (in bytes)
+     */
+    private long renderCacheMaxBytes = 2L * 1024 * 1024 * 1024; // 2GB default
+
     /**
      * Path to the FFmpeg executable
      */
@@ -49,6 +65,12 @@ public class AudioUploadProperties {
      */
     private String ffprobePath = "ffprobe"; // Default assumes ffprobe is in PATH
 
+    /**
+     * Maximum number of FFmpeg decodes running at the same time, 0 for one per available processor
+     */
+    @Min(0)
+    private int ffmpegMaxConcurrent = 0;
+
     public String getAudioPath() {
         return audioPath;
     }
@@ -89,6 +111,14 @@ public class AudioUploadProperties {
         this.tempDir = tempDir;
     }
 
+    public long getPcmCacheMaxBytes() {
+        return pcmCacheMaxBytes;
+    }
+
+    public void setPcmCacheMaxBytes(long pcmCacheMaxBytes) {
+        this.pcmCacheMaxBytes = pcmCacheMaxBytes;
+    }
+
     public String getAnalysisPath() {
         return analysisPath;
     }
@@ -97,6 +127,22 @@ public class AudioUploadProperties {
         this.analysisPath = analysisPath;
     }
 
+    public String getRenderPath() {
+        return renderPath;
+    }
+
+    public void setRenderPath(String renderPath) {
+        this.renderPath = renderPath;
+    }
+
+    public long getRenderCacheMaxBytes() {
+        return renderCacheMaxBytes;
+    }
+
+    public void setRenderCacheMaxBytes(long renderCacheMaxBytes) {
+        this.renderCacheMaxBytes = renderCacheMaxBytes;
+    }
+
     public String getFfmpegPath() {
         return ffmpegPath;
     }
@@ -112,4 +158,12 @@ public class AudioUploadProperties {
     public void setFfprobePath(String ffprobePath) {
         this.ffprobePath = ffprobePath;
     }
+
+    public int getFfmpegMaxConcurrent() {
+        return ffmpegMaxConcurrent;
+    }
+
+    public void setFfmpegMaxConcurrent(int ffmpegMaxConcurrent) {
+        this.ffmpegMaxConcurrent = ffmpegMaxConcurrent;
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.LogicBro.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
@@ -14,9 +15,12 @@ public class CacheConfig {
     public static final String USER_CACHE = "userCache";
     public static final String FILE_METADATA_CACHE = "fileMetadataCache";
     
+    // A CacheManager bean replaces Boot's cache auto-configuration, so the spec is applied here
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(
+            @Value("${spring.cache.caffeine.spec:maximumSize=500,expireAfterAccess=600s}") String spec) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(spec);
         cacheManager.setCacheNames(java.util.Arrays.asList(
                 AUDIO_ANALYSIS_CACHE,
                 USER_CACHE,
@@ -0,0 +1,55 @@
+package com.example.LogicBro.config;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * How blocking work (request handling, decoding, persistence) and CPU-bound
+ * DSP work are scheduled.
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "logicbro.executors")
+public class ExecutorProperties {
+
+    public enum IoThreads {
+        /**
+         * A bounded pool of platform threads.
+         */
+        PLATFORM,
+        /**
+         * One virtual thread per task and per request. Needs Java 21; on older
+         * runtimes the platform pool is used instead.
+         */
+        VIRTUAL
+    }
+
+    /**
+     * Threads for uploads, conversion and persistence
+     */
+    private IoThreads ioThreads = IoThreads.VIRTUAL;
+
+    /**
+     * Maximum number of platform threads for I/O stages when virtual threads are off or unavailable
+     */
+    @Min(1)
+    private int ioPoolSize = 32;
+
+    /**
+     * Tasks waiting for a platform I/O thread before submissions are rejected
+     */
+    @Min(0)
+    private int ioQueueCapacity = 500;
+
+    /**
+     * Threads of the DSP pool, 0 for one per available processor
+     */
+    @Min(0)
+    private int dspThreads = 0;
+
+    public int resolveDspThreads() {
+        return dspThreads > 0 ? dspThreads : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.LogicBro.config;
+
+import be.tarsos.dsp.util.ConcurrencyUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Large FFTs inside TarsosDSP can split over several threads. Jobs and segments
+ * of long files already run in parallel, so by default every transform stays on
+ * the thread that analyzes the audio. When enabled, transforms share the analysis
+ * fork/join pool instead of starting threads of their own.
+ */
+@Configuration
+public class TransformConcurrencyConfig {
+    private static final Logger logger = LoggerFactory.getLogger(TransformConcurrencyConfig.class);
+
+    private final ForkJoinPool analysisForkJoinPool;
+    private final boolean parallelTransforms;
+
+    public TransformConcurrencyConfig(@Qualifier("analysisForkJoinPool") ForkJoinPool analysisForkJoinPool,
+                                      @Value("${logicbro.analysis.parallelTransforms:false}") boolean parallelTransforms) {
+        this.analysisForkJoinPool = analysisForkJoinPool;
+        this.parallelTransforms = parallelTransforms;
+    }
+
+    @PostConstruct
+    public void configure() {
+        ConcurrencyUtils.setExecutor(analysisForkJoinPool);
+        ConcurrencyUtils.setParallelTransforms(parallelTransforms);
+        logger.info("TarsosDSP transforms {}", parallelTransforms
+            ? "split over the analysis fork/join pool" : "run on the calling thread");
+    }
+
+    @PreDestroy
+    public void reset() {
+        // the pool is shut down with the context, later transforms fall back to the library pool
+        ConcurrencyUtils.setExecutor(null);
+        ConcurrencyUtils.setParallelTransforms(true);
+    }
+}
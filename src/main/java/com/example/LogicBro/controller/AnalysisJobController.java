@@ -0,0 +1,83 @@
+package com.example.LogicBro.controller;
+
+import com.example.LogicBro.dto.AnalysisJobDTO;
+import com.example.LogicBro.exception.JobQueueFullException;
+import com.example.LogicBro.service.AnalysisJobService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.security.Principal;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/audio/jobs")
+@RequiredArgsConstructor
+public class AnalysisJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobController.class);
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private final AnalysisJobService jobService;
+
+    @PostMapping
+    public ResponseEntity<?> submitJob(@RequestParam("fileId") String fileId, Principal principal) {
+        try {
+            AnalysisJobDTO job = jobService.submit(fileId, principal != null ? principal.getName() : null);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (JobQueueFullException e) {
+            logger.warn("Rejected analysis job for file {}: {}", fileId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<AnalysisJobDTO> getJob(@PathVariable String jobId) {
+        return jobService.getJob(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{jobId}/progress")
+    public ResponseEntity<Map<String, Object>> getProgress(@PathVariable String jobId) {
+        return jobService.getJob(jobId)
+            .map(job -> ResponseEntity.ok(Map.<String, Object>of(
+                "jobId", job.getJobId(),
+                "status", job.getStatus(),
+                "progress", job.getProgress() != null ? job.getProgress() : 0.0)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable String jobId) {
+        return jobService.subscribe(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<AnalysisJobDTO> cancelJob(@PathVariable String jobId) {
+        return jobService.cancel(jobId)
+            .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{jobId}/result")
+    public ResponseEntity<?> getResult(@PathVariable String jobId) {
+        return jobService.getResult(jobId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> jobService.getJob(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.status(HttpStatus.CONFLICT).body(job))
+                .orElse(ResponseEntity.notFound().build()));
+    }
+}
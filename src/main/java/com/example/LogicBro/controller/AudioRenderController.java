@@ -0,0 +1,59 @@
+package com.example.LogicBro.controller;
+
+import com.example.LogicBro.dto.RenderRequestDTO;
+import com.example.LogicBro.dto.RenderResultDTO;
+import com.example.LogicBro.service.AudioRenderService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@RestController
+@RequestMapping("/api/audio/render")
+@RequiredArgsConstructor
+public class AudioRenderController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioRenderController.class);
+    private static final MediaType AUDIO_WAV = MediaType.parseMediaType("audio/wav");
+
+    private final AudioRenderService renderService;
+
+    @PostMapping("/{fileId}")
+    public CompletableFuture<ResponseEntity<?>> render(@PathVariable String fileId,
+                                                       @RequestBody RenderRequestDTO request) {
+        return renderService.renderAsync(fileId, request.getTempo(), request.getPitch())
+            .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+            .exceptionally(throwable -> {
+                Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                if (cause instanceof IllegalArgumentException) {
+                    return ResponseEntity.badRequest().body(Map.of("error", cause.getMessage()));
+                }
+                logger.error("Rendering failed for file ID: " + fileId, cause);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Rendering failed"));
+            });
+    }
+
+    @GetMapping("/output/{renderId}")
+    public ResponseEntity<Resource> download(@PathVariable String renderId) {
+        InputStream rendering = renderService.openRendering(renderId);
+        if (rendering == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+            .contentType(AUDIO_WAV)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + renderId + ".wav\"")
+            .body(new InputStreamResource(rendering));
+    }
+}
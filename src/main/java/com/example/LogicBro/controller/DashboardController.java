@@ -1,6 +1,7 @@
 package com.example.LogicBro.controller;
 
 import com.example.LogicBro.dto.AudioAnalysisDTO;
+import com.example.LogicBro.dto.AudioPreviewDTO;
 import com.example.LogicBro.dto.VariationRequestDTO;
 import com.example.LogicBro.service.AudioAnalysisService;
 import com.example.LogicBro.service.ProjectService;
@@ -36,8 +37,8 @@ public class DashboardController {
     @ResponseBody
     public ResponseEntity<?> uploadAudio(@RequestParam("file") MultipartFile file, Principal principal) {
         try {
-            String fileId = audioAnalysisService.storeAudioFile(file, principal.getName());
-            return ResponseEntity.ok().body(new UploadResponse(fileId));
+            AudioPreviewDTO preview = audioAnalysisService.ingestAudioFile(file, principal.getName());
+            return ResponseEntity.ok().body(preview);
         } catch (Exception e) {
             logger.error("Error uploading audio file", e);
             return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
@@ -78,18 +79,6 @@ public class DashboardController {
     }
 
     // Helper classes for responses
-    private static class UploadResponse {
-        private final String fileId;
-
-        public UploadResponse(String fileId) {
-            this.fileId = fileId;
-        }
-
-        public String getFileId() {
-            return fileId;
-        }
-    }
-
     private static class ErrorResponse {
         private final String error;
 
@@ -0,0 +1,16 @@
+package com.example.LogicBro.dto;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+public class AnalysisJobDTO {
+    private String jobId;
+    private String fileId;
+    private String status;
+    private Double progress;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,20 @@
+package com.example.LogicBro.dto;
+
+import lombok.Data;
+
+/**
+ * Progress of a running analysis, streamed to the dashboard. The musical fields
+ * are running estimates over the audio processed so far and are only set on
+ * partial-result events.
+ */
+@Data
+public class AnalysisProgressDTO {
+    private String jobId;
+    private String status;
+    private double progress;
+
+    private String key;
+    private Double tempo;
+    // Pitch counts per pitch class, index 0 being C
+    private int[] pitchHistogram;
+}
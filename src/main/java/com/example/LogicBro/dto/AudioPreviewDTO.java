@@ -0,0 +1,25 @@
+package com.example.LogicBro.dto;
+
+import lombok.Data;
+
+/**
+ * Basic features measured while an upload streams in, available as soon as the
+ * upload has been stored. The measured fields are null for formats that can
+ * only be decoded after the upload is complete.
+ */
+@Data
+public class AudioPreviewDTO {
+    private String fileId;
+    private String contentHash;
+
+    private Double durationSeconds;
+    private Float sampleRate;
+    // RMS and peak level in dBFS
+    private Double loudness;
+    private Double peak;
+
+    // Pitch preview: median YIN pitch, its key and the pitch counts per pitch class
+    private Double medianPitch;
+    private String key;
+    private int[] pitchHistogram;
+}
@@ -0,0 +1,11 @@
+package com.example.LogicBro.dto;
+
+import lombok.Data;
+
+@Data
+public class RenderRequestDTO {
+    // how many times faster the rendering plays, 2 halves the duration
+    private double tempo = 1;
+    // pitch factor, 2 shifts an octave up
+    private double pitch = 1;
+}
@@ -0,0 +1,22 @@
+package com.example.LogicBro.dto;
+
+import lombok.Data;
+
+/**
+ * A rendered tempo and pitch variation of an upload, stored as a float WAV
+ * file that can be downloaded from {@code downloadUrl}.
+ */
+@Data
+public class RenderResultDTO {
+    private String renderId;
+    private String fileId;
+    private double tempo;
+    private double pitch;
+
+    private int sampleRate;
+    private int channels;
+    private double durationSeconds;
+    // whether an earlier rendering of the same content and parameters was served
+    private boolean cached;
+    private String downloadUrl;
+}
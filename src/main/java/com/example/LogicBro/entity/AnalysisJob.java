@@ -0,0 +1,63 @@
+package com.example.LogicBro.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analysis_jobs", indexes = @Index(name = "idx_analysis_jobs_status", columnList = "status"))
+@Data
+public class AnalysisJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", unique = true, nullable = false)
+    private String jobId;
+
+    @Column(name = "file_id", nullable = false)
+    private String fileId;
+
+    @Column(name = "username")
+    private String username;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private Status status;
+
+    // Fraction of the audio processed, 0 to 1
+    @Column(name = "progress")
+    private Double progress;
+
+    // Identify the stored result once the job has completed
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "parameter_hash", length = 64)
+    private String parameterHash;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
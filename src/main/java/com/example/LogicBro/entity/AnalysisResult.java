@@ -5,18 +5,36 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "analysis_results")
+@Table(name = "analysis_results",
+       uniqueConstraints = @UniqueConstraint(name = AnalysisResult.CONTENT_KEY,
+                                             columnNames = {"content_hash", "parameter_hash"}))
 @Data
 public class AnalysisResult {
+    // Unique key over the hashes; created by AnalysisResultsMigration on older schemas
+    public static final String CONTENT_KEY = "uk_analysis_results_content";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "result_id")
     private Long resultId;
 
+    // First upload the result was computed for; identical content reuses the row
     @OneToOne
-    @JoinColumn(name = "audio_file_id", nullable = false)
+    @JoinColumn(name = "audio_file_id")
     private AudioFile audioFile;
 
+    // SHA-256 of the audio content
+    @Column(name = "content_hash", length = 64, nullable = false)
+    private String contentHash;
+
+    // SHA-256 of the analysis parameter set the result was computed with
+    @Column(name = "parameter_hash", length = 64, nullable = false)
+    private String parameterHash;
+
+    // Full serialized AudioAnalysisDTO
+    @Column(name = "result_json", columnDefinition = "TEXT")
+    private String resultJson;
+
     @Column(name = "chord_progression", length = 1000)
     private String chordProgression;
 
@@ -5,7 +5,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audio_files")
+@Table(name = "audio_files", indexes = @Index(name = "idx_audio_files_content_hash", columnList = "content_hash"))
 @Data
 public class AudioFile {
     @Id
@@ -38,6 +38,9 @@ public class AudioFile {
     @Column(name = "file_path", nullable = false)
     private String filePath;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "duration")
     private Double duration;
 
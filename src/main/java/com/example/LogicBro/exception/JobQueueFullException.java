@@ -0,0 +1,7 @@
+package com.example.LogicBro.exception;
+
+public class JobQueueFullException extends RuntimeException {
+    public JobQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
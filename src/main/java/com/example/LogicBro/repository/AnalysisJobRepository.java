@@ -0,0 +1,22 @@
+package com.example.LogicBro.repository;
+
+import com.example.LogicBro.entity.AnalysisJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+    Optional<AnalysisJob> findByJobId(String jobId);
+    List<AnalysisJob> findByStatusIn(Collection<AnalysisJob.Status> statuses);
+
+    @Modifying
+    @Transactional
+    @Query("update AnalysisJob j set j.progress = :progress where j.jobId = :jobId and j.status = :status")
+    int updateProgress(@Param("jobId") String jobId, @Param("progress") double progress,
+                       @Param("status") AnalysisJob.Status status);
+}
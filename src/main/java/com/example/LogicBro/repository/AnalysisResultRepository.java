@@ -2,6 +2,8 @@ package com.example.LogicBro.repository;
 
 import com.example.LogicBro.entity.AnalysisResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Optional;
 
 public interface AnalysisResultRepository extends JpaRepository<AnalysisResult, Long> {
+    Optional<AnalysisResult> findByContentHashAndParameterHash(String contentHash, String parameterHash);
 }
\ No newline at end of file
@@ -0,0 +1,374 @@
+package com.example.LogicBro.service;
+
+import com.example.LogicBro.dto.AnalysisJobDTO;
+import com.example.LogicBro.dto.AnalysisProgressDTO;
+import com.example.LogicBro.dto.AudioAnalysisDTO;
+import com.example.LogicBro.entity.AnalysisJob;
+import com.example.LogicBro.entity.AudioFile;
+import com.example.LogicBro.exception.JobQueueFullException;
+import com.example.LogicBro.repository.AnalysisJobRepository;
+import com.example.LogicBro.repository.AudioFileRepository;
+import com.example.LogicBro.util.AnalysisProgressListener;
+import com.example.LogicBro.util.AudioAnalysisUtil;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Queues analyses on the bounded {@code analysisJobExecutor} pool and tracks
+ * them in the analysis_jobs table. Live progress and partial results are kept
+ * in memory and pushed to server-sent event subscribers. Progress reaches the
+ * table in coarse steps from a scheduled flush, never from the DSP threads
+ * that report it.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobService.class);
+    private static final double PROGRESS_PERSIST_STEP = 0.1;
+    private static final double PROGRESS_EVENT_STEP = 0.01;
+    private static final long PROGRESS_FLUSH_INTERVAL_MS = 1000;
+    private static final long EVENT_STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    public static final String EVENT_PROGRESS = "progress";
+    public static final String EVENT_PARTIAL = "partial";
+    public static final String EVENT_COMPLETED = "completed";
+    public static final String EVENT_FAILED = "failed";
+    public static final String EVENT_CANCELLED = "cancelled";
+
+    private final AnalysisJobRepository jobRepository;
+    private final AudioFileRepository audioFileRepository;
+    private final AudioAnalysisService analysisService;
+    private final AnalysisResultStore resultStore;
+    private final AudioAnalysisUtil analysisUtil;
+    private final ThreadPoolTaskExecutor jobExecutor;
+
+    // Jobs that are queued or running on this node
+    private final Map<String, ActiveJob> activeJobs = new ConcurrentHashMap<>();
+
+    public AnalysisJobService(AnalysisJobRepository jobRepository,
+                              AudioFileRepository audioFileRepository,
+                              AudioAnalysisService analysisService,
+                              AnalysisResultStore resultStore,
+                              AudioAnalysisUtil analysisUtil,
+                              @Qualifier("analysisJobExecutor") ThreadPoolTaskExecutor jobExecutor) {
+        this.jobRepository = jobRepository;
+        this.audioFileRepository = audioFileRepository;
+        this.analysisService = analysisService;
+        this.resultStore = resultStore;
+        this.analysisUtil = analysisUtil;
+        this.jobExecutor = jobExecutor;
+    }
+
+    @PostConstruct
+    public void failInterruptedJobs() {
+        List<AnalysisJob> interrupted = jobRepository.findByStatusIn(
+            EnumSet.of(AnalysisJob.Status.QUEUED, AnalysisJob.Status.RUNNING));
+        for (AnalysisJob job : interrupted) {
+            job.setStatus(AnalysisJob.Status.FAILED);
+            job.setErrorMessage("Interrupted by server restart");
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        if (!interrupted.isEmpty()) {
+            jobRepository.saveAll(interrupted);
+            logger.info("Marked {} interrupted analysis jobs as failed", interrupted.size());
+        }
+    }
+
+    /**
+     * Queues an analysis of the uploaded file.
+     *
+     * @throws IllegalArgumentException if the file does not exist
+     * @throws JobQueueFullException if every worker is busy and the queue is full
+     */
+    public AnalysisJobDTO submit(String fileId, String username) {
+        audioFileRepository.findByFileId(fileId)
+            .orElseThrow(() -> new IllegalArgumentException("File not found: " + fileId));
+
+        AnalysisJob job = new AnalysisJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setFileId(fileId);
+        job.setUsername(username);
+        job.setStatus(AnalysisJob.Status.QUEUED);
+        job.setProgress(0.0);
+        job = jobRepository.save(job);
+
+        String jobId = job.getJobId();
+        activeJobs.put(jobId, new ActiveJob());
+        try {
+            jobExecutor.execute(() -> run(jobId));
+        } catch (TaskRejectedException e) {
+            activeJobs.remove(jobId);
+            jobRepository.delete(job);
+            throw new JobQueueFullException("Analysis queue is full, try again later", e);
+        }
+        logger.info("Queued analysis job {} for file {}", jobId, fileId);
+        return toDTO(job);
+    }
+
+    public Optional<AnalysisJobDTO> getJob(String jobId) {
+        return jobRepository.findByJobId(jobId).map(this::toDTO);
+    }
+
+    /**
+     * Returns the analysis of a completed job, or empty if the job is unknown or not completed.
+     */
+    public Optional<AudioAnalysisDTO> getResult(String jobId) {
+        return jobRepository.findByJobId(jobId)
+            .filter(job -> job.getStatus() == AnalysisJob.Status.COMPLETED)
+            .flatMap(this::loadResult);
+    }
+
+    /**
+     * Requests cancellation. A queued job is cancelled before it starts; a running
+     * job stops its dispatcher at the next frame.
+     */
+    public Optional<AnalysisJobDTO> cancel(String jobId) {
+        Optional<AnalysisJob> found = jobRepository.findByJobId(jobId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        AnalysisJob job = found.get();
+        ActiveJob active = activeJobs.get(jobId);
+        if (active != null && !job.getStatus().isFinished()) {
+            active.cancelled = true;
+            logger.info("Cancellation requested for analysis job {}", jobId);
+        }
+        return Optional.of(toDTO(job));
+    }
+
+    /**
+     * Opens a server-sent event stream for the job. The current state is sent
+     * immediately; a finished job gets its terminal event and the stream closes.
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        Optional<AnalysisJob> found = jobRepository.findByJobId(jobId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        AnalysisJob job = found.get();
+        SseEmitter emitter = new SseEmitter(EVENT_STREAM_TIMEOUT_MS);
+        ActiveJob active = activeJobs.get(jobId);
+
+        if (active == null || job.getStatus().isFinished()) {
+            sendTerminalEvent(emitter, job);
+            return Optional.of(emitter);
+        }
+
+        active.subscribers.add(emitter);
+        emitter.onCompletion(() -> active.subscribers.remove(emitter));
+        emitter.onTimeout(() -> active.subscribers.remove(emitter));
+        emitter.onError(e -> active.subscribers.remove(emitter));
+        if (!activeJobs.containsKey(jobId)) {
+            // Finished while subscribing, so the worker may have missed this emitter
+            active.subscribers.remove(emitter);
+            jobRepository.findByJobId(jobId).ifPresent(finished -> sendTerminalEvent(emitter, finished));
+            return Optional.of(emitter);
+        }
+
+        send(active, emitter, EVENT_PROGRESS, progressEvent(jobId, job.getStatus(), active.progress));
+        if (active.latestPartial != null) {
+            send(active, emitter, EVENT_PARTIAL, active.latestPartial);
+        }
+        return Optional.of(emitter);
+    }
+
+    private void run(String jobId) {
+        ActiveJob active = activeJobs.get(jobId);
+        AnalysisJob job = jobRepository.findByJobId(jobId).orElse(null);
+        if (job == null || active == null || job.getStatus() != AnalysisJob.Status.QUEUED) {
+            activeJobs.remove(jobId);
+            return;
+        }
+
+        try {
+            if (active.cancelled) {
+                job.setStatus(AnalysisJob.Status.CANCELLED);
+                return;
+            }
+            job.setStatus(AnalysisJob.Status.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+            job = jobRepository.save(job);
+            publish(active, EVENT_PROGRESS, progressEvent(jobId, AnalysisJob.Status.RUNNING, 0.0));
+
+            analysisService.analyze(job.getFileId(), new JobProgressListener(jobId, active));
+
+            job.setContentHash(audioFileRepository.findByFileId(job.getFileId())
+                .map(AudioFile::getContentHash)
+                .orElse(null));
+            job.setParameterHash(analysisUtil.getParameterHash());
+            job.setProgress(1.0);
+            job.setStatus(AnalysisJob.Status.COMPLETED);
+        } catch (Exception e) {
+            if (active.cancelled) {
+                logger.info("Analysis job {} cancelled", jobId);
+                job.setStatus(AnalysisJob.Status.CANCELLED);
+                job.setProgress(active.progress);
+            } else {
+                logger.error("Analysis job {} failed", jobId, e);
+                job.setStatus(AnalysisJob.Status.FAILED);
+                job.setProgress(active.progress);
+                job.setErrorMessage(truncate(e.getMessage(), 1000));
+            }
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+            job = jobRepository.save(job);
+            activeJobs.remove(jobId);
+            for (SseEmitter emitter : active.subscribers) {
+                sendTerminalEvent(emitter, job);
+            }
+        }
+    }
+
+    /**
+     * Writes the progress of running jobs to the table once it has moved by
+     * {@value #PROGRESS_PERSIST_STEP} since the last write. The update only
+     * touches running rows, so it cannot overwrite a job's final state.
+     */
+    @Scheduled(fixedDelay = PROGRESS_FLUSH_INTERVAL_MS)
+    public void flushProgress() {
+        activeJobs.forEach((jobId, active) -> {
+            double progress = active.progress;
+            if (progress - active.persistedProgress >= PROGRESS_PERSIST_STEP) {
+                active.persistedProgress = progress;
+                jobRepository.updateProgress(jobId, progress, AnalysisJob.Status.RUNNING);
+            }
+        });
+    }
+
+    private void sendTerminalEvent(SseEmitter emitter, AnalysisJob job) {
+        try {
+            switch (job.getStatus()) {
+                case COMPLETED -> {
+                    Object payload = loadResult(job).<Object>map(result -> result).orElse(toDTO(job));
+                    emitter.send(SseEmitter.event().name(EVENT_COMPLETED).data(payload));
+                }
+                case CANCELLED -> emitter.send(SseEmitter.event().name(EVENT_CANCELLED).data(toDTO(job)));
+                default -> emitter.send(SseEmitter.event().name(EVENT_FAILED).data(toDTO(job)));
+            }
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void publish(ActiveJob active, String eventName, Object data) {
+        for (SseEmitter emitter : active.subscribers) {
+            send(active, emitter, eventName, data);
+        }
+    }
+
+    private void send(ActiveJob active, SseEmitter emitter, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; stop pushing to it
+            active.subscribers.remove(emitter);
+        }
+    }
+
+    private Optional<AudioAnalysisDTO> loadResult(AnalysisJob job) {
+        return resultStore.find(job.getContentHash(), job.getParameterHash())
+            .map(stored -> {
+                AudioAnalysisDTO analysis = resultStore.copyOf(stored);
+                analysis.setFileName(audioFileRepository.findByFileId(job.getFileId())
+                    .map(AudioFile::getFileName)
+                    .orElse(null));
+                return analysis;
+            });
+    }
+
+    private static AnalysisProgressDTO progressEvent(String jobId, AnalysisJob.Status status, double progress) {
+        AnalysisProgressDTO event = new AnalysisProgressDTO();
+        event.setJobId(jobId);
+        event.setStatus(status.name());
+        event.setProgress(progress);
+        return event;
+    }
+
+    private AnalysisJobDTO toDTO(AnalysisJob job) {
+        AnalysisJobDTO dto = new AnalysisJobDTO();
+        dto.setJobId(job.getJobId());
+        dto.setFileId(job.getFileId());
+        dto.setStatus(job.getStatus().name());
+        ActiveJob active = activeJobs.get(job.getJobId());
+        dto.setProgress(active != null && !job.getStatus().isFinished() ? active.progress : job.getProgress());
+        dto.setErrorMessage(job.getErrorMessage());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setStartedAt(job.getStartedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+
+    /**
+     * In-memory state of a queued or running job.
+     */
+    private static class ActiveJob {
+        final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        volatile boolean cancelled;
+        volatile double progress;
+        volatile AnalysisProgressDTO latestPartial;
+        // only used by flushProgress, which never runs concurrently with itself
+        double persistedProgress;
+    }
+
+    /**
+     * Feeds dispatcher progress into the in-memory state and the event stream.
+     * Called on DSP threads, so it must not block on the database.
+     */
+    private class JobProgressListener implements AnalysisProgressListener {
+        private final String jobId;
+        private final ActiveJob active;
+        private double publishedProgress;
+
+        JobProgressListener(String jobId, ActiveJob active) {
+            this.jobId = jobId;
+            this.active = active;
+        }
+
+        @Override
+        public void onProgress(double progress) {
+            active.progress = progress;
+            if (progress - publishedProgress >= PROGRESS_EVENT_STEP) {
+                publishedProgress = progress;
+                publish(active, EVENT_PROGRESS, progressEvent(jobId, AnalysisJob.Status.RUNNING, progress));
+            }
+        }
+
+        @Override
+        public void onPartialResult(AnalysisProgressDTO partial) {
+            partial.setJobId(jobId);
+            partial.setStatus(AnalysisJob.Status.RUNNING.name());
+            active.latestPartial = partial;
+            publish(active, EVENT_PARTIAL, partial);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return active.cancelled;
+        }
+    }
+}
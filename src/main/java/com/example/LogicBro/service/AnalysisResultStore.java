@@ -0,0 +1,201 @@
+package com.example.LogicBro.service;
+
+import com.example.LogicBro.config.CacheConfig;
+import com.example.LogicBro.dto.AudioAnalysisDTO;
+import com.example.LogicBro.entity.AnalysisResult;
+import com.example.LogicBro.entity.AudioFile;
+import com.example.LogicBro.repository.AnalysisResultRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed store for analysis results. Lookups go through the
+ * {@link CacheConfig#AUDIO_ANALYSIS_CACHE} Caffeine cache, then the
+ * analysis_results table, and only compute when both miss, so identical
+ * audio uploaded by different users is analyzed once per parameter set.
+ */
+@Service
+@RequiredArgsConstructor
+public class AnalysisResultStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisResultStore.class);
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+
+    private final AnalysisResultRepository analysisResultRepository;
+    private final ObjectMapper objectMapper;
+
+    // Computations running on this node, by cache key
+    private final Map<String, CompletableFuture<AudioAnalysisDTO>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the stored result for the content and parameter hashes, computing and
+     * persisting it on a miss. The returned DTO is shared through the cache and must
+     * not be modified; use {@link #copyOf(AudioAnalysisDTO)} first.
+     *
+     * <p>Concurrent misses for the same key wait for the one computation that is
+     * in flight instead of starting their own. The analysis runs outside the cache,
+     * so only finished results are cached; if the computing caller is cancelled,
+     * the next waiter computes the result itself.
+     */
+    @Cacheable(value = CacheConfig.AUDIO_ANALYSIS_CACHE, key = "#contentHash + ':' + #parameterHash")
+    public AudioAnalysisDTO getOrCompute(String contentHash, String parameterHash, AudioFile audioFile,
+                                         Supplier<AudioAnalysisDTO> analysis) {
+        String key = contentHash + ':' + parameterHash;
+        while (true) {
+            CompletableFuture<AudioAnalysisDTO> computation = new CompletableFuture<>();
+            CompletableFuture<AudioAnalysisDTO> running = inFlight.putIfAbsent(key, computation);
+            if (running == null) {
+                try {
+                    AudioAnalysisDTO result = loadOrCompute(contentHash, parameterHash, audioFile, analysis);
+                    computation.complete(result);
+                    return result;
+                } catch (RuntimeException | Error e) {
+                    computation.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, computation);
+                }
+            }
+
+            try {
+                return running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Analysis interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                if (!isCancellation(e.getCause())) {
+                    throw (RuntimeException) e.getCause();
+                }
+                logger.debug("Analysis of content {} was cancelled by its caller, computing it again", contentHash);
+            }
+        }
+    }
+
+    /**
+     * Looks up a stored result without computing it on a miss.
+     */
+    @Cacheable(value = CacheConfig.AUDIO_ANALYSIS_CACHE, key = "#contentHash + ':' + #parameterHash",
+               unless = "#result == null")
+    public Optional<AudioAnalysisDTO> find(String contentHash, String parameterHash) {
+        return load(contentHash, parameterHash);
+    }
+
+    public AudioAnalysisDTO copyOf(AudioAnalysisDTO analysis) {
+        return objectMapper.convertValue(analysis, AudioAnalysisDTO.class);
+    }
+
+    private AudioAnalysisDTO loadOrCompute(String contentHash, String parameterHash, AudioFile audioFile,
+                                           Supplier<AudioAnalysisDTO> analysis) {
+        Optional<AudioAnalysisDTO> stored = load(contentHash, parameterHash);
+        if (stored.isPresent()) {
+            logger.info("Serving stored analysis for content {}", contentHash);
+            return stored.get();
+        }
+
+        AudioAnalysisDTO computed = analysis.get();
+        computed.setFileName(null); // file names belong to uploads, not to content
+        save(contentHash, parameterHash, audioFile, computed);
+        return computed;
+    }
+
+    private Optional<AudioAnalysisDTO> load(String contentHash, String parameterHash) {
+        return analysisResultRepository.findByContentHashAndParameterHash(contentHash, parameterHash)
+            .map(AnalysisResult::getResultJson)
+            .flatMap(json -> {
+                try {
+                    return Optional.of(objectMapper.readValue(json, AudioAnalysisDTO.class));
+                } catch (JsonProcessingException e) {
+                    logger.warn("Discarding unreadable stored analysis for content {}", contentHash, e);
+                    return Optional.empty();
+                }
+            });
+    }
+
+    private void save(String contentHash, String parameterHash, AudioFile audioFile, AudioAnalysisDTO analysis) {
+        AnalysisResult result = analysisResultRepository
+            .findByContentHashAndParameterHash(contentHash, parameterHash)
+            .orElseGet(AnalysisResult::new);
+        if (result.getAudioFile() == null && audioFile != null && audioFile.getAnalysisResult() == null) {
+            result.setAudioFile(audioFile);
+        }
+        result.setContentHash(contentHash);
+        result.setParameterHash(parameterHash);
+        result.setKeySignature(analysis.getKey());
+        result.setScale(analysis.getScale());
+        result.setTonality(analysis.getMode());
+        result.setTempo(analysis.getTempo());
+        result.setTimeSignature(analysis.getTimeSignature());
+        result.setChordProgression(join(analysis.getChordProgression(), 1000));
+        result.setMelodicPatterns(join(analysis.getMelodicPatterns(), 2000));
+        result.setDominantInstruments(join(analysis.getDominantInstruments(), 255));
+
+        try {
+            result.setResultJson(objectMapper.writeValueAsString(analysis));
+            analysisResultRepository.save(result);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize analysis for content {}", contentHash, e);
+        } catch (DataIntegrityViolationException e) {
+            if (isContentKeyViolation(e)) {
+                // Another node stored the same content first; its result is equivalent
+                logger.debug("Analysis for content {} was stored concurrently", contentHash);
+            } else {
+                logger.error("Could not store analysis for content {}", contentHash, e);
+            }
+        }
+    }
+
+    private static boolean isCancellation(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells a duplicate (content_hash, parameter_hash) apart from other integrity
+     * violations such as a NOT NULL column left over from an older schema.
+     */
+    private static boolean isContentKeyViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                return violation.getConstraintName().toLowerCase(Locale.ROOT).contains(AnalysisResult.CONTENT_KEY);
+            }
+            if (cause instanceof SQLException sql) {
+                // unnamed constraint: SQL standard unique violation, or MySQL ER_DUP_ENTRY
+                return "23505".equals(sql.getSQLState()) || sql.getErrorCode() == MYSQL_DUPLICATE_ENTRY;
+            }
+        }
+        return false;
+    }
+
+    private static String join(List<String> values, int maxLength) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        String joined = String.join(", ", values);
+        return joined.length() > maxLength ? joined.substring(0, maxLength) : joined;
+    }
+}
@@ -1,10 +1,6 @@
 package com.example.LogicBro.service;
 
-import com.example.LogicBro.config.AudioUploadProperties;
-import net.bramp.ffmpeg.FFmpeg;
-import net.bramp.ffmpeg.FFmpegExecutor;
-import net.bramp.ffmpeg.FFprobe;
-import net.bramp.ffmpeg.builder.FFmpegBuilder;
+import com.example.LogicBro.util.FfmpegDecoderPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,28 +17,15 @@ public class AudioConversionService {
     
     private static final Logger logger = LoggerFactory.getLogger(AudioConversionService.class);
     
-    private final AudioUploadProperties audioUploadProperties;
-    private FFmpeg ffmpeg;
-    private FFprobe ffprobe;
+    private final FfmpegDecoderPool decoderPool;
     
     @Autowired
-    public AudioConversionService(AudioUploadProperties audioUploadProperties) {
-        this.audioUploadProperties = audioUploadProperties;
-        initializeFFmpeg();
-    }
-    
-    private void initializeFFmpeg() {
-        try {
-            ffmpeg = new FFmpeg(audioUploadProperties.getFfmpegPath());
-            ffprobe = new FFprobe(audioUploadProperties.getFfprobePath());
-            logger.info("FFmpeg initialized successfully");
-        } catch (IOException e) {
-            logger.warn("FFmpeg not found. Audio format conversion will be disabled. Error: {}", e.getMessage());
-        }
+    public AudioConversionService(FfmpegDecoderPool decoderPool) {
+        this.decoderPool = decoderPool;
     }
     
     public boolean isFFmpegAvailable() {
-        return ffmpeg != null && ffprobe != null;
+        return decoderPool.isAvailable();
     }
     
     public File convertToWav(File inputFile) throws IOException {
@@ -57,18 +40,8 @@ public class AudioConversionService {
         Path outputPath = tempDir.resolve(baseName + "_converted.wav");
         
         try {
-            FFmpegBuilder builder = new FFmpegBuilder()
-                .setInput(inputFile.getAbsolutePath())
-                .overrideOutputFiles(true)
-                .addOutput(outputPath.toString())
-                .setFormat("wav")
-                .setAudioCodec("pcm_s16le")
-                .setAudioSampleRate(44100)
-                .setAudioChannels(2)
-                .done();
-            
-            FFmpegExecutor executor = new FFmpegExecutor(ffmpeg, ffprobe);
-            executor.createJob(builder).run();
+            decoderPool.convert(inputFile, "-vn", "-f", "wav", "-acodec", "pcm_s16le", "-ar", "44100", "-ac", "2",
+                outputPath.toString());
             
             logger.info("Successfully converted {} to WAV format", fileName);
             return outputPath.toFile();
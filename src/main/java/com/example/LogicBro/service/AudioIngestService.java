@@ -0,0 +1,264 @@
+package com.example.LogicBro.service;
+
+import com.example.LogicBro.dto.AudioPreviewDTO;
+import com.example.LogicBro.util.AudioAnalysisUtil;
+import com.example.LogicBro.util.ContentHashUtil;
+import com.example.LogicBro.util.DecodedAudioCache;
+import com.example.LogicBro.util.MonoPcmInputStream;
+import com.example.LogicBro.util.PcmDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores uploads in a single pass over the multipart stream. Every chunk is
+ * written to storage, added to the SHA-256 content hash and piped to a decoder
+ * on the I/O executor. The decoder drives an AudioDispatcher that measures the
+ * preview features and writes the mono PCM into the decoded audio cache, so the
+ * preview is ready when the last byte is stored and the first analysis starts
+ * from the cached decode instead of reading and converting the file again.
+ * <p>
+ * Formats without an installed javax.sound reader (AAC, and MP3 or OGG unless
+ * the java-decoders profile is built in) are stored and hashed the same way;
+ * they get no preview and are decoded on first analysis.
+ */
+@Service
+public class AudioIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioIngestService.class);
+    private static final int CHUNK_SIZE = 64 * 1024;
+    // How far the decoder may fall behind the upload, 4 MB
+    private static final int PIPE_CHUNKS = 64;
+    // How long the upload waits for a decoder that fell behind before dropping the preview
+    private static final long PIPE_TIMEOUT_SECONDS = 30;
+
+    private final AudioStorageService storageService;
+    private final DecodedAudioCache decodedAudioCache;
+    private final AudioAnalysisUtil analysisUtil;
+    private final AsyncTaskExecutor ioExecutor;
+
+    public AudioIngestService(AudioStorageService storageService,
+                              DecodedAudioCache decodedAudioCache,
+                              AudioAnalysisUtil analysisUtil,
+                              @Qualifier("ioExecutor") AsyncTaskExecutor ioExecutor) {
+        this.storageService = storageService;
+        this.decodedAudioCache = decodedAudioCache;
+        this.analysisUtil = analysisUtil;
+        this.ioExecutor = ioExecutor;
+    }
+
+    /**
+     * Stores the upload and returns where it was stored with its preview. The
+     * preview always carries the content hash; the measured fields are null when
+     * the format could not be decoded while streaming.
+     */
+    public IngestedAudio ingest(MultipartFile file) {
+        Path destination = storageService.resolveDestination(file);
+        Path partial = destination.resolveSibling(destination.getFileName() + ".part");
+        Path pcm = decodedAudioCache.createPartialEntry();
+        MessageDigest digest = ContentHashUtil.newDigest();
+
+        ChunkPipe pipe = new ChunkPipe();
+        Future<AudioPreviewDTO> decoding;
+        try {
+            decoding = ioExecutor.submit(() -> decodePreview(pipe, pcm));
+        } catch (TaskRejectedException e) {
+            logger.warn("No I/O thread free to decode {} while it uploads", destination.getFileName());
+            pipe.abandon();
+            decoding = null;
+        }
+
+        boolean stored = false;
+        try {
+            try (InputStream in = file.getInputStream();
+                 OutputStream out = Files.newOutputStream(partial)) {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    out.write(chunk, 0, read);
+                    digest.update(chunk, 0, read);
+                    pipe.write(chunk, 0, read);
+                }
+            }
+            pipe.finish();
+            Files.move(partial, destination, StandardCopyOption.REPLACE_EXISTING);
+            stored = true;
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + destination.getFileName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while storing " + destination.getFileName(), e);
+        } finally {
+            if (!stored) {
+                pipe.abandon();
+                if (decoding != null) {
+                    decoding.cancel(true);
+                }
+                deleteQuietly(partial);
+                decodedAudioCache.discardPartialEntry(pcm);
+            }
+        }
+        logger.info("Successfully stored file: {}", destination.getFileName());
+
+        String contentHash = ContentHashUtil.toHex(digest);
+        AudioPreviewDTO preview = decoding != null ? awaitPreview(decoding, pcm, contentHash) : null;
+        if (preview == null) {
+            decodedAudioCache.discardPartialEntry(pcm);
+            preview = new AudioPreviewDTO();
+        }
+        preview.setContentHash(contentHash);
+        return new IngestedAudio(destination, preview);
+    }
+
+    private AudioPreviewDTO decodePreview(ChunkPipe upload, Path pcm) throws Exception {
+        try (ChunkPipe in = upload; FileChannel channel = decodedAudioCache.openPartialEntry(pcm)) {
+            MonoPcmInputStream mono = PcmDecoder.openMono(in, channel);
+            AudioPreviewDTO preview = analysisUtil.extractPreview(mono);
+            // the PCM is cached at the decode/cache rate, the preview reports the upload's own
+            preview.setSampleRate(mono.getSourceSampleRate());
+            return preview;
+        }
+    }
+
+    /**
+     * Waits for the decoder to work through the last chunks and publishes its
+     * PCM under the content hash. Returns null when there is no preview.
+     */
+    private AudioPreviewDTO awaitPreview(Future<AudioPreviewDTO> decoding, Path pcm, String contentHash) {
+        try {
+            AudioPreviewDTO preview = decoding.get();
+            decodedAudioCache.commitPartialEntry(pcm, contentHash, PcmDecoder.SAMPLE_RATE);
+            return preview;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            decoding.cancel(true);
+        } catch (ExecutionException e) {
+            // expected for formats javax.sound cannot stream, they are decoded on first analysis
+            logger.debug("No preview for {}: {}", contentHash, e.getCause().getMessage());
+        } catch (IOException e) {
+            logger.warn("Could not cache the PCM decoded during upload of {}", contentHash, e);
+        }
+        return null;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete partial upload {}", path, e);
+        }
+    }
+
+    public static final class IngestedAudio {
+        private final Path path;
+        private final AudioPreviewDTO preview;
+
+        IngestedAudio(Path path, AudioPreviewDTO preview) {
+            this.path = path;
+            this.preview = preview;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public AudioPreviewDTO getPreview() {
+            return preview;
+        }
+    }
+
+    /**
+     * Hands the upload's chunks from the request thread to the decoder. Once the
+     * decoder closes its end, or the upload abandons the pipe, further chunks are
+     * dropped and reads fail.
+     */
+    private static final class ChunkPipe extends InputStream {
+        private static final byte[] END = new byte[0];
+        private static final byte[] ABANDONED = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(PIPE_CHUNKS);
+        private volatile boolean closed;
+        private byte[] current = new byte[0];
+        private int position;
+
+        void write(byte[] b, int off, int len) throws InterruptedException {
+            offer(Arrays.copyOfRange(b, off, off + len));
+        }
+
+        void finish() throws InterruptedException {
+            offer(END);
+        }
+
+        void abandon() {
+            closed = true;
+            chunks.clear();
+            chunks.offer(ABANDONED);
+        }
+
+        private void offer(byte[] chunk) throws InterruptedException {
+            if (!closed && !chunks.offer(chunk, PIPE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Upload decoder fell behind, storing the upload without a preview");
+                abandon();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                if (current == END) {
+                    return -1;
+                }
+                if (current == ABANDONED) {
+                    throw new IOException("Upload aborted");
+                }
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Upload decoding interrupted");
+                }
+                position = 0;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // stops the writer from queueing chunks nobody reads
+            closed = true;
+            chunks.clear();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.LogicBro.service;
+
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+import be.tarsos.dsp.writer.WaveHeader;
+import com.example.LogicBro.config.AudioUploadProperties;
+import com.example.LogicBro.dto.RenderResultDTO;
+import com.example.LogicBro.entity.AudioFile;
+import com.example.LogicBro.repository.AudioFileRepository;
+import com.example.LogicBro.util.AudioConversionUtil;
+import com.example.LogicBro.util.ContentHashUtil;
+import com.example.LogicBro.util.DecodedAudio;
+import com.example.LogicBro.util.KeyedLocks;
+import com.example.LogicBro.util.PcmDecoder;
+import com.example.LogicBro.util.TimePitchRenderer;
+import com.example.LogicBro.util.WaveFileStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Renders tempo and pitch variations of uploads with WSOLA and resampling,
+ * offline and faster than realtime (see {@link TimePitchRenderer}). Renderings
+ * are float WAV files under {@code logicbro.upload.renderPath}, named after a
+ * hash of the content hash and the parameters, so a variation is rendered once
+ * however often and for whichever upload of the same audio it is requested.
+ * The least recently used renderings are deleted once they take more than
+ * {@code logicbro.upload.renderCacheMaxBytes} (see {@link WaveFileStore}).
+ */
+@Service
+public class AudioRenderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioRenderService.class);
+    private static final int RENDER_VERSION = 1;
+    private static final double MIN_FACTOR = 0.25;
+    private static final double MAX_FACTOR = 4;
+    private static final Pattern RENDER_ID = Pattern.compile("[0-9a-f]{64}");
+
+    private final AudioFileRepository audioFileRepository;
+    private final AudioConversionUtil audioConversionUtil;
+    private final AudioConversionService conversionService;
+    private final ForkJoinPool renderPool;
+    private final WaveFileStore store;
+    private final KeyedLocks renderLocks = new KeyedLocks();
+
+    public AudioRenderService(AudioFileRepository audioFileRepository,
+                              AudioConversionUtil audioConversionUtil,
+                              AudioConversionService conversionService,
+                              @Qualifier("analysisForkJoinPool") ForkJoinPool renderPool,
+                              AudioUploadProperties properties) {
+        this.audioFileRepository = audioFileRepository;
+        this.audioConversionUtil = audioConversionUtil;
+        this.conversionService = conversionService;
+        this.renderPool = renderPool;
+        this.store = new WaveFileStore(Paths.get(properties.getRenderPath()), properties.getRenderCacheMaxBytes(),
+            "render cache");
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        store.init();
+    }
+
+    @Async("ioExecutor")
+    public CompletableFuture<RenderResultDTO> renderAsync(String fileId, double tempo, double pitch) {
+        return CompletableFuture.completedFuture(render(fileId, tempo, pitch));
+    }
+
+    /**
+     * Returns the rendering of an upload at the given tempo and pitch factors,
+     * rendering it on the calling thread unless it already exists.
+     */
+    public RenderResultDTO render(String fileId, double tempo, double pitch) {
+        checkFactor("tempo", tempo);
+        checkFactor("pitch", pitch);
+        AudioFile audioFile = audioFileRepository.findByFileId(fileId)
+            .orElseThrow(() -> new IllegalArgumentException("File not found"));
+        File source = new File(audioFile.getFilePath());
+        if (audioFile.getContentHash() == null) {
+            // Uploaded before content hashing was introduced
+            audioFile.setContentHash(hashContent(source));
+            audioFileRepository.save(audioFile);
+        }
+
+        String renderId = renderId(audioFile.getContentHash(), tempo, pitch);
+        boolean cached = true;
+        WaveHeader header;
+        Object lock = renderLocks.acquire(renderId);
+        try {
+            synchronized (lock) {
+                header = store.read(renderId, AudioRenderService::readHeader);
+                if (header == null) {
+                    header = renderToEntry(source, tempo, pitch, renderId);
+                    cached = false;
+                } else {
+                    logger.debug("Serving stored rendering {} of {}", renderId, audioFile.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not render " + audioFile.getFileName(), e);
+        } finally {
+            renderLocks.release(renderId);
+        }
+
+        RenderResultDTO result = new RenderResultDTO();
+        result.setRenderId(renderId);
+        result.setFileId(fileId);
+        result.setTempo(tempo);
+        result.setPitch(pitch);
+        result.setSampleRate(header.getSampleRate());
+        result.setChannels(header.getNumChannels());
+        result.setDurationSeconds((double) WaveFileStore.dataBytes(header)
+            / (header.getNumChannels() * DecodedAudio.BYTES_PER_SAMPLE) / header.getSampleRate());
+        result.setCached(cached);
+        result.setDownloadUrl("/api/audio/render/output/" + renderId);
+        return result;
+    }
+
+    /**
+     * Opens the stored rendering with the given id, if there is one. The
+     * stream stays readable when the rendering is evicted while it is served.
+     */
+    public InputStream openRendering(String renderId) {
+        if (!RENDER_ID.matcher(renderId).matches()) {
+            return null;
+        }
+        try {
+            return store.read(renderId, Files::newInputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open rendering " + renderId, e);
+        }
+    }
+
+    private WaveHeader renderToEntry(File source, double tempo, double pitch, String renderId) throws IOException {
+        Path partial = store.createPartial();
+        long started = System.nanoTime();
+        File converted = null;
+        try {
+            TarsosDSPAudioInputStream stream;
+            try {
+                stream = PcmDecoder.openPcmStream(source);
+            } catch (UnsupportedAudioFileException | IOException e) {
+                if (!audioConversionUtil.isConversionSupported()) {
+                    throw new IOException("Unsupported audio format: " + e.getMessage(), e);
+                }
+                converted = conversionService.convertToWav(source);
+                stream = PcmDecoder.openPcmStream(converted);
+            }
+
+            float sampleRate = stream.getFormat().getSampleRate();
+            int channels = stream.getFormat().getChannels();
+            long frames;
+            try (FileChannel channel = store.openPartial(partial)) {
+                try {
+                    if (stream.getFrameLength() > 0) {
+                        // renders of streams of unknown length fail when the header is written instead
+                        WaveFileStore.checkFrames(TimePitchRenderer.targetFrames(stream.getFrameLength(), tempo),
+                            channels);
+                    }
+                    frames = new TimePitchRenderer(tempo, pitch, renderPool).render(stream, channel);
+                } finally {
+                    stream.close();
+                }
+                WaveFileStore.writeHeader(channel, sampleRate, channels);
+            }
+            WaveHeader header = store.publish(partial, renderId, AudioRenderService::readHeader);
+
+            double seconds = (System.nanoTime() - started) / 1e9;
+            logger.info("Rendered {} at tempo {} and pitch {} in {} ms, {}x realtime", source.getName(), tempo,
+                pitch, Math.round(seconds * 1000), String.format(Locale.ROOT, "%.1f", frames / sampleRate / seconds));
+            return header;
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("Unsupported audio format: " + e.getMessage(), e);
+        } finally {
+            store.discardPartial(partial);
+            conversionService.deleteTemporaryFile(converted);
+        }
+    }
+
+    private static WaveHeader readHeader(Path entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            return WaveFileStore.readHeader(channel);
+        }
+    }
+
+    private static String renderId(String contentHash, double tempo, double pitch) {
+        String parameters = String.format(Locale.ROOT, "%s;v%d;wsola=music;resampler=hq;tempo=%s;pitch=%s",
+            contentHash, RENDER_VERSION, tempo, pitch);
+        MessageDigest digest = ContentHashUtil.newDigest();
+        digest.update(parameters.getBytes(StandardCharsets.UTF_8));
+        return ContentHashUtil.toHex(digest);
+    }
+
+    private static void checkFactor(String name, double factor) {
+        if (!(factor >= MIN_FACTOR && factor <= MAX_FACTOR)) {
+            throw new IllegalArgumentException("The " + name + " factor must be between " + MIN_FACTOR
+                + " and " + MAX_FACTOR);
+        }
+    }
+
+    private static String hashContent(File file) {
+        try {
+            return ContentHashUtil.sha256Hex(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not hash " + file.getName(), e);
+        }
+    }
+}
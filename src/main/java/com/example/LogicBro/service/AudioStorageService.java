@@ -52,6 +52,21 @@ public class AudioStorageService {
     }
     
     public String storeAudio(MultipartFile file) {
+        Path destinationPath = resolveDestination(file);
+        try {
+            Files.copy(file.getInputStream(), destinationPath, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Successfully stored file: {}", destinationPath.getFileName());
+            return destinationPath.toString();
+            
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + destinationPath.getFileName(), e);
+        }
+    }
+    
+    /**
+     * Validates the upload and returns the path it is stored under.
+     */
+    Path resolveDestination(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new StorageException("Failed to store empty file");
         }
@@ -71,20 +86,12 @@ public class AudioStorageService {
             throw new StorageException("Cannot store file with relative path outside current directory: " + filename);
         }
         
-        try {
-            Path destinationPath = Paths.get(getAudioUploadPath()).resolve(filename).normalize();
-            
-            if (!destinationPath.getParent().equals(Paths.get(getAudioUploadPath()).normalize())) {
-                throw new StorageException("Cannot store file outside current directory");
-            }
-            
-            Files.copy(file.getInputStream(), destinationPath, StandardCopyOption.REPLACE_EXISTING);
-            logger.info("Successfully stored file: {}", filename);
-            return destinationPath.toString();
-            
-        } catch (IOException e) {
-            throw new StorageException("Failed to store file " + filename, e);
+        Path destinationPath = Paths.get(getAudioUploadPath()).resolve(filename).normalize();
+        
+        if (!destinationPath.getParent().equals(Paths.get(getAudioUploadPath()).normalize())) {
+            throw new StorageException("Cannot store file outside current directory");
         }
+        return destinationPath;
     }
     
     private boolean isValidAudioFile(MultipartFile file) {
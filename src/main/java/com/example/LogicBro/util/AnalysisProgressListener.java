@@ -0,0 +1,31 @@
+package com.example.LogicBro.util;
+
+import com.example.LogicBro.dto.AnalysisProgressDTO;
+
+/**
+ * Receives progress while {@link AudioAnalysisUtil} extracts features. Called on
+ * the analysis thread once per frame, so implementations should be cheap.
+ */
+@FunctionalInterface
+public interface AnalysisProgressListener {
+
+    AnalysisProgressListener NONE = progress -> {};
+
+    /**
+     * @param progress fraction of the audio processed, between 0 and 1
+     */
+    void onProgress(double progress);
+
+    /**
+     * Running key, tempo and pitch histogram over the audio processed so far.
+     */
+    default void onPartialResult(AnalysisProgressDTO partial) {
+    }
+
+    /**
+     * Polled once per frame; returning true stops the dispatcher.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -3,60 +3,100 @@ package com.example.LogicBro.util;
 import be.tarsos.dsp.AudioDispatcher;
 import be.tarsos.dsp.AudioEvent;
 import be.tarsos.dsp.AudioProcessor;
-import be.tarsos.dsp.io.jvm.AudioDispatcherFactory;
+import be.tarsos.dsp.BatchAudioDispatcher;
+import be.tarsos.dsp.BatchAudioProcessor;
+import be.tarsos.dsp.FrameBatch;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
 import be.tarsos.dsp.pitch.PitchDetectionHandler;
 import be.tarsos.dsp.pitch.PitchProcessor;
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HannWindow;
+import com.example.LogicBro.config.AudioConfig;
+import com.example.LogicBro.dto.AnalysisProgressDTO;
 import com.example.LogicBro.dto.AudioAnalysisDTO;
+import com.example.LogicBro.dto.AudioPreviewDTO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 @Component
 public class AudioAnalysisUtil {
     private static final float SAMPLE_RATE = 44100;
     private static final int BUFFER_SIZE = 2048;
     private static final int OVERLAP = 1024;
+    // Frames handed to the feature extractors per call, about 1.5 s of audio at 44.1 kHz
+    private static final int FRAMES_PER_BATCH = 64;
+    // A beat needs this fraction of the loud end of the frame energies, so the
+    // threshold does not depend on the level or the rate the energies were taken at
+    private static final double BEAT_ENERGY_THRESHOLD = 0.5;
+    private static final double BEAT_REFERENCE_PERCENTILE = 0.95;
+    private static final double MIN_BEAT_INTERVAL = 0.3;
+    // Bump when the extraction or derivation logic changes so stored results are recomputed
+    private static final int ANALYSIS_VERSION = 2;
+    // Fraction of the file between partial results sent to progress listeners
+    private static final double PARTIAL_RESULT_INTERVAL = 0.05;
+    // Sharded extraction of long files
+    private static final double SHARDING_MIN_SECONDS = 30;
+    private static final double MIN_SEGMENT_SECONDS = 5;
+    private static final int SEGMENTS_PER_WORKER = 4;
+    private static final int SEGMENT_WARMUP_FRAMES = 1;
 
     @Autowired
     private AudioConversionUtil audioConversionUtil;
 
-    public static List<Float> extractPitches(File audioFile) throws RuntimeException {
+    @Autowired(required = false)
+    private DecodedAudioCache decodedAudioCache;
+
+    @Autowired(required = false)
+    @Qualifier("analysisForkJoinPool")
+    private ForkJoinPool analysisForkJoinPool;
+
+    @Autowired(required = false)
+    private AudioConfig audioConfig;
+
+    public static PitchTrack extractPitches(File audioFile) throws RuntimeException {
         // Create a temporary instance to use conversion utility
         AudioAnalysisUtil instance = new AudioAnalysisUtil();
         return instance.extractPitchesWithConversion(audioFile);
     }
 
-    public List<Float> extractPitchesWithConversion(File audioFile) throws RuntimeException {
+    public PitchTrack extractPitchesWithConversion(File audioFile) throws RuntimeException {
         return extractPitches(audioFile, audioConversionUtil);
     }
 
-    public List<Float> extractPitches(File audioFile, AudioConversionUtil conversionUtil) throws RuntimeException {
-        File fileToAnalyze = audioFile;
-        File tempFile = null;
-
+    public PitchTrack extractPitches(File audioFile, AudioConversionUtil conversionUtil) throws RuntimeException {
         try {
-            // Check if format conversion is needed
-            if (conversionUtil != null && !conversionUtil.isSupportedFormat(audioFile)) {
-                tempFile = conversionUtil.convertToWav(audioFile);
-                fileToAnalyze = tempFile;
-            }
+            DecodedAudio decoded = decode(audioFile, conversionUtil);
 
-            List<Float> pitches = new ArrayList<>();
-            AudioDispatcher dispatcher = AudioDispatcherFactory.fromFile(fileToAnalyze, BUFFER_SIZE, OVERLAP);
+            PitchTrack pitches = new PitchTrack();
+            AudioDispatcher dispatcher = decoded.createDispatcher(BUFFER_SIZE, OVERLAP);
 
             dispatcher.addAudioProcessor(new PitchProcessor(
                 PitchProcessor.PitchEstimationAlgorithm.YIN,
-                SAMPLE_RATE,
+                decoded.getSampleRate(),
                 BUFFER_SIZE,
                 (PitchDetectionHandler) (result, event) -> {
                     if (result.getPitch() != -1) {
-                        pitches.add(result.getPitch());
+                        pitches.add(result.getPitch(), result.getProbability(), (float) event.getTimeStamp());
                     }
                 }
             ));
@@ -66,15 +106,548 @@ public class AudioAnalysisUtil {
 
         } catch (Exception e) {
             throw new RuntimeException("Error analyzing audio file: " + e.getMessage(), e);
-        } finally {
-            // Clean up temporary file
-            if (conversionUtil != null && tempFile != null) {
-                conversionUtil.cleanupTempFile(tempFile);
+        }
+    }
+
+    /**
+     * Decodes the file once and runs every frame-level extractor (YIN pitch,
+     * RMS energy, spectral centroid and flux) on the same batches of frames.
+     */
+    public AudioFeatures extractFeatures(File audioFile) throws RuntimeException {
+        return extractFeatures(audioFile, null);
+    }
+
+    /**
+     * Same as {@link #extractFeatures(File)} for a file whose SHA-256 is already known.
+     */
+    public AudioFeatures extractFeatures(File audioFile, String contentHash) throws RuntimeException {
+        return extractFeatures(audioFile, contentHash, AnalysisProgressListener.NONE);
+    }
+
+    public AudioFeatures extractFeatures(File audioFile, String contentHash, AnalysisProgressListener listener)
+            throws RuntimeException {
+        try {
+            // decoding waits on FFmpeg and the disk and stays on the caller's thread,
+            // the extraction is CPU bound and runs on the DSP pool
+            DecodedAudio decoded = decode(audioFile, contentHash);
+            return onDspPool(() -> extractFeatures(decoded, listener));
+        } catch (Exception e) {
+            throw new RuntimeException("Error analyzing audio file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs the task on the analysis fork/join pool and waits for it, or runs it
+     * directly when there is no pool or the caller is one of its workers.
+     */
+    private <T> T onDspPool(Callable<T> task) throws Exception {
+        if (analysisForkJoinPool == null || ForkJoinTask.inForkJoinPool()
+                && ForkJoinTask.getPool() == analysisForkJoinPool) {
+            return task.call();
+        }
+        Future<T> result = analysisForkJoinPool.submit(task);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Analysis interrupted");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    public AudioFeatures extractFeatures(DecodedAudio decoded) {
+        return extractFeatures(decoded, AnalysisProgressListener.NONE);
+    }
+
+    /**
+     * Runs the fused extraction, reporting progress and periodic partial results to
+     * the listener. Stops the dispatcher and throws {@link CancellationException}
+     * as soon as the listener reports that it was cancelled. Files longer than
+     * {@value #SHARDING_MIN_SECONDS} seconds are split into segments that are
+     * analyzed in parallel when the analysis fork/join pool is available. The
+     * audio is first decimated to the configured analysis rate.
+     */
+    public AudioFeatures extractFeatures(DecodedAudio decoded, AnalysisProgressListener listener) {
+        AnalysisFrames frames = analysisFrames(decoded.getSampleRate());
+        DecodedAudio analyzed = decoded.resample(frames.sampleRate);
+        if (analysisForkJoinPool != null && analysisForkJoinPool.getParallelism() > 1
+                && analyzed.getDurationSeconds() >= SHARDING_MIN_SECONDS) {
+            return extractFeaturesSharded(analyzed, frames, listener);
+        }
+
+        int sampleCount = analyzed.getSampleCount();
+        BatchAudioDispatcher dispatcher = analyzed.createBatchDispatcher(frames.bufferSize, frames.overlap,
+            FRAMES_PER_BATCH, 0, sampleCount);
+        // too short to shard: estimate the pitch of each batch next to energy and spectrum instead
+        ForkJoinPool pitchPool = analysisForkJoinPool != null && analysisForkJoinPool.getParallelism() > 1
+            ? analysisForkJoinPool : null;
+        AudioFeatures features = new AudioFeatures();
+        dispatcher.addBatchProcessor(new FeatureExtractor(dispatcher, features, frames, FrameWindow.ALL, pitchPool));
+        // stops the chain when cancelled, so it has to run after the extractors
+        dispatcher.addBatchProcessor(new BatchAudioProcessor() {
+            private double lastPartialResult;
+
+            @Override
+            public boolean processBatch(FrameBatch batch) {
+                if (listener.isCancelled()) {
+                    dispatcher.stop();
+                    return false;
+                }
+                double progress = Math.min(1.0,
+                    (double) batch.getSamplesProcessed(batch.getFrameCount() - 1) / sampleCount);
+                listener.onProgress(progress);
+                if (progress - lastPartialResult >= PARTIAL_RESULT_INTERVAL) {
+                    lastPartialResult = progress;
+                    listener.onPartialResult(partialAnalysis(features, progress));
+                }
+                return true;
+            }
+
+            @Override
+            public void processingFinished() {
+                if (!listener.isCancelled()) {
+                    listener.onProgress(1.0);
+                }
+            }
+        });
+
+        dispatcher.run();
+        if (listener.isCancelled()) {
+            throw new CancellationException("Analysis cancelled");
+        }
+
+        features.setBeatTimes(detectBeats(features.getFrameTimes(), features.getFrameEnergies()));
+        return features;
+    }
+
+    /**
+     * Splits the decoded audio into consecutive frame ranges and extracts each on the
+     * fork/join pool. Every segment starts {@value #SEGMENT_WARMUP_FRAMES} frame(s)
+     * early so spectral flux sees the same previous frame as a sequential run, and
+     * only records the frames it owns, so the concatenated result matches the
+     * sequential one frame for frame.
+     */
+    private AudioFeatures extractFeaturesSharded(DecodedAudio decoded, AnalysisFrames frames,
+                                                 AnalysisProgressListener listener) {
+        int hop = frames.bufferSize - frames.overlap;
+        int totalSamples = decoded.getSampleCount();
+        int approxFrames = Math.max(1, totalSamples / hop);
+        int minSegmentFrames = (int) (MIN_SEGMENT_SECONDS * decoded.getSampleRate() / hop);
+        int workers = analysisForkJoinPool.getParallelism() * SEGMENTS_PER_WORKER;
+        int segmentFrames = Math.max(minSegmentFrames, (approxFrames + workers - 1) / workers);
+        int segmentCount = Math.max(1, (approxFrames + segmentFrames - 1) / segmentFrames);
+
+        ShardProgress progress = new ShardProgress(listener, frames, approxFrames, segmentCount);
+        List<Callable<AudioFeatures>> tasks = new ArrayList<>(segmentCount);
+        for (int segment = 0; segment < segmentCount; segment++) {
+            int firstFrame = segment * segmentFrames;
+            int startFrame = Math.max(0, firstFrame - SEGMENT_WARMUP_FRAMES);
+            int startSample = startFrame * hop;
+            boolean last = segment == segmentCount - 1;
+            // The last segment runs to the end of the audio, like a sequential run would
+            int endFrame = last ? Integer.MAX_VALUE : firstFrame + segmentFrames;
+            int sampleCount = last
+                ? totalSamples - startSample
+                : Math.min(totalSamples - startSample, (endFrame - startFrame - 1) * hop + frames.bufferSize);
+            FrameWindow window = new FrameWindow(startSample,
+                firstFrame - startFrame, last ? Integer.MAX_VALUE : endFrame - startFrame);
+
+            int index = segment;
+            tasks.add(() -> {
+                BatchAudioDispatcher dispatcher = decoded.createBatchDispatcher(frames.bufferSize, frames.overlap,
+                    FRAMES_PER_BATCH, startSample, sampleCount);
+                AudioFeatures features = new AudioFeatures();
+                dispatcher.addBatchProcessor(new FeatureExtractor(dispatcher, features, frames, window, null));
+                dispatcher.addBatchProcessor(new BatchAudioProcessor() {
+                    @Override
+                    public boolean processBatch(FrameBatch batch) {
+                        if (listener.isCancelled()) {
+                            dispatcher.stop();
+                            return false;
+                        }
+                        progress.framesDone(batch.getFrameCount());
+                        return true;
+                    }
+
+                    @Override
+                    public void processingFinished() {}
+                });
+                dispatcher.run();
+                progress.segmentDone(index, features);
+                return features;
+            });
+        }
+
+        List<AudioFeatures> segments = new ArrayList<>(segmentCount);
+        for (Future<AudioFeatures> result : analysisForkJoinPool.invokeAll(tasks)) {
+            try {
+                segments.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Analysis interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error analyzing segment: " + e.getCause().getMessage(), e.getCause());
             }
         }
+        if (listener.isCancelled()) {
+            throw new CancellationException("Analysis cancelled");
+        }
+
+        AudioFeatures features = mergeSegments(segments, frames);
+        features.setBeatTimes(detectBeats(features.getFrameTimes(), features.getFrameEnergies()));
+        listener.onProgress(1.0);
+        return features;
     }
 
-    public String determineKey(List<Float> pitches) {
+    private static AudioFeatures mergeSegments(List<AudioFeatures> segments, AnalysisFrames frames) {
+        AudioFeatures merged = new AudioFeatures();
+        merged.setSampleRate(frames.sampleRate);
+        merged.setBufferSize(frames.bufferSize);
+        merged.setOverlap(frames.overlap);
+        for (AudioFeatures segment : segments) {
+            if (segment == null) {
+                continue;
+            }
+            merged.getPitches().addAll(segment.getPitches());
+            merged.getFrameTimes().addAll(segment.getFrameTimes());
+            merged.getFrameEnergies().addAll(segment.getFrameEnergies());
+            merged.getSpectralCentroids().addAll(segment.getSpectralCentroids());
+            merged.getSpectralFlux().addAll(segment.getSpectralFlux());
+        }
+        return merged;
+    }
+
+    /**
+     * Returns mono float PCM for the file, decoding it at most once per content
+     * hash when the decoded audio cache is available.
+     */
+    public DecodedAudio decode(File audioFile) throws IOException, UnsupportedAudioFileException {
+        return decode(audioFile, audioConversionUtil);
+    }
+
+    public DecodedAudio decode(File audioFile, String contentHash) throws IOException, UnsupportedAudioFileException {
+        if (decodedAudioCache != null && contentHash != null) {
+            return decodedAudioCache.get(audioFile, contentHash);
+        }
+        return decode(audioFile, audioConversionUtil);
+    }
+
+    private DecodedAudio decode(File audioFile, AudioConversionUtil conversionUtil)
+            throws IOException, UnsupportedAudioFileException {
+        if (decodedAudioCache != null) {
+            return decodedAudioCache.get(audioFile);
+        }
+        // Outside the Spring context there is no cache, decode onto the heap
+        ByteArrayOutputStream pcm = new ByteArrayOutputStream();
+        float sampleRate = PcmDecoder.decodeMono(audioFile, conversionUtil, Channels.newChannel(pcm));
+        return new DecodedAudio(null, sampleRate, ByteBuffer.wrap(pcm.toByteArray()));
+    }
+
+    /**
+     * Measures duration, loudness and a YIN pitch preview in a single pass over a
+     * mono stream, e.g. an upload that is still arriving. Blocks until the stream
+     * ends.
+     */
+    public AudioPreviewDTO extractPreview(TarsosDSPAudioInputStream mono) {
+        float sampleRate = mono.getFormat().getSampleRate();
+        AudioDispatcher dispatcher = new AudioDispatcher(mono, BUFFER_SIZE, OVERLAP);
+
+        PitchTrack pitches = new PitchTrack();
+        dispatcher.addAudioProcessor(new PitchProcessor(
+            PitchProcessor.PitchEstimationAlgorithm.YIN,
+            sampleRate,
+            BUFFER_SIZE,
+            (PitchDetectionHandler) (result, event) -> {
+                if (result.getPitch() != -1) {
+                    pitches.add(result.getPitch(), result.getProbability(), (float) event.getTimeStamp());
+                }
+            }
+        ));
+
+        double[] sumOfSquares = new double[1];
+        float[] peak = new float[1];
+        dispatcher.addAudioProcessor(new AudioProcessor() {
+            @Override
+            public boolean process(AudioEvent audioEvent) {
+                // only the samples this block adds, the overlap was counted with the previous one
+                float[] buffer = audioEvent.getFloatBuffer();
+                for (int i = audioEvent.getOverlap(); i < buffer.length; i++) {
+                    sumOfSquares[0] += buffer[i] * buffer[i];
+                    peak[0] = Math.max(peak[0], Math.abs(buffer[i]));
+                }
+                return true;
+            }
+
+            @Override
+            public void processingFinished() {}
+        });
+
+        dispatcher.run();
+
+        // counts the samples read, not the zeros padding the last block
+        double duration = dispatcher.secondsProcessed();
+        double sampleCount = duration * sampleRate;
+        AudioPreviewDTO preview = new AudioPreviewDTO();
+        preview.setDurationSeconds(duration);
+        preview.setSampleRate(sampleRate);
+        preview.setLoudness(toDecibels(sampleCount > 0 ? Math.sqrt(sumOfSquares[0] / sampleCount) : 0));
+        preview.setPeak(toDecibels(peak[0]));
+        if (!pitches.isEmpty()) {
+            float[] sorted = pitches.toPitchArray();
+            Arrays.sort(sorted);
+            preview.setMedianPitch((double) sorted[sorted.length / 2]);
+        }
+        preview.setKey(determineKey(pitches));
+        preview.setPitchHistogram(pitchClassHistogram(pitches));
+        return preview;
+    }
+
+    /**
+     * Returns null for digital silence.
+     */
+    private static Double toDecibels(double amplitude) {
+        return amplitude > 0 ? 20 * Math.log10(amplitude) : null;
+    }
+
+    /**
+     * Identifies the parameter set used by {@link #extractFeatures(File)} and the
+     * derivations on top of it. Stored results are only reused when it matches.
+     */
+    public String getParameterHash() {
+        AnalysisFrames frames = analysisFrames(PcmDecoder.SAMPLE_RATE);
+        String parameters = String.format(Locale.ROOT,
+            "v%d;pitch=YIN;sampleRate=%s;bufferSize=%d;overlap=%d;beatThreshold=%s*p%s;minBeatInterval=%s",
+            ANALYSIS_VERSION, frames.sampleRate, frames.bufferSize, frames.overlap, BEAT_ENERGY_THRESHOLD,
+            BEAT_REFERENCE_PERCENTILE, MIN_BEAT_INTERVAL);
+        MessageDigest digest = ContentHashUtil.newDigest();
+        digest.update(parameters.getBytes(StandardCharsets.UTF_8));
+        return ContentHashUtil.toHex(digest);
+    }
+
+    private AnalysisProgressDTO partialAnalysis(AudioFeatures features, double progress) {
+        AnalysisProgressDTO partial = new AnalysisProgressDTO();
+        partial.setProgress(progress);
+        partial.setKey(determineKey(features.getPitches()));
+        partial.setPitchHistogram(pitchClassHistogram(features.getPitches()));
+        partial.setTempo(estimateTempo(detectBeats(features.getFrameTimes(), features.getFrameEnergies())));
+        return partial;
+    }
+
+    /**
+     * The rate and windows of the fused extraction for PCM at the given rate.
+     * Below the decode rate the configured windows are scaled by the same
+     * factor, rounded up to a power of two, so frames span at least the same
+     * time and YIN reaches equally low pitches.
+     */
+    private AnalysisFrames analysisFrames(float decodedRate) {
+        int bufferSize = audioConfig != null ? audioConfig.getBufferSize() : BUFFER_SIZE;
+        int overlap = audioConfig != null ? audioConfig.getOverlap() : OVERLAP;
+        float fullRate = audioConfig != null ? audioConfig.getSampleRate() : SAMPLE_RATE;
+        float rate = audioConfig != null ? audioConfig.getAnalysisSampleRate() : fullRate;
+        if (rate >= decodedRate) {
+            return new AnalysisFrames(decodedRate, bufferSize, overlap);
+        }
+        int needed = (int) Math.ceil(bufferSize * rate / fullRate);
+        int scaled = Integer.highestOneBit(Math.max(1, needed - 1)) << 1;
+        return new AnalysisFrames(rate, scaled, overlap * scaled / bufferSize);
+    }
+
+    private static final class AnalysisFrames {
+        final float sampleRate;
+        final int bufferSize;
+        final int overlap;
+
+        AnalysisFrames(float sampleRate, int bufferSize, int overlap) {
+            this.sampleRate = sampleRate;
+            this.bufferSize = bufferSize;
+            this.overlap = overlap;
+        }
+    }
+
+    /**
+     * The frames of a dispatcher run that belong to the result. Segments start early
+     * so stateful extractors are warmed up and record only the frames they own;
+     * timestamps are shifted by the segment's sample offset into the audio.
+     */
+    private static final class FrameWindow {
+        static final FrameWindow ALL = new FrameWindow(0, 0, Integer.MAX_VALUE);
+
+        final long sampleOffset;
+        final int firstOwned;
+        final int end;
+
+        FrameWindow(long sampleOffset, int firstOwned, int end) {
+            this.sampleOffset = sampleOffset;
+            this.firstOwned = firstOwned;
+            this.end = end;
+        }
+
+        boolean isOwned(long frame) {
+            return frame >= firstOwned && frame < end;
+        }
+    }
+
+    /**
+     * Aggregates progress of the segments of a sharded run and publishes partial
+     * results for the completed prefix of segments, so tempo and key are computed
+     * over contiguous audio.
+     */
+    private final class ShardProgress {
+        private final AnalysisProgressListener listener;
+        private final AnalysisFrames frames;
+        private final int totalFrames;
+        private final AudioFeatures[] completed;
+        private int framesDone;
+        private int completedPrefix;
+        private double lastProgress;
+
+        ShardProgress(AnalysisProgressListener listener, AnalysisFrames frames, int totalFrames, int segmentCount) {
+            this.listener = listener;
+            this.frames = frames;
+            this.totalFrames = totalFrames;
+            this.completed = new AudioFeatures[segmentCount];
+        }
+
+        synchronized void framesDone(int frames) {
+            framesDone += frames;
+            double progress = Math.min(1.0, (double) framesDone / totalFrames);
+            if (progress - lastProgress >= 0.01) {
+                lastProgress = progress;
+                listener.onProgress(progress);
+            }
+        }
+
+        synchronized void segmentDone(int segment, AudioFeatures features) {
+            completed[segment] = features;
+            int prefix = completedPrefix;
+            while (prefix < completed.length && completed[prefix] != null) {
+                prefix++;
+            }
+            if (prefix > completedPrefix && prefix < completed.length && !listener.isCancelled()) {
+                completedPrefix = prefix;
+                AudioFeatures merged = mergeSegments(Arrays.asList(completed).subList(0, prefix), frames);
+                listener.onPartialResult(partialAnalysis(merged, Math.min(1.0, (double) framesDone / totalFrames)));
+            }
+        }
+    }
+
+    /**
+     * The fused frame-level extractors over a batch of frames at a time. With a pool
+     * the pitch of a batch is estimated there while energy and spectrum run on the
+     * dispatching thread. A segment stops after the batch with its last owned frame.
+     */
+    private static final class FeatureExtractor implements BatchAudioProcessor {
+        private final BatchAudioDispatcher dispatcher;
+        private final AudioFeatures features;
+        private final FrameWindow window;
+        private final ForkJoinPool pitchPool;
+        private final float sampleRate;
+        private final int bufferSize;
+        private final PitchProcessor pitchProcessor;
+        private final FFT fft;
+        private final float[] transformBuffer;
+        private final float[] magnitudes;
+        private final float[] previousMagnitudes;
+        // The pitch handler is called once per frame, in order
+        private long pitchFrame;
+
+        FeatureExtractor(BatchAudioDispatcher dispatcher, AudioFeatures features, AnalysisFrames frames,
+                         FrameWindow window, ForkJoinPool pitchPool) {
+            this.dispatcher = dispatcher;
+            this.features = features;
+            this.window = window;
+            this.pitchPool = pitchPool;
+            this.sampleRate = dispatcher.getFormat().getSampleRate();
+            this.bufferSize = frames.bufferSize;
+            this.fft = new FFT(bufferSize, new HannWindow());
+            this.transformBuffer = new float[bufferSize];
+            this.magnitudes = new float[bufferSize / 2];
+            this.previousMagnitudes = new float[bufferSize / 2];
+            features.setSampleRate(sampleRate);
+            features.setBufferSize(bufferSize);
+            features.setOverlap(frames.overlap);
+            this.pitchProcessor = new PitchProcessor(
+                PitchProcessor.PitchEstimationAlgorithm.YIN,
+                sampleRate,
+                bufferSize,
+                (PitchDetectionHandler) (result, event) -> {
+                    if (window.isOwned(pitchFrame++) && result.getPitch() != -1) {
+                        features.getPitches().add(result.getPitch(), result.getProbability(),
+                            (window.sampleOffset + event.getSamplesProcessed()) / sampleRate);
+                    }
+                }
+            );
+        }
+
+        @Override
+        public boolean processBatch(FrameBatch batch) {
+            ForkJoinTask<?> pitchTask = null;
+            if (pitchPool != null) {
+                pitchTask = pitchPool.submit(() -> pitchProcessor.processBatch(batch));
+            } else {
+                pitchProcessor.processBatch(batch);
+            }
+
+            float[] samples = batch.getSamples();
+            for (int frame = 0; frame < batch.getFrameCount(); frame++) {
+                boolean owned = window.isOwned(batch.getFirstFrameIndex() + frame);
+                if (owned) {
+                    // same float arithmetic as AudioEvent.getTimeStamp(), so segments line up exactly
+                    features.getFrameTimes().add(
+                        (double) ((window.sampleOffset + batch.getSamplesProcessed(frame)) / sampleRate));
+                    features.getFrameEnergies().add(
+                        AudioEvent.calculateRMS(samples, batch.getFrameOffset(frame), bufferSize));
+                }
+
+                // The FFT works in place, so transform a copy and leave the batch alone
+                batch.copyFrame(frame, transformBuffer);
+                fft.forwardTransform(transformBuffer);
+                fft.modulus(transformBuffer, magnitudes);
+
+                double weighted = 0, total = 0, flux = 0;
+                for (int bin = 0; bin < magnitudes.length; bin++) {
+                    weighted += fft.binToHz(bin, sampleRate) * magnitudes[bin];
+                    total += magnitudes[bin];
+                    double rise = magnitudes[bin] - previousMagnitudes[bin];
+                    if (rise > 0) flux += rise;
+                }
+                System.arraycopy(magnitudes, 0, previousMagnitudes, 0, magnitudes.length);
+
+                if (owned) {
+                    features.getSpectralCentroids().add(total == 0 ? 0 : weighted / total);
+                    features.getSpectralFlux().add(flux);
+                }
+            }
+
+            if (pitchTask != null) {
+                pitchTask.join();
+            }
+            if (batch.getFirstFrameIndex() + batch.getFrameCount() >= window.end) {
+                dispatcher.stop();
+            }
+            return true;
+        }
+
+        @Override
+        public void processingFinished() {}
+    }
+
+    public double detectTempo(AudioFeatures features) {
+        return estimateTempo(features.getBeatTimes());
+    }
+
+    public String detectTimeSignature(AudioFeatures features) {
+        return analyzeTimeSignatureFromBeats(features.getFrameEnergies());
+    }
+
+    public List<String> separateInstruments(AudioFeatures features) {
+        // Spectral features are collected; instrument classification is not implemented yet
+        return new ArrayList<>();
+    }
+
+    public String determineKey(PitchTrack pitches) {
         if (pitches == null || pitches.isEmpty()) {
             return "C"; // Default fallback
         }
@@ -82,18 +655,7 @@ public class AudioAnalysisUtil {
         // Simple key detection based on pitch frequency analysis
         // Convert pitches to note frequencies and find most common notes
         String[] keys = {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
-        int[] noteCount = new int[12];
-        
-        for (Float pitch : pitches) {
-            if (pitch > 0) {
-                // Convert frequency to MIDI note number
-                int midiNote = (int) Math.round(12 * Math.log(pitch / 440.0) / Math.log(2)) + 69;
-                int noteIndex = midiNote % 12;
-                if (noteIndex >= 0 && noteIndex < 12) {
-                    noteCount[noteIndex]++;
-                }
-            }
-        }
+        int[] noteCount = pitchClassHistogram(pitches);
         
         // Find the most frequent note
         int maxCount = 0;
@@ -108,7 +670,26 @@ public class AudioAnalysisUtil {
         return keys[keyIndex];
     }
 
-    public String determineScale(List<Float> pitches, String key) {
+    /**
+     * Counts pitches per pitch class, index 0 being C.
+     */
+    public int[] pitchClassHistogram(PitchTrack pitches) {
+        int[] noteCount = new int[12];
+        for (int i = 0; i < pitches.size(); i++) {
+            float pitch = pitches.getPitch(i);
+            if (pitch > 0) {
+                // Convert frequency to MIDI note number
+                int midiNote = (int) Math.round(12 * Math.log(pitch / 440.0) / Math.log(2)) + 69;
+                int noteIndex = midiNote % 12;
+                if (noteIndex >= 0 && noteIndex < 12) {
+                    noteCount[noteIndex]++;
+                }
+            }
+        }
+        return noteCount;
+    }
+    
+    public String determineScale(PitchTrack pitches, String key) {
         if (pitches == null || pitches.isEmpty()) {
             return "Major"; // Default fallback
         }
@@ -118,7 +699,8 @@ public class AudioAnalysisUtil {
         int majorCount = 0;
         int minorCount = 0;
         
-        for (Float pitch : pitches) {
+        for (int i = 0; i < pitches.size(); i++) {
+            float pitch = pitches.getPitch(i);
             if (pitch > 0) {
                 // Simple heuristic: check for major vs minor third intervals
                 double logPitch = Math.log(pitch);
@@ -134,7 +716,7 @@ public class AudioAnalysisUtil {
         return majorCount > minorCount ? "Major" : "Minor";
     }
 
-    public List<String> detectChordProgression(List<Float> pitches, String key, String scale) {
+    public List<String> detectChordProgression(PitchTrack pitches, String key, String scale) {
         List<String> chords = new ArrayList<>();
         
         if (pitches == null || pitches.isEmpty()) {
@@ -161,88 +743,40 @@ public class AudioAnalysisUtil {
     }
 
     public double detectTempo(File audioFile) throws UnsupportedAudioFileException, IOException {
-        File fileToAnalyze = audioFile;
-        File tempFile = null;
-
         try {
-            // Check if format conversion is needed
-            if (audioConversionUtil != null && !audioConversionUtil.isSupportedFormat(audioFile)) {
-                tempFile = audioConversionUtil.convertToWav(audioFile);
-                fileToAnalyze = tempFile;
-            }
+            DecodedAudio decoded = decode(audioFile);
 
-            final double[] tempo = {120.0}; // Default tempo
-            final List<Double> beatTimes = new ArrayList<>();
+            final List<Double> frameTimes = new ArrayList<>();
+            final List<Double> frameEnergies = new ArrayList<>();
             
-            AudioDispatcher dispatcher = AudioDispatcherFactory.fromFile(fileToAnalyze, BUFFER_SIZE, OVERLAP);
+            AudioDispatcher dispatcher = decoded.createDispatcher(BUFFER_SIZE, OVERLAP);
 
             dispatcher.addAudioProcessor(new AudioProcessor() {
-                private double lastBeat = 0;
-                
                 @Override
                 public boolean process(AudioEvent audioEvent) {
-                    // Simple beat detection based on energy changes
-                    double energy = 0;
-                    float[] buffer = audioEvent.getFloatBuffer();
-                    
-                    for (float sample : buffer) {
-                        energy += sample * sample;
-                    }
-                    
-                    energy = Math.sqrt(energy / buffer.length);
-                    
-                    // Detect beats based on energy spikes (simplified)
-                    if (energy > 0.1 && (audioEvent.getTimeStamp() - lastBeat) > 0.3) {
-                        beatTimes.add(audioEvent.getTimeStamp());
-                        lastBeat = audioEvent.getTimeStamp();
-                    }
-                    
+                    frameTimes.add(audioEvent.getTimeStamp());
+                    frameEnergies.add(audioEvent.getRMS());
                     return true;
                 }
 
                 @Override
-                public void processingFinished() {
-                    // Calculate average tempo from beat intervals
-                    if (beatTimes.size() > 1) {
-                        double totalInterval = 0;
-                        for (int i = 1; i < beatTimes.size(); i++) {
-                            totalInterval += beatTimes.get(i) - beatTimes.get(i - 1);
-                        }
-                        double avgInterval = totalInterval / (beatTimes.size() - 1);
-                        tempo[0] = 60.0 / avgInterval; // Convert to BPM
-                        
-                        // Clamp tempo to reasonable range
-                        tempo[0] = Math.max(60, Math.min(180, tempo[0]));
-                    }
-                }
+                public void processingFinished() {}
             });
 
             dispatcher.run();
-            return tempo[0];
+            return estimateTempo(detectBeats(frameTimes, frameEnergies));
 
         } catch (Exception e) {
             throw new RuntimeException("Error detecting tempo: " + e.getMessage(), e);
-        } finally {
-            // Clean up temporary file
-            if (audioConversionUtil != null && tempFile != null) {
-                audioConversionUtil.cleanupTempFile(tempFile);
-            }
         }
     }
 
     public List<String> separateInstruments(File audioFile) throws UnsupportedAudioFileException, IOException {
-        File fileToAnalyze = audioFile;
-        File tempFile = null;
-
         try {
-            // Check if format conversion is needed
-            if (audioConversionUtil != null && !audioConversionUtil.isSupportedFormat(audioFile)) {
-                tempFile = audioConversionUtil.convertToWav(audioFile);
-                fileToAnalyze = tempFile;
-            }
+            DecodedAudio decoded = decode(audioFile);
 
             List<String> instruments = new ArrayList<>();
-            AudioDispatcher dispatcher = AudioDispatcherFactory.fromFile(fileToAnalyze, BUFFER_SIZE, OVERLAP);
+            AudioDispatcher dispatcher = decoded.createDispatcher(BUFFER_SIZE, OVERLAP);
 
             dispatcher.addAudioProcessor(new AudioProcessor() {
                 @Override
@@ -263,16 +797,11 @@ public class AudioAnalysisUtil {
 
         } catch (Exception e) {
             throw new RuntimeException("Error separating instruments: " + e.getMessage(), e);
-        } finally {
-            // Clean up temporary file
-            if (audioConversionUtil != null && tempFile != null) {
-                audioConversionUtil.cleanupTempFile(tempFile);
-            }
         }
     }
     
     // Professional Key & Scale Analysis
-    public String detectKeyWithConfidence(List<Float> pitches, double[] confidence) {
+    public String detectKeyWithConfidence(PitchTrack pitches, double[] confidence) {
         if (pitches == null || pitches.isEmpty()) {
             confidence[0] = 0.0;
             return "C";
@@ -289,7 +818,8 @@ public class AudioAnalysisUtil {
         double[] pitchClass = new double[12];
         
         // Count pitch class occurrences
-        for (Float pitch : pitches) {
+        for (int i = 0; i < pitches.size(); i++) {
+            float pitch = pitches.getPitch(i);
             if (pitch > 0) {
                 int midiNote = (int) Math.round(12 * Math.log(pitch / 440.0) / Math.log(2)) + 69;
                 int noteIndex = midiNote % 12;
@@ -332,7 +862,7 @@ public class AudioAnalysisUtil {
         return keys[bestKey];
     }
     
-    public List<String> detectAlternativeKeys(List<Float> pitches, String primaryKey) {
+    public List<String> detectAlternativeKeys(PitchTrack pitches, String primaryKey) {
         List<String> alternatives = new ArrayList<>();
         
         // Circle of fifths related keys
@@ -351,7 +881,7 @@ public class AudioAnalysisUtil {
         return alternatives;
     }
     
-    public String determineMode(List<Float> pitches, String key) {
+    public String determineMode(PitchTrack pitches, String key) {
         if (pitches.isEmpty()) {
             return "Ionian"; // Major scale
         }
@@ -362,26 +892,18 @@ public class AudioAnalysisUtil {
     }
     
     // Advanced Chord Progression Analysis
-    public List<String> detectAdvancedChordProgression(List<Float> pitches, String key, String scale) {
+    public List<String> detectAdvancedChordProgression(PitchTrack pitches, String key, String scale) {
         List<String> chords = new ArrayList<>();
         
         if (pitches == null || pitches.isEmpty()) {
             return Arrays.asList("I", "V", "vi", "IV");
         }
         
-        // Segment audio into chord-sized chunks
+        // Segment audio into chord-sized chunks and analyze each for chord content
         int segmentSize = Math.max(50, pitches.size() / 8);
-        List<List<Float>> segments = new ArrayList<>();
-        
         for (int i = 0; i < pitches.size(); i += segmentSize) {
             int end = Math.min(i + segmentSize, pitches.size());
-            segments.add(pitches.subList(i, end));
-        }
-        
-        // Analyze each segment for chord content
-        for (List<Float> segment : segments) {
-            String chord = analyzeChordInSegment(segment, key, scale);
-            chords.add(chord);
+            chords.add(analyzeChordInSegment(pitches, i, end, key, scale));
         }
         
         return chords.isEmpty() ? Arrays.asList("I", "V", "vi", "IV") : chords;
@@ -423,7 +945,7 @@ public class AudioAnalysisUtil {
     }
     
     // Melodic Pattern Analysis
-    public List<String> detectMelodicPatterns(List<Float> pitches) {
+    public List<String> detectMelodicPatterns(PitchTrack pitches) {
         List<String> patterns = new ArrayList<>();
         
         if (pitches == null || pitches.size() < 4) {
@@ -434,8 +956,8 @@ public class AudioAnalysisUtil {
         int ascending = 0, descending = 0, steps = 0, leaps = 0;
         
         for (int i = 1; i < pitches.size(); i++) {
-            float prev = pitches.get(i - 1);
-            float curr = pitches.get(i);
+            float prev = pitches.getPitch(i - 1);
+            float curr = pitches.getPitch(i);
             
             if (prev > 0 && curr > 0) {
                 double interval = Math.abs(12 * Math.log(curr / prev) / Math.log(2));
@@ -460,7 +982,7 @@ public class AudioAnalysisUtil {
         return patterns;
     }
     
-    public List<String> detectMelodicMotifs(List<Float> pitches) {
+    public List<String> detectMelodicMotifs(PitchTrack pitches) {
         List<String> motifs = new ArrayList<>();
         
         if (pitches == null || pitches.size() < 6) {
@@ -470,12 +992,9 @@ public class AudioAnalysisUtil {
         // Look for repeated pitch patterns
         int motifLength = 4;
         for (int i = 0; i <= pitches.size() - motifLength * 2; i++) {
-            List<Float> pattern = pitches.subList(i, i + motifLength);
-            
             // Check for repetitions
             for (int j = i + motifLength; j <= pitches.size() - motifLength; j++) {
-                List<Float> candidate = pitches.subList(j, j + motifLength);
-                if (areSimilarPitchPatterns(pattern, candidate)) {
+                if (areSimilarPitchPatterns(pitches, i, j, motifLength)) {
                     motifs.add("Motif at " + formatTime(i) + " repeated at " + formatTime(j));
                     break;
                 }
@@ -485,7 +1004,7 @@ public class AudioAnalysisUtil {
         return motifs;
     }
     
-    public String analyzeMelodicDirection(List<Float> pitches) {
+    public String analyzeMelodicDirection(PitchTrack pitches) {
         if (pitches == null || pitches.size() < 2) {
             return "Static";
         }
@@ -493,8 +1012,8 @@ public class AudioAnalysisUtil {
         int ascending = 0, descending = 0;
         
         for (int i = 1; i < pitches.size(); i++) {
-            if (pitches.get(i) > pitches.get(i - 1)) ascending++;
-            else if (pitches.get(i) < pitches.get(i - 1)) descending++;
+            if (pitches.getPitch(i) > pitches.getPitch(i - 1)) ascending++;
+            else if (pitches.getPitch(i) < pitches.getPitch(i - 1)) descending++;
         }
         
         if (ascending > descending * 1.5) return "Primarily Ascending";
@@ -514,18 +1033,12 @@ public class AudioAnalysisUtil {
     }
     
     public String detectTimeSignature(File audioFile) throws UnsupportedAudioFileException, IOException {
-        File fileToAnalyze = audioFile;
-        File tempFile = null;
-        
         try {
-            if (audioConversionUtil != null && !audioConversionUtil.isSupportedFormat(audioFile)) {
-                tempFile = audioConversionUtil.convertToWav(audioFile);
-                fileToAnalyze = tempFile;
-            }
+            DecodedAudio decoded = decode(audioFile);
             
             // Analyze beat patterns to determine time signature
             List<Double> beatStrengths = new ArrayList<>();
-            AudioDispatcher dispatcher = AudioDispatcherFactory.fromFile(fileToAnalyze, BUFFER_SIZE, OVERLAP);
+            AudioDispatcher dispatcher = decoded.createDispatcher(BUFFER_SIZE, OVERLAP);
             
             dispatcher.addAudioProcessor(new AudioProcessor() {
                 @Override
@@ -553,10 +1066,6 @@ public class AudioAnalysisUtil {
             
         } catch (Exception e) {
             return "4/4"; // Default fallback
-        } finally {
-            if (audioConversionUtil != null && tempFile != null) {
-                audioConversionUtil.cleanupTempFile(tempFile);
-            }
         }
     }
     
@@ -622,7 +1131,7 @@ public class AudioAnalysisUtil {
     }
     
     // Musical Analysis Helpers
-    public String analyzeMood(List<Float> pitches, String key, String scale, double tempo) {
+    public String analyzeMood(PitchTrack pitches, String key, String scale, double tempo) {
         // Analyze musical elements to determine mood
         boolean isMinor = scale.equals("Minor");
         boolean isSlow = tempo < 90;
@@ -644,13 +1153,30 @@ public class AudioAnalysisUtil {
         else return "Contemporary";
     }
     
-    public double calculateEnergy(List<Float> pitches, double tempo) {
+    public double calculateEnergy(PitchTrack pitches, double tempo) {
         // Energy calculation based on tempo and pitch activity
         double pitchVariance = 0;
         if (pitches.size() > 1) {
-            double mean = pitches.stream().filter(p -> p > 0).mapToDouble(Float::doubleValue).average().orElse(0);
-            pitchVariance = pitches.stream().filter(p -> p > 0)
-                .mapToDouble(p -> Math.pow(p - mean, 2)).average().orElse(0);
+            double sum = 0;
+            int voiced = 0;
+            for (int i = 0; i < pitches.size(); i++) {
+                float pitch = pitches.getPitch(i);
+                if (pitch > 0) {
+                    sum += pitch;
+                    voiced++;
+                }
+            }
+            if (voiced > 0) {
+                double mean = sum / voiced;
+                double squares = 0;
+                for (int i = 0; i < pitches.size(); i++) {
+                    float pitch = pitches.getPitch(i);
+                    if (pitch > 0) {
+                        squares += Math.pow(pitch - mean, 2);
+                    }
+                }
+                pitchVariance = squares / voiced;
+            }
         }
         
         double tempoFactor = Math.min(tempo / 120.0, 2.0); // Normalize around 120 BPM
@@ -733,22 +1259,66 @@ public class AudioAnalysisUtil {
         return denominator == 0 ? 0 : numerator / denominator;
     }
     
-    private String analyzeChordInSegment(List<Float> segment, String key, String scale) {
+    private List<Double> detectBeats(List<Double> frameTimes, List<Double> frameEnergies) {
+        // Simple beat detection based on energy spikes
+        List<Double> beatTimes = new ArrayList<>();
+        if (frameEnergies.isEmpty()) {
+            return beatTimes;
+        }
+        double[] sorted = new double[frameEnergies.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = frameEnergies.get(i);
+        }
+        Arrays.sort(sorted);
+        double threshold = BEAT_ENERGY_THRESHOLD * sorted[(int) (BEAT_REFERENCE_PERCENTILE * (sorted.length - 1))];
+        double lastBeat = 0;
+        for (int i = 0; i < frameEnergies.size(); i++) {
+            double time = frameTimes.get(i);
+            if (frameEnergies.get(i) > threshold && (time - lastBeat) > MIN_BEAT_INTERVAL) {
+                beatTimes.add(time);
+                lastBeat = time;
+            }
+        }
+        return beatTimes;
+    }
+    
+    private double estimateTempo(List<Double> beatTimes) {
+        double tempo = 120.0; // Default tempo
+        
+        // Calculate average tempo from beat intervals
+        if (beatTimes.size() > 1) {
+            double totalInterval = 0;
+            for (int i = 1; i < beatTimes.size(); i++) {
+                totalInterval += beatTimes.get(i) - beatTimes.get(i - 1);
+            }
+            double avgInterval = totalInterval / (beatTimes.size() - 1);
+            tempo = 60.0 / avgInterval; // Convert to BPM
+            
+            // Clamp tempo to reasonable range
+            tempo = Math.max(60, Math.min(180, tempo));
+        }
+        return tempo;
+    }
+    
+    private String analyzeChordInSegment(PitchTrack pitches, int from, int to, String key, String scale) {
         // Simplified chord analysis
         String[] majorChords = {"I", "ii", "iii", "IV", "V", "vi", "vii°"};
         String[] minorChords = {"i", "ii°", "III", "iv", "v", "VI", "VII"};
         
+        // Same hash as List.hashCode() over the boxed segment
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + Float.hashCode(pitches.getPitch(i));
+        }
         String[] chords = scale.equals("Major") ? majorChords : minorChords;
-        return chords[Math.abs(segment.hashCode()) % chords.length];
+        return chords[Math.abs(hash) % chords.length];
     }
     
-    private boolean areSimilarPitchPatterns(List<Float> pattern1, List<Float> pattern2) {
-        if (pattern1.size() != pattern2.size()) return false;
-        
+    private boolean areSimilarPitchPatterns(PitchTrack pitches, int first, int second, int length) {
         double threshold = 0.1; // 10% tolerance
-        for (int i = 0; i < pattern1.size(); i++) {
-            float p1 = pattern1.get(i);
-            float p2 = pattern2.get(i);
+        for (int i = 0; i < length; i++) {
+            float p1 = pitches.getPitch(first + i);
+            float p2 = pitches.getPitch(second + i);
             
             if (p1 > 0 && p2 > 0) {
                 double ratio = Math.abs(p1 - p2) / Math.max(p1, p2);
@@ -788,7 +1358,7 @@ public class AudioAnalysisUtil {
                (chord1.equals("iii") && chord2.equals("vi"));
     }
 
-    public List<String> analyzeMelodicPatterns(List<Float> pitches) {
+    public List<String> analyzeMelodicPatterns(PitchTrack pitches) {
         List<String> patterns = new ArrayList<>();
         
         if (pitches.size() < 4) {
@@ -799,8 +1369,8 @@ public class AudioAnalysisUtil {
         // Analyze intervals between consecutive notes
         List<Integer> intervals = new ArrayList<>();
         for (int i = 1; i < Math.min(pitches.size(), 50); i++) {
-            if (pitches.get(i) > 0 && pitches.get(i-1) > 0) {
-                float semitones = 12 * (float) (Math.log(pitches.get(i) / pitches.get(i-1)) / Math.log(2));
+            if (pitches.getPitch(i) > 0 && pitches.getPitch(i-1) > 0) {
+                float semitones = 12 * (float) (Math.log(pitches.getPitch(i) / pitches.getPitch(i-1)) / Math.log(2));
                 intervals.add(Math.round(semitones));
             }
         }
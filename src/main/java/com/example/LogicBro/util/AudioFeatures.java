@@ -0,0 +1,38 @@
+package com.example.LogicBro.util;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frame-level features collected from a single pass over an audio file.
+ * Derived values (beats, tempo, time signature) are computed from these
+ * lists afterwards, so every extractor shares one decode.
+ */
+@Data
+public class AudioFeatures {
+    private float sampleRate;
+    private int bufferSize;
+    private int overlap;
+
+    // YIN pitch track (voiced frames only)
+    private PitchTrack pitches = new PitchTrack();
+
+    // RMS energy per frame, doubles as beat strength
+    private List<Double> frameTimes = new ArrayList<>();
+    private List<Double> frameEnergies = new ArrayList<>();
+
+    // Spectral features per frame
+    private List<Double> spectralCentroids = new ArrayList<>();
+    private List<Double> spectralFlux = new ArrayList<>();
+
+    // Onsets derived from frame energies
+    private List<Double> beatTimes = new ArrayList<>();
+
+    public double getDurationSeconds() {
+        if (frameTimes.isEmpty()) {
+            return 0;
+        }
+        return frameTimes.get(frameTimes.size() - 1) + bufferSize / sampleRate;
+    }
+}
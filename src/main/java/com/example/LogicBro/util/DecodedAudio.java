@@ -0,0 +1,126 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.AudioDispatcher;
+import be.tarsos.dsp.BatchAudioDispatcher;
+import be.tarsos.dsp.RingBufferAudioDispatcher;
+import be.tarsos.dsp.io.MappedAudioInputStream;
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.resample.PolyphaseResampler;
+import be.tarsos.dsp.resample.Resampler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Mono 32-bit float PCM decoded from an uploaded file. The samples are
+ * little-endian and usually backed by a memory-mapped cache file, so many
+ * dispatchers can read the same decode without copying it onto the heap.
+ */
+public class DecodedAudio {
+
+    public static final int BYTES_PER_SAMPLE = Float.BYTES;
+
+    private final String contentHash;
+    private final float sampleRate;
+    private final ByteBuffer pcm;
+
+    public DecodedAudio(String contentHash, float sampleRate, ByteBuffer pcm) {
+        this.contentHash = contentHash;
+        this.sampleRate = sampleRate;
+        this.pcm = pcm.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public float getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getSampleCount() {
+        return pcm.capacity() / BYTES_PER_SAMPLE;
+    }
+
+    public double getDurationSeconds() {
+        return getSampleCount() / sampleRate;
+    }
+
+    /**
+     * A read-only view of the samples with its own position and limit.
+     */
+    public FloatBuffer samples() {
+        return pcm.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the samples converted to another rate on the heap, or this decode
+     * when it already has that rate. Lowering the rate band-limits first, so
+     * nothing above the new Nyquist frequency aliases. The short filter is
+     * meant for analysis, not for listening.
+     */
+    public DecodedAudio resample(float targetRate) {
+        int sourceRate = Math.round(sampleRate);
+        int rate = Math.round(targetRate);
+        if (sourceRate == rate) {
+            return this;
+        }
+        double factor = (double) rate / sourceRate;
+        PolyphaseResampler polyphase = PolyphaseResampler.isSupported(sourceRate, rate)
+            ? new PolyphaseResampler(sourceRate, rate, false) : null;
+        Resampler resampler = polyphase == null ? new Resampler(false, factor, factor) : null;
+        int filterWidth = polyphase != null ? polyphase.getFilterWidth() : resampler.getFilterWidth();
+
+        FloatBuffer in = samples();
+        ByteBuffer resampled = ByteBuffer.allocate(
+            ((int) Math.ceil(getSampleCount() * factor) + filterWidth) * BYTES_PER_SAMPLE);
+        FloatBuffer out = resampled.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        while (true) {
+            boolean complete = polyphase != null
+                ? polyphase.process(in, true, out)
+                : resampler.process(factor, in, true, out);
+            if (complete || !out.hasRemaining()) {
+                break;
+            }
+        }
+        resampled.limit(out.position() * BYTES_PER_SAMPLE);
+        return new DecodedAudio(contentHash, rate, resampled);
+    }
+
+    public TarsosDSPAudioFormat getFormat() {
+        return new TarsosDSPAudioFormat(TarsosDSPAudioFloatConverter.PCM_FLOAT, sampleRate,
+            Float.SIZE, 1, BYTES_PER_SAMPLE, sampleRate, false);
+    }
+
+    /**
+     * Creates a dispatcher that streams these samples. Each call gets an independent
+     * read position over the shared buffer. The dispatcher keeps the samples in a
+     * ring buffer, so processors that only need the RMS or copy the block themselves
+     * avoid the overlap shift.
+     */
+    public AudioDispatcher createDispatcher(int bufferSize, int overlap) {
+        return createDispatcher(bufferSize, overlap, 0, getSampleCount());
+    }
+
+    /**
+     * Creates a dispatcher over a range of the samples. Time stamps and progress
+     * reported by the dispatcher are relative to {@code startSample}.
+     */
+    public AudioDispatcher createDispatcher(int bufferSize, int overlap, int startSample, int sampleCount) {
+        MappedAudioInputStream stream = new MappedAudioInputStream(pcm, getFormat()).view(startSample, sampleCount);
+        return new RingBufferAudioDispatcher(stream, bufferSize, overlap);
+    }
+
+    /**
+     * Creates a dispatcher that hands the samples to batch processors many frames
+     * at a time. Time stamps are relative to {@code startSample}, like
+     * {@link #createDispatcher(int, int, int, int)}.
+     */
+    public BatchAudioDispatcher createBatchDispatcher(int bufferSize, int overlap, int framesPerBatch,
+                                                      int startSample, int sampleCount) {
+        MappedAudioInputStream stream = new MappedAudioInputStream(pcm, getFormat()).view(startSample, sampleCount);
+        return new BatchAudioDispatcher(stream, bufferSize, overlap, framesPerBatch);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.writer.WaveHeader;
+import com.example.LogicBro.config.AudioUploadProperties;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Disk cache of decoded mono float PCM, keyed by the SHA-256 of the source file.
+ * Entries are float WAV files under {@code logicbro.upload.tempDir/pcm} and are
+ * memory-mapped when read, so every analysis stage and every re-analysis of the
+ * same upload shares one decode. The least recently used entries are deleted
+ * once the cache grows past {@code logicbro.upload.pcmCacheMaxBytes} (see
+ * {@link WaveFileStore}).
+ */
+@Component
+public class DecodedAudioCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DecodedAudioCache.class);
+    private static final String CACHE_SUBDIR = "pcm";
+
+    private final AudioConversionUtil audioConversionUtil;
+    private final WaveFileStore store;
+    private final KeyedLocks decodeLocks = new KeyedLocks();
+
+    public DecodedAudioCache(AudioUploadProperties properties, AudioConversionUtil audioConversionUtil) {
+        this.audioConversionUtil = audioConversionUtil;
+        this.store = new WaveFileStore(Paths.get(properties.getTempDir(), CACHE_SUBDIR),
+            properties.getPcmCacheMaxBytes(), "decoded PCM cache");
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        store.init();
+    }
+
+    public DecodedAudio get(File source) throws IOException {
+        return get(source, ContentHashUtil.sha256Hex(source));
+    }
+
+    /**
+     * Returns the decoded PCM for a file whose content hash is already known,
+     * decoding it only if no cache entry exists.
+     */
+    public DecodedAudio get(File source, String contentHash) throws IOException {
+        Object lock = decodeLocks.acquire(contentHash);
+        try {
+            synchronized (lock) {
+                DecodedAudio cached = store.read(contentHash, entry -> map(contentHash, entry));
+                if (cached != null) {
+                    logger.debug("Decoded PCM cache hit for {}", contentHash);
+                    return cached;
+                }
+                return decodeToEntry(source, contentHash);
+            }
+        } finally {
+            decodeLocks.release(contentHash);
+        }
+    }
+
+    public boolean contains(String contentHash) {
+        return store.contains(contentHash);
+    }
+
+    /**
+     * Opens a new partial entry for mono float PCM that is decoded before its
+     * content hash is known, e.g. while an upload is still streaming in. Write
+     * the samples from the returned channel's position, then pass the entry to
+     * {@link #commitPartialEntry} or {@link #discardPartialEntry}.
+     */
+    public Path createPartialEntry() {
+        return store.createPartial();
+    }
+
+    public FileChannel openPartialEntry(Path partial) throws IOException {
+        return store.openPartial(partial);
+    }
+
+    /**
+     * Publishes a partial entry under its content hash and returns the mapped
+     * PCM. If another decode of the same content got there first, the partial
+     * entry is dropped and the existing one is returned.
+     */
+    public DecodedAudio commitPartialEntry(Path partial, String contentHash, float sampleRate) throws IOException {
+        Object lock = decodeLocks.acquire(contentHash);
+        try {
+            synchronized (lock) {
+                DecodedAudio existing = store.read(contentHash, entry -> map(contentHash, entry));
+                if (existing != null) {
+                    store.discardPartial(partial);
+                    return existing;
+                }
+                try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.WRITE)) {
+                    WaveFileStore.writeHeader(channel, sampleRate, 1);
+                }
+                return store.publish(partial, contentHash, entry -> map(contentHash, entry));
+            }
+        } finally {
+            decodeLocks.release(contentHash);
+        }
+    }
+
+    public void discardPartialEntry(Path partial) {
+        store.discardPartial(partial);
+    }
+
+    private DecodedAudio decodeToEntry(File source, String contentHash) throws IOException {
+        Path partial = store.createPartial();
+        long started = System.nanoTime();
+        try (FileChannel channel = store.openPartial(partial)) {
+            float sampleRate = PcmDecoder.decodeMono(source, audioConversionUtil, channel);
+            WaveFileStore.writeHeader(channel, sampleRate, 1);
+        } catch (Exception e) {
+            store.discardPartial(partial);
+            throw new IOException("Failed to decode " + source.getName() + ": " + e.getMessage(), e);
+        }
+        DecodedAudio decoded = store.publish(partial, contentHash, entry -> map(contentHash, entry));
+        logger.info("Decoded {} into PCM cache in {} ms", source.getName(), (System.nanoTime() - started) / 1_000_000);
+        return decoded;
+    }
+
+    private static DecodedAudio map(String contentHash, Path entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            WaveHeader header = WaveFileStore.readHeader(channel);
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer pcm = channel.map(FileChannel.MapMode.READ_ONLY, WaveFileStore.HEADER_LENGTH,
+                channel.size() - WaveFileStore.HEADER_LENGTH);
+            return new DecodedAudio(contentHash, header.getSampleRate(), pcm);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.LogicBro.util;
+
+import com.example.LogicBro.config.AudioUploadProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs FFmpeg for the formats the JVM cannot decode. The binary is resolved
+ * and checked once at startup, at most {@code logicbro.upload.ffmpegMaxConcurrent}
+ * processes run at a time, and decoded PCM is read from FFmpeg's stdout rather
+ * than from a WAV file written to disk first. Every run records the time spent
+ * waiting for a slot, its duration by outcome and the bytes it produced under
+ * the {@code logicbro.ffmpeg.*} meters.
+ */
+@Component
+public class FfmpegDecoderPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(FfmpegDecoderPool.class);
+    private static final String[] COMMON_LOCATIONS = {
+        "/usr/local/bin/ffmpeg",
+        "/usr/bin/ffmpeg",
+        "/opt/homebrew/bin/ffmpeg"
+    };
+    private static final long VERSION_CHECK_TIMEOUT_SECONDS = 10;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Characters of FFmpeg's error output kept for the exception message
+    private static final int ERROR_TAIL_LENGTH = 2000;
+
+    private final String binary;
+    private final int maxConcurrent;
+    private final Semaphore slots;
+    private final ExecutorService errorReaders;
+
+    private final Timer waitTimer;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final DistributionSummary outputBytes;
+
+    public FfmpegDecoderPool(AudioUploadProperties properties, MeterRegistry meterRegistry) {
+        this.binary = resolveBinary(properties.getFfmpegPath());
+        this.maxConcurrent = properties.getFfmpegMaxConcurrent() > 0
+            ? properties.getFfmpegMaxConcurrent() : Runtime.getRuntime().availableProcessors();
+        this.slots = new Semaphore(maxConcurrent, true);
+        AtomicInteger readerCount = new AtomicInteger();
+        this.errorReaders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ffmpeg-stderr-" + readerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.waitTimer = Timer.builder("logicbro.ffmpeg.wait")
+            .description("Time spent waiting for a free FFmpeg slot")
+            .register(meterRegistry);
+        this.successTimer = Timer.builder("logicbro.ffmpeg.decode")
+            .description("Duration of FFmpeg runs")
+            .tag("outcome", "success")
+            .register(meterRegistry);
+        this.failureTimer = Timer.builder("logicbro.ffmpeg.decode")
+            .description("Duration of FFmpeg runs")
+            .tag("outcome", "failure")
+            .register(meterRegistry);
+        this.outputBytes = DistributionSummary.builder("logicbro.ffmpeg.output")
+            .description("Bytes of PCM read from FFmpeg per decode")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("logicbro.ffmpeg.active", slots, s -> maxConcurrent - s.availablePermits())
+            .description("FFmpeg processes running")
+            .register(meterRegistry);
+
+        if (binary != null) {
+            logger.info("Using FFmpeg at {} with up to {} concurrent decodes", binary, maxConcurrent);
+        } else {
+            logger.warn("FFmpeg not found, formats other than WAV, AIFF and AU cannot be decoded");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        errorReaders.shutdownNow();
+    }
+
+    public boolean isAvailable() {
+        return binary != null;
+    }
+
+    /**
+     * Decodes the source to mono little-endian float PCM at the given sample rate,
+     * the layout of {@link DecodedAudio}, and writes it to {@code out} as FFmpeg
+     * produces it.
+     *
+     * @return the sample rate of the decoded PCM
+     */
+    public float decodeMono(File source, float sampleRate, WritableByteChannel out) throws IOException {
+        run(source, out, "-vn", "-ac", "1", "-ar", String.valueOf(Math.round(sampleRate)),
+            "-f", "f32le", "pipe:1");
+        return sampleRate;
+    }
+
+    /**
+     * Converts the source to a file. The output options must end with the
+     * output path.
+     */
+    public void convert(File source, String... outputOptions) throws IOException {
+        run(source, null, outputOptions);
+    }
+
+    private void run(File source, WritableByteChannel out, String... outputOptions) throws IOException {
+        if (binary == null) {
+            throw new IOException("FFmpeg is not available");
+        }
+        List<String> command = new ArrayList<>();
+        command.addAll(Arrays.asList(binary, "-nostdin", "-hide_banner", "-loglevel", "error", "-y",
+            "-i", source.getAbsolutePath()));
+        command.addAll(Arrays.asList(outputOptions));
+
+        long waitStarted = System.nanoTime();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for FFmpeg");
+        }
+        long started = System.nanoTime();
+        waitTimer.record(started - waitStarted, TimeUnit.NANOSECONDS);
+
+        boolean succeeded = false;
+        long bytes = 0;
+        Process process = null;
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command);
+            if (out == null) {
+                builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            }
+            process = builder.start();
+            // drained concurrently so a chatty decoder never blocks on a full stderr pipe
+            InputStream errorStream = process.getErrorStream();
+            CompletableFuture<String> errors = CompletableFuture.supplyAsync(() -> readTail(errorStream), errorReaders);
+
+            if (out != null) {
+                byte[] buffer = new byte[READ_BUFFER_SIZE];
+                try (InputStream in = process.getInputStream()) {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        ByteBuffer block = ByteBuffer.wrap(buffer, 0, read);
+                        while (block.hasRemaining()) {
+                            out.write(block);
+                        }
+                        bytes += read;
+                    }
+                }
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("FFmpeg exited with code " + exitCode + " for " + source.getName()
+                    + ": " + errors.join().trim());
+            }
+            if (out != null && bytes == 0) {
+                throw new IOException("FFmpeg decoded no audio from " + source.getName());
+            }
+            succeeded = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding " + source.getName());
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+            slots.release();
+            long elapsed = System.nanoTime() - started;
+            (succeeded ? successTimer : failureTimer).record(elapsed, TimeUnit.NANOSECONDS);
+            if (out != null) {
+                outputBytes.record(bytes);
+            }
+            logger.debug("FFmpeg {} {} in {} ms ({} bytes)", succeeded ? "decoded" : "failed on",
+                source.getName(), elapsed / 1_000_000, bytes);
+        }
+    }
+
+    private static String readTail(InputStream errorStream) {
+        try (InputStream in = errorStream) {
+            String errors = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return errors.length() > ERROR_TAIL_LENGTH ? errors.substring(errors.length() - ERROR_TAIL_LENGTH) : errors;
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Returns the absolute path of the first candidate that runs, trying the
+     * configured path, then the PATH, then the usual install locations.
+     */
+    private static String resolveBinary(String configured) {
+        List<String> candidates = new ArrayList<>();
+        if (configured != null && !configured.isBlank()) {
+            if (configured.contains(File.separator)) {
+                candidates.add(configured);
+            } else {
+                candidates.addAll(searchPath(configured));
+            }
+        }
+        candidates.addAll(searchPath("ffmpeg"));
+        candidates.addAll(Arrays.asList(COMMON_LOCATIONS));
+
+        for (String candidate : candidates) {
+            Path path = Paths.get(candidate);
+            if (Files.isRegularFile(path) && Files.isExecutable(path) && runsVersion(candidate)) {
+                return path.toAbsolutePath().toString();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> searchPath(String name) {
+        List<String> found = new ArrayList<>();
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String directory : path.split(File.pathSeparator)) {
+                if (!directory.isEmpty()) {
+                    found.add(Paths.get(directory, name).toString());
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean runsVersion(String candidate) {
+        try {
+            Process process = new ProcessBuilder(candidate, "-version")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            if (!process.waitFor(VERSION_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
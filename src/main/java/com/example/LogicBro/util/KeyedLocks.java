@@ -0,0 +1,36 @@
+package com.example.LogicBro.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Monitors keyed by string, e.g. by content hash. A key's monitor stays in the
+ * map while any thread holds or waits for it, so every caller for the same key
+ * synchronizes on the same object; it is dropped when the last one releases it.
+ */
+public final class KeyedLocks {
+
+    private final ConcurrentHashMap<String, Holder> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the monitor for the key and registers the caller as a user of it.
+     * Every call must be paired with {@link #release(String)} in a finally block.
+     */
+    public Object acquire(String key) {
+        return locks.compute(key, (k, holder) -> {
+            if (holder == null) {
+                holder = new Holder();
+            }
+            holder.users++;
+            return holder;
+        });
+    }
+
+    public void release(String key) {
+        locks.computeIfPresent(key, (k, holder) -> --holder.users == 0 ? null : holder);
+    }
+
+    // users is only read and written inside compute, under the map's bin lock
+    private static final class Holder {
+        private int users;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+import be.tarsos.dsp.resample.PolyphaseResampler;
+import be.tarsos.dsp.resample.Resampler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Downmixes a PCM stream to the mono little-endian float layout of
+ * {@link DecodedAudio} while it is read, converting it to the requested sample
+ * rate. Every converted byte can be copied to a channel as well, so a
+ * dispatcher reading this stream fills a PCM cache entry at the same time.
+ * <p>
+ * Common rate pairs such as 48000 to 44100 Hz are converted by a
+ * {@link PolyphaseResampler}; unusual rates whose ratio has no small fraction
+ * fall back to the interpolating {@link Resampler}.
+ */
+public final class MonoPcmInputStream implements TarsosDSPAudioInputStream {
+
+    private final TarsosDSPAudioInputStream source;
+    private final WritableByteChannel copy;
+    private final TarsosDSPAudioFloatConverter converter;
+    private final TarsosDSPAudioFormat format;
+    private final int channels;
+    private final int frameSize;
+    // both null when the source already has the requested rate
+    private final PolyphaseResampler polyphase;
+    private final Resampler resampler;
+    private final double factor;
+
+    private byte[] sourceBytes = new byte[0];
+    private float[] interleaved = new float[0];
+    private float[] mono = new float[0];
+    private float[] resampled = new float[0];
+    // bytes of a partial source frame kept for the next read
+    private int pending;
+    // downmixed samples the resampler has not taken yet
+    private FloatBuffer downmixed = FloatBuffer.allocate(0);
+    private boolean sourceEnded;
+
+    MonoPcmInputStream(TarsosDSPAudioInputStream source, WritableByteChannel copy, float sampleRate)
+            throws IOException {
+        TarsosDSPAudioFormat sourceFormat = source.getFormat();
+        this.source = source;
+        this.copy = copy;
+        this.converter = TarsosDSPAudioFloatConverter.getConverter(sourceFormat);
+        if (converter == null) {
+            throw new IOException("Unsupported PCM layout: " + sourceFormat);
+        }
+        this.channels = sourceFormat.getChannels();
+        this.frameSize = sourceFormat.getFrameSize();
+        this.format = new TarsosDSPAudioFormat(TarsosDSPAudioFloatConverter.PCM_FLOAT, sampleRate,
+            Float.SIZE, 1, DecodedAudio.BYTES_PER_SAMPLE, sampleRate, false);
+
+        int sourceRate = Math.round(sourceFormat.getSampleRate());
+        int targetRate = Math.round(sampleRate);
+        this.factor = (double) targetRate / sourceRate;
+        if (sourceRate == targetRate) {
+            this.polyphase = null;
+            this.resampler = null;
+        } else if (PolyphaseResampler.isSupported(sourceRate, targetRate)) {
+            this.polyphase = new PolyphaseResampler(sourceRate, targetRate, true);
+            this.resampler = null;
+        } else {
+            this.polyphase = null;
+            this.resampler = new Resampler(true, factor, factor);
+        }
+    }
+
+    /**
+     * The sample rate of the stream before conversion.
+     */
+    public float getSourceSampleRate() {
+        return source.getFormat().getSampleRate();
+    }
+
+    /**
+     * Reads at most {@code len / 4} mono samples, fewer when the source has
+     * fewer complete frames available. A trailing partial frame at the end of
+     * the source is dropped.
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int maxFrames = len / DecodedAudio.BYTES_PER_SAMPLE;
+        if (maxFrames == 0) {
+            return 0;
+        }
+        ensureCapacity(maxFrames);
+
+        int samples;
+        if (polyphase == null && resampler == null) {
+            samples = downmix(maxFrames);
+            if (samples == -1) {
+                return -1;
+            }
+            write(mono, samples, b, off);
+        } else {
+            samples = resample(maxFrames);
+            if (samples == -1) {
+                return -1;
+            }
+            write(resampled, samples, b, off);
+        }
+        return samples * DecodedAudio.BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * Downmixes at most {@code maxFrames} source frames into {@link #mono}.
+     *
+     * @return the number of frames, or -1 at the end of the source
+     */
+    private int downmix(int maxFrames) throws IOException {
+        int frames = pending / frameSize;
+        while (frames == 0) {
+            int read = source.read(sourceBytes, pending, maxFrames * frameSize - pending);
+            if (read == -1) {
+                return -1;
+            }
+            pending += read;
+            frames = pending / frameSize;
+        }
+        frames = Math.min(frames, maxFrames);
+        converter.toFloatArray(sourceBytes, 0, interleaved, 0, frames * channels);
+        for (int frame = 0; frame < frames; frame++) {
+            float sum = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                sum += interleaved[frame * channels + channel];
+            }
+            mono[frame] = sum / channels;
+        }
+
+        int consumed = frames * frameSize;
+        pending -= consumed;
+        System.arraycopy(sourceBytes, consumed, sourceBytes, 0, pending);
+        return frames;
+    }
+
+    /**
+     * Converts downmixed samples into {@link #resampled} until at least one is
+     * produced. The resampler holds back samples for its filter, which are
+     * flushed once the source ends.
+     *
+     * @return the number of samples, or -1 when the source and the resampler are drained
+     */
+    private int resample(int maxFrames) throws IOException {
+        FloatBuffer out = FloatBuffer.wrap(resampled, 0, maxFrames);
+        while (out.position() == 0) {
+            if (!downmixed.hasRemaining() && !sourceEnded) {
+                int frames = downmix(maxFrames);
+                if (frames == -1) {
+                    sourceEnded = true;
+                } else {
+                    downmixed = FloatBuffer.wrap(mono, 0, frames);
+                }
+            }
+            if (polyphase != null) {
+                polyphase.process(downmixed, sourceEnded, out);
+            } else {
+                resampler.process(factor, downmixed, sourceEnded, out);
+            }
+            if (sourceEnded && out.position() == 0) {
+                return -1;
+            }
+        }
+        return out.position();
+    }
+
+    private void write(float[] samples, int count, byte[] b, int off) throws IOException {
+        int length = count * DecodedAudio.BYTES_PER_SAMPLE;
+        ByteBuffer out = ByteBuffer.wrap(b, off, length).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < count; i++) {
+            out.putFloat(samples[i]);
+        }
+        if (copy != null) {
+            ByteBuffer copied = ByteBuffer.wrap(b, off, length);
+            while (copied.hasRemaining()) {
+                copy.write(copied);
+            }
+        }
+    }
+
+    /**
+     * Skips by reading, so the copy stays complete.
+     */
+    @Override
+    public long skip(long bytesToSkip) throws IOException {
+        byte[] discard = new byte[(int) Math.min(bytesToSkip, 64 * 1024)];
+        long skipped = 0;
+        while (skipped < bytesToSkip) {
+            int read = read(discard, 0, (int) Math.min(discard.length, bytesToSkip - skipped));
+            if (read <= 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    @Override
+    public TarsosDSPAudioFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public long getFrameLength() {
+        long frames = source.getFrameLength();
+        return frames < 0 ? frames : (long) Math.ceil(frames * factor);
+    }
+
+    private void ensureCapacity(int frames) {
+        if (sourceBytes.length < frames * frameSize) {
+            // the resampler may still hold downmixed samples, which stay valid in the old array
+            sourceBytes = Arrays.copyOf(sourceBytes, frames * frameSize);
+            interleaved = new float[frames * channels];
+            mono = new float[frames];
+            resampled = new float[frames];
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.io.MappedAudioInputStream;
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+import be.tarsos.dsp.io.UniversalAudioInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Decodes an audio file to mono little-endian float PCM at the decode/cache rate.
+ * PCM WAV and AIFF files are read from a memory mapping, other formats with an
+ * installed javax.sound reader are decoded incrementally while they are read,
+ * and FFmpeg decodes the rest straight to float PCM.
+ */
+public final class PcmDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PcmDecoder.class);
+    private static final int FRAMES_PER_BLOCK = 8192;
+
+    /**
+     * The decode/cache rate: the sample rate all decoded PCM is converted to and
+     * cached at. The analysis decimates it further to
+     * {@code logicbro.audio.analysisSampleRate}.
+     */
+    public static final float SAMPLE_RATE = 44100;
+
+    private PcmDecoder() {
+    }
+
+    /**
+     * Decodes in process whenever a reader accepts the file, including javax.sound
+     * service providers such as the MP3 and Ogg Vorbis decoders added by the
+     * {@code java-decoders} build profile. FFmpeg is the fallback for the rest.
+     *
+     * @return the sample rate of the decoded PCM
+     */
+    public static float decodeMono(File source, AudioConversionUtil conversionUtil, WritableByteChannel out)
+            throws IOException, UnsupportedAudioFileException {
+        TarsosDSPAudioInputStream stream;
+        try {
+            stream = openPcmStream(source);
+        } catch (UnsupportedAudioFileException | IOException e) {
+            if (conversionUtil == null || !conversionUtil.isConversionSupported()) {
+                throw e;
+            }
+            logger.debug("No in-process decoder for {}, using FFmpeg: {}", source.getName(), e.getMessage());
+            return conversionUtil.decodeMono(source, out);
+        }
+        try {
+            return decodeMono(stream, out);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Opens a stream of mono float PCM at the decode/cache rate over an upload that
+     * is still arriving. Only formats with an installed javax.sound reader are
+     * supported; the decoded samples are also written to {@code copy} when it is
+     * not null.
+     */
+    public static MonoPcmInputStream openMono(InputStream in, WritableByteChannel copy)
+            throws IOException, UnsupportedAudioFileException {
+        // the file readers need mark/reset to sniff the header
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        return new MonoPcmInputStream(openPcmStream(AudioSystem.getAudioInputStream(buffered)), copy, SAMPLE_RATE);
+    }
+
+    /**
+     * Opens a file as PCM in its own sample rate and channel layout, from a
+     * memory mapping or through javax.sound.
+     */
+    public static TarsosDSPAudioInputStream openPcmStream(File file) throws IOException, UnsupportedAudioFileException {
+        try {
+            return MappedAudioInputStream.open(file);
+        } catch (IOException e) {
+            logger.debug("Decoding {} with javax.sound: {}", file.getName(), e.getMessage());
+        }
+        return openPcmStream(AudioSystem.getAudioInputStream(file));
+    }
+
+    private static TarsosDSPAudioInputStream openPcmStream(AudioInputStream stream) {
+        AudioFormat format = stream.getFormat();
+        AudioFormat.Encoding encoding = format.getEncoding();
+        if (!encoding.equals(AudioFormat.Encoding.PCM_SIGNED)
+                && !encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED)
+                && !encoding.equals(AudioFormat.Encoding.PCM_FLOAT)) {
+            // e.g. a-law/u-law: let the JVM expand to 16 bit linear PCM
+            AudioFormat target = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+            stream = AudioSystem.getAudioInputStream(target, stream);
+            format = stream.getFormat();
+        }
+        return new UniversalAudioInputStream(stream, toTarsosDSPFormat(format), stream.getFrameLength());
+    }
+
+    private static float decodeMono(TarsosDSPAudioInputStream stream, WritableByteChannel out) throws IOException {
+        MonoPcmInputStream mono = new MonoPcmInputStream(stream, out, SAMPLE_RATE);
+        byte[] block = new byte[FRAMES_PER_BLOCK * DecodedAudio.BYTES_PER_SAMPLE];
+        while (mono.read(block, 0, block.length) != -1) {
+            // the samples go to the copy
+        }
+        return mono.getFormat().getSampleRate();
+    }
+
+    private static TarsosDSPAudioFormat toTarsosDSPFormat(AudioFormat format) {
+        TarsosDSPAudioFormat.Encoding encoding;
+        if (format.getEncoding().equals(AudioFormat.Encoding.PCM_FLOAT)) {
+            encoding = TarsosDSPAudioFloatConverter.PCM_FLOAT;
+        } else if (format.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED)) {
+            encoding = TarsosDSPAudioFormat.Encoding.PCM_UNSIGNED;
+        } else {
+            encoding = TarsosDSPAudioFormat.Encoding.PCM_SIGNED;
+        }
+        return new TarsosDSPAudioFormat(encoding, format.getSampleRate(), format.getSampleSizeInBits(),
+            format.getChannels(), format.getFrameSize(), format.getFrameRate(), format.isBigEndian());
+    }
+}
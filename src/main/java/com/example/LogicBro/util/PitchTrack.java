@@ -0,0 +1,130 @@
+package com.example.LogicBro.util;
+
+import java.util.Arrays;
+
+/**
+ * Voiced pitch estimates of an audio file stored as parallel primitive arrays
+ * (pitch in Hz, detector probability, frame time in seconds). Replaces boxed
+ * {@code List<Float>} tracks so long analyses do not allocate per frame.
+ * The arrays grow in chunks and are never shrunk.
+ */
+public final class PitchTrack {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private float[] pitches;
+    private float[] probabilities;
+    private float[] timestamps;
+    private int size;
+
+    public PitchTrack() {
+        this(CHUNK_SIZE);
+    }
+
+    public PitchTrack(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        pitches = new float[capacity];
+        probabilities = new float[capacity];
+        timestamps = new float[capacity];
+    }
+
+    public void add(float pitch, float probability, float timestamp) {
+        if (size == pitches.length) {
+            grow(size + 1);
+        }
+        pitches[size] = pitch;
+        probabilities[size] = probability;
+        timestamps[size] = timestamp;
+        size++;
+    }
+
+    public void addAll(PitchTrack other) {
+        if (size + other.size > pitches.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.pitches, 0, pitches, size, other.size);
+        System.arraycopy(other.probabilities, 0, probabilities, size, other.size);
+        System.arraycopy(other.timestamps, 0, timestamps, size, other.size);
+        size += other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public float getPitch(int index) {
+        checkIndex(index);
+        return pitches[index];
+    }
+
+    public float getProbability(int index) {
+        checkIndex(index);
+        return probabilities[index];
+    }
+
+    public float getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * @return a copy of the pitches, one per voiced frame
+     */
+    public float[] toPitchArray() {
+        return Arrays.copyOf(pitches, size);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void grow(int minCapacity) {
+        // grow by at least one chunk, or by half for long tracks to keep copies amortized
+        int capacity = pitches.length + Math.max(CHUNK_SIZE, pitches.length >> 1);
+        if (capacity < minCapacity) {
+            capacity = minCapacity;
+        }
+        pitches = Arrays.copyOf(pitches, capacity);
+        probabilities = Arrays.copyOf(probabilities, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PitchTrack)) {
+            return false;
+        }
+        PitchTrack other = (PitchTrack) o;
+        return size == other.size
+            && Arrays.equals(pitches, 0, size, other.pitches, 0, size)
+            && Arrays.equals(probabilities, 0, size, other.probabilities, 0, size)
+            && Arrays.equals(timestamps, 0, size, other.timestamps, 0, size);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Float.hashCode(pitches[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PitchTrack[size=" + size + "]";
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.Parameters;
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.SeekMode;
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.io.TarsosDSPAudioInputStream;
+import be.tarsos.dsp.resample.Resampler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Changes the tempo and pitch of a PCM stream offline, faster than realtime.
+ * The stream is read in large interleaved blocks and every channel is
+ * stretched with WSOLA and then resampled. WSOLA cuts all channels at the
+ * offsets it finds on their downmix, so the stereo image stays intact; the
+ * overlap-add and resampling of the channels of a block run in parallel on
+ * the given pool. No dispatcher sits in between: the stretcher is fed its
+ * frames directly. The result is written as interleaved little-endian float
+ * PCM while it is produced.
+ * <p>
+ * To shift the pitch by {@code p} and play {@code t} times as fast, WSOLA
+ * stretches by {@code t / p} and the resampler converts by {@code 1 / p}.
+ */
+public class TimePitchRenderer {
+
+    // frames read per block, 1.5 s at 44.1 kHz
+    private static final int BLOCK_FRAMES = 64 * 1024;
+
+    private final double tempo;
+    private final double pitch;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param tempo how many times faster the output plays, 2 halves the duration
+     * @param pitch the pitch factor, 2 shifts an octave up
+     * @param pool  runs the channels of a block in parallel, or null to run them in turn
+     */
+    public TimePitchRenderer(double tempo, double pitch, ForkJoinPool pool) {
+        this.tempo = tempo;
+        this.pitch = pitch;
+        this.pool = pool;
+    }
+
+    /**
+     * Renders the whole source to {@code out}, in the source's sample rate and
+     * channel count.
+     *
+     * @return the number of frames written
+     */
+    public long render(TarsosDSPAudioInputStream source, WritableByteChannel out) throws IOException {
+        TarsosDSPAudioFormat format = source.getFormat();
+        TarsosDSPAudioFloatConverter converter = TarsosDSPAudioFloatConverter.getConverter(format);
+        if (converter == null) {
+            throw new IOException("Unsupported PCM layout: " + format);
+        }
+        int channels = format.getChannels();
+        int frameSize = format.getFrameSize();
+
+        ChannelStretcher[] stretchers = new ChannelStretcher[channels];
+        for (int channel = 0; channel < channels; channel++) {
+            stretchers[channel] = new ChannelStretcher(format.getSampleRate(), channel, channels);
+        }
+        // a mono stream seeks on its only channel
+        OffsetSeeker seeker = channels == 1 ? null : new OffsetSeeker(format.getSampleRate(), channels);
+
+        byte[] sourceBytes = new byte[BLOCK_FRAMES * frameSize];
+        float[] interleaved = new float[BLOCK_FRAMES * channels];
+        ByteBuffer outputBytes = ByteBuffer.allocate(0);
+        long inputFrames = 0;
+        long written = 0;
+        boolean last = false;
+        while (!last) {
+            int read = readFully(source, sourceBytes);
+            int frames = read / frameSize;
+            last = read < sourceBytes.length;
+            converter.toFloatArray(sourceBytes, 0, interleaved, 0, frames * channels);
+            inputFrames += frames;
+
+            int[] offsets = null;
+            if (seeker != null) {
+                seeker.process(interleaved, frames, last);
+                offsets = seeker.offsets;
+            }
+            processChannels(stretchers, interleaved, frames, last, offsets);
+
+            // every channel is stretched by the same steps, so all produce as many samples
+            long produced = stretchers[0].outputLength;
+            if (last) {
+                produced = Math.max(0, Math.min(produced, targetFrames(inputFrames) - written));
+            }
+            int bytes = (int) produced * channels * DecodedAudio.BYTES_PER_SAMPLE;
+            if (outputBytes.capacity() < bytes) {
+                outputBytes = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            outputBytes.clear();
+            for (int frame = 0; frame < produced; frame++) {
+                for (ChannelStretcher stretcher : stretchers) {
+                    outputBytes.putFloat(stretcher.output[frame]);
+                }
+            }
+            outputBytes.flip();
+            writeFully(out, outputBytes);
+            written += produced;
+        }
+
+        // the stretcher's last sequence may end a few frames short
+        long missing = targetFrames(inputFrames) - written;
+        if (missing > 0) {
+            writeFully(out, ByteBuffer.allocate((int) missing * channels * DecodedAudio.BYTES_PER_SAMPLE));
+            written += missing;
+        }
+        return written;
+    }
+
+    private long targetFrames(long inputFrames) {
+        return targetFrames(inputFrames, tempo);
+    }
+
+    /**
+     * The number of frames {@link #render} writes for a source of the given
+     * length.
+     */
+    public static long targetFrames(long inputFrames, double tempo) {
+        return Math.round(inputFrames / tempo);
+    }
+
+    private void processChannels(ChannelStretcher[] stretchers, float[] interleaved, int frames, boolean last,
+                                 int[] offsets) throws IOException {
+        if (pool == null || stretchers.length == 1) {
+            for (ChannelStretcher stretcher : stretchers) {
+                stretcher.process(interleaved, frames, last, offsets);
+            }
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(stretchers.length);
+        for (ChannelStretcher stretcher : stretchers) {
+            tasks.add(() -> {
+                stretcher.process(interleaved, frames, last, offsets);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Rendering a channel failed", e.getCause());
+        }
+    }
+
+    private static int readFully(TarsosDSPAudioInputStream source, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = source.read(buffer, total, buffer.length - total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private WaveformSimilarityBasedOverlapAdd newWsola(float sampleRate) {
+        // the FFT search finds the brute-force positions an order of magnitude faster
+        return new WaveformSimilarityBasedOverlapAdd(
+            Parameters.musicDefaults(tempo / pitch, sampleRate).withSeekMode(SeekMode.FFT));
+    }
+
+    /**
+     * Samples of one channel, or of the downmix, waiting to be cut into WSOLA
+     * frames. Input left over from a block, less than one frame, waits for
+     * the next block.
+     */
+    private static final class PendingSamples {
+        private float[] samples = new float[0];
+        private int length;
+
+        /**
+         * Appends a block of one channel, or the average of all channels when
+         * {@code channel} is -1, followed by {@code padding} zeros.
+         */
+        void append(float[] interleaved, int frames, int channel, int channels, int padding) {
+            if (samples.length < length + frames + padding) {
+                samples = Arrays.copyOf(samples, length + frames + padding);
+            }
+            if (channel >= 0) {
+                for (int i = 0; i < frames; i++) {
+                    samples[length + i] = interleaved[i * channels + channel];
+                }
+            } else {
+                for (int i = 0; i < frames; i++) {
+                    float sum = 0;
+                    for (int c = 0; c < channels; c++) {
+                        sum += interleaved[i * channels + c];
+                    }
+                    samples[length + i] = sum / channels;
+                }
+            }
+            length += frames;
+            Arrays.fill(samples, length, length + padding, 0);
+            length += padding;
+        }
+
+        /**
+         * Drops the samples before {@code position}.
+         */
+        void consume(int position) {
+            System.arraycopy(samples, position, samples, 0, length - position);
+            length -= position;
+        }
+    }
+
+    /**
+     * Runs WSOLA on the downmix and keeps the offset every frame was mixed
+     * at. The mid buffer WSOLA correlates with is linear in its input, so
+     * the downmix's is the downmix of the channels' and each channel can be
+     * mixed at the offset found here.
+     */
+    private final class OffsetSeeker {
+        private final int channels;
+        private final WaveformSimilarityBasedOverlapAdd wsola;
+        private final int frameLength;
+        private final int skip;
+        private final AudioEvent event;
+        private final float[] frame;
+        private final PendingSamples pending = new PendingSamples();
+
+        // the offsets of the frames of the current block
+        private int[] offsets = new int[0];
+
+        OffsetSeeker(float sampleRate, int channels) {
+            this.channels = channels;
+            this.wsola = newWsola(sampleRate);
+            this.frameLength = wsola.getInputBufferSize();
+            this.skip = frameLength - wsola.getOverlap();
+            this.event = new AudioEvent(new TarsosDSPAudioFormat(sampleRate, 16, 1, true, false));
+            this.frame = new float[frameLength];
+        }
+
+        void process(float[] interleaved, int frames, boolean last) {
+            pending.append(interleaved, frames, -1, channels, last ? frameLength : 0);
+            int count = 0;
+            int position = 0;
+            while (position + frameLength <= pending.length) {
+                System.arraycopy(pending.samples, position, frame, 0, frameLength);
+                event.setFloatBuffer(frame);
+                wsola.process(event);
+                if (offsets.length == count) {
+                    offsets = Arrays.copyOf(offsets, Math.max(16, 2 * count));
+                }
+                offsets[count++] = wsola.getLastOffset();
+                position += skip;
+            }
+            pending.consume(position);
+        }
+    }
+
+    /**
+     * Stretches and resamples one channel.
+     */
+    private final class ChannelStretcher {
+        private final int channel;
+        private final int channels;
+        private final WaveformSimilarityBasedOverlapAdd wsola;
+        private final int frameLength;
+        private final int skip;
+        private final AudioEvent event;
+        private final float[] frame;
+        // null when the pitch is unchanged
+        private final Resampler resampler;
+        private final double resampleFactor;
+
+        private final PendingSamples pending = new PendingSamples();
+        private float[] stretched = new float[0];
+        private int stretchedLength;
+        private float[] output = new float[0];
+        private int outputLength;
+
+        ChannelStretcher(float sampleRate, int channel, int channels) {
+            this.channel = channel;
+            this.channels = channels;
+            this.wsola = newWsola(sampleRate);
+            this.frameLength = wsola.getInputBufferSize();
+            this.skip = frameLength - wsola.getOverlap();
+            this.event = new AudioEvent(new TarsosDSPAudioFormat(sampleRate, 16, 1, true, false));
+            this.frame = new float[frameLength];
+            this.resampleFactor = 1 / pitch;
+            this.resampler = pitch == 1 ? null : new Resampler(true, resampleFactor, resampleFactor);
+        }
+
+        /**
+         * @param offsets the offsets to mix the frames of this block at, or
+         *                null to search for them on this channel
+         */
+        void process(float[] interleaved, int frames, boolean last, int[] offsets) {
+            // the last block is followed by a frame of silence so its tail gets stretched as well
+            pending.append(interleaved, frames, channel, channels, last ? frameLength : 0);
+
+            stretchedLength = 0;
+            int position = 0;
+            int count = 0;
+            while (position + frameLength <= pending.length) {
+                System.arraycopy(pending.samples, position, frame, 0, frameLength);
+                event.setFloatBuffer(frame);
+                if (offsets == null) {
+                    wsola.process(event);
+                } else {
+                    // every channel has the same frames as the downmix
+                    wsola.process(event, offsets[count++]);
+                }
+                float[] sequence = event.getFloatBuffer();
+                if (stretched.length < stretchedLength + sequence.length) {
+                    stretched = Arrays.copyOf(stretched, Math.max(2 * stretched.length, stretchedLength + sequence.length));
+                }
+                System.arraycopy(sequence, 0, stretched, stretchedLength, sequence.length);
+                stretchedLength += sequence.length;
+                position += skip;
+            }
+            pending.consume(position);
+
+            if (resampler == null) {
+                output = stretched;
+                outputLength = stretchedLength;
+            } else {
+                resample(last);
+            }
+        }
+
+        private void resample(boolean last) {
+            FloatBuffer in = FloatBuffer.wrap(stretched, 0, stretchedLength);
+            int expected = (int) Math.ceil(stretchedLength * resampleFactor) + resampler.getFilterWidth();
+            if (output.length < expected) {
+                output = new float[expected];
+            }
+            FloatBuffer out = FloatBuffer.wrap(output);
+            while (true) {
+                boolean complete = resampler.process(resampleFactor, in, last, out);
+                if (!out.hasRemaining()) {
+                    int position = out.position();
+                    output = Arrays.copyOf(output, 2 * output.length);
+                    out = FloatBuffer.wrap(output);
+                    out.position(position);
+                } else if (!in.hasRemaining() && (!last || complete)) {
+                    break;
+                }
+            }
+            outputLength = out.position();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.writer.WaveHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A directory of float WAV files keyed by a hash, such as decoded PCM or
+ * renderings. An entry is written to a uniquely named partial file and
+ * published by an atomic rename; partial files left behind by a shutdown are
+ * deleted on start. The least recently used entries are deleted once the
+ * directory holds more than the given number of bytes.
+ * <p>
+ * Entries are only opened through {@link #read} and {@link #publish}, which
+ * hold the store's monitor like eviction does, so an entry is never deleted
+ * between the check that it exists and its opening. What was opened stays
+ * readable when the entry is evicted later.
+ */
+public class WaveFileStore {
+
+    /**
+     * Opens an entry, e.g. by mapping it or reading its header.
+     */
+    @FunctionalInterface
+    public interface EntryReader<T> {
+        T read(Path entry) throws IOException;
+    }
+
+    public static final int HEADER_LENGTH = 44;
+    /**
+     * The most data a WAV file can hold: its RIFF chunk size, an unsigned 32
+     * bit count, also covers the 36 header bytes after it.
+     */
+    public static final long MAX_DATA_BYTES = 0xFFFFFFFFL - (HEADER_LENGTH - 8);
+
+    private static final Logger logger = LoggerFactory.getLogger(WaveFileStore.class);
+    private static final String ENTRY_SUFFIX = ".wav";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final short FORMAT_IEEE_FLOAT = 3;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final String name;
+
+    // access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * @param name what the store holds, for the log
+     */
+    public WaveFileStore(Path directory, long maxBytes, String name) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.name = name;
+    }
+
+    /**
+     * Creates the directory, deletes partial files and takes stock of the
+     * entries, oldest first.
+     */
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> existing;
+        try (Stream<Path> partials = Files.list(directory)) {
+            // left behind by writes that were interrupted by a shutdown
+            partials.filter(p -> p.getFileName().toString().endsWith(PARTIAL_SUFFIX))
+                .forEach(this::discardPartial);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files.filter(p -> p.getFileName().toString().endsWith(ENTRY_SUFFIX))
+                .sorted(Comparator.comparing(WaveFileStore::lastModified))
+                .collect(Collectors.toList());
+        }
+        synchronized (this) {
+            for (Path entry : existing) {
+                long size = Files.size(entry);
+                entrySizes.put(keyOf(entry), size);
+                totalBytes += size;
+            }
+            evictIfNeeded(null);
+        }
+        logger.info("Opened {} at {} with {} entries ({} bytes)", name, directory, entrySizes.size(), totalBytes);
+    }
+
+    public boolean contains(String key) {
+        return Files.exists(entryPath(key));
+    }
+
+    /**
+     * Opens the entry of a key and marks it as most recently used, or returns
+     * null if there is none.
+     */
+    public synchronized <T> T read(String key, EntryReader<T> reader) throws IOException {
+        Path entry = entryPath(key);
+        if (!Files.exists(entry)) {
+            return null;
+        }
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        entrySizes.get(key); // mark as most recently used
+        return reader.read(entry);
+    }
+
+    /**
+     * Returns a new partial file, unique so one left behind by a crashed
+     * write is never reopened. Write it with {@link #openPartial}, then pass
+     * it to {@link #publish} or {@link #discardPartial}.
+     */
+    public Path createPartial() {
+        return directory.resolve(UUID.randomUUID() + PARTIAL_SUFFIX);
+    }
+
+    /**
+     * Creates a partial file, positioned after the room for its header.
+     */
+    public FileChannel openPartial(Path partial) throws IOException {
+        FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        channel.position(HEADER_LENGTH);
+        return channel;
+    }
+
+    /**
+     * Moves a written partial file into place as the entry of a key, evicts
+     * older entries as needed and opens the new one before another publish
+     * can evict it.
+     */
+    public <T> T publish(Path partial, String key, EntryReader<T> reader) throws IOException {
+        Path entry = entryPath(key);
+        Files.move(partial, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long size = Files.size(entry);
+        synchronized (this) {
+            Long previous = entrySizes.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evictIfNeeded(key);
+            return reader.read(entry);
+        }
+    }
+
+    public void discardPartial(Path partial) {
+        try {
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            logger.warn("Could not delete partial {} entry {}", name, partial, e);
+        }
+    }
+
+    /**
+     * Throws an {@link IllegalArgumentException} when the given number of
+     * float frames does not fit in a WAV file.
+     */
+    public static void checkFrames(long frames, int channels) {
+        if (frames > MAX_DATA_BYTES / ((long) channels * Float.BYTES)) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                "%d frames of %d channel float PCM exceed the %d bytes a WAV file can hold",
+                frames, channels, MAX_DATA_BYTES));
+        }
+    }
+
+    /**
+     * Writes the header of interleaved float PCM that fills the rest of the
+     * channel. The data size is stored as the unsigned 32 bit number WAV
+     * specifies, read it back with {@link #dataBytes}.
+     */
+    public static void writeHeader(FileChannel channel, float sampleRate, int channels) throws IOException {
+        long dataBytes = channel.size() - HEADER_LENGTH;
+        if (dataBytes > MAX_DATA_BYTES) {
+            throw new IOException(dataBytes + " bytes of PCM exceed the " + MAX_DATA_BYTES
+                + " bytes a WAV file can hold");
+        }
+        ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_LENGTH);
+        new WaveHeader(FORMAT_IEEE_FLOAT, (short) channels, Math.round(sampleRate), (short) Float.SIZE,
+            (int) dataBytes).write(header);
+        channel.write(ByteBuffer.wrap(header.toByteArray()), 0);
+    }
+
+    public static WaveHeader readHeader(FileChannel channel) throws IOException {
+        ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_LENGTH);
+        channel.read(headerBytes, 0);
+        WaveHeader header = new WaveHeader();
+        header.read(new ByteArrayInputStream(headerBytes.array()));
+        return header;
+    }
+
+    /**
+     * The size of the data of a header written by {@link #writeHeader}, which
+     * {@link WaveHeader#getNumBytes()} returns as a negative int from 2 GB on.
+     */
+    public static long dataBytes(WaveHeader header) {
+        return Integer.toUnsignedLong(header.getNumBytes());
+    }
+
+    private void evictIfNeeded(String keep) {
+        Iterator<Map.Entry<String, Long>> eldest = entrySizes.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> candidate = eldest.next();
+            if (candidate.getKey().equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(entryPath(candidate.getKey()));
+                totalBytes -= candidate.getValue();
+                eldest.remove();
+                logger.debug("Evicted {} from {}", candidate.getKey(), name);
+            } catch (IOException e) {
+                logger.warn("Could not evict {} entry {}", name, candidate.getKey(), e);
+            }
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    private static String keyOf(Path entry) {
+        String name = entry.getFileName().toString();
+        return name.substring(0, name.length() - ENTRY_SUFFIX.length());
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
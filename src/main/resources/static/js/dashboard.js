@@ -3,7 +3,9 @@ document.addEventListener('DOMContentLoaded', function() {
     const dropZone = document.getElementById('dropZone');
     const fileInput = document.getElementById('fileInput');
     const uploadProgress = document.getElementById('uploadProgress');
-    const progressBar = uploadProgress?.querySelector('.progress');
+    const progressBar = document.getElementById('analysisProgressBar');
+    const partialResults = document.getElementById('partialResults');
+    const cancelAnalysisBtn = document.getElementById('cancelAnalysisBtn');
     const uploadStatus = document.getElementById('uploadStatus');
     const analysisResults = document.getElementById('analysisResults');
     const playBtn = document.getElementById('playBtn');
@@ -13,6 +15,10 @@ document.addEventListener('DOMContentLoaded', function() {
     
     let keyVis, chordVis, melodyVis;
     let currentFileId = null;
+    let currentJobId = null;
+    let analysisEvents = null;
+    
+    const PITCH_CLASSES = ['C', 'C#', 'D', 'D#', 'E', 'F', 'F#', 'G', 'G#', 'A', 'A#', 'B'];
 
     // Initialize visualizations
     function initVisualizations() {
@@ -140,29 +146,141 @@ document.addEventListener('DOMContentLoaded', function() {
     }
 
     function analyzeAudio(fileId) {
-        updateUploadStatus('Analyzing audio... This may take a few minutes.');
+        updateUploadStatus('Queued for analysis...');
         
-        return fetch(`/api/audio/analyze/${fileId}`, {
-            method: 'GET'
+        return fetch(`/api/audio/jobs?fileId=${encodeURIComponent(fileId)}`, {
+            method: 'POST'
         })
         .then(response => {
+            if (response.status === 429) {
+                throw new Error('The server is busy, please try again in a moment');
+            }
             if (!response.ok) {
                 throw new Error(`Analysis failed: ${response.status}`);
             }
             return response.json();
         })
-        .then(data => {
+        .then(job => followAnalysisJob(job.jobId))
+        .catch(error => {
+            console.error('Analysis error:', error);
+            showToast('Error analyzing audio: ' + error.message, 'error');
+            resetUploadUI();
+        });
+    }
+
+    // Streams progress and partial results for a queued analysis job
+    function followAnalysisJob(jobId) {
+        currentJobId = jobId;
+        if (cancelAnalysisBtn) cancelAnalysisBtn.classList.remove('hidden');
+        
+        analysisEvents = new EventSource(`/api/audio/jobs/${jobId}/events`);
+        
+        analysisEvents.addEventListener('progress', event => {
+            updateAnalysisProgress(JSON.parse(event.data));
+        });
+        
+        analysisEvents.addEventListener('partial', event => {
+            const partial = JSON.parse(event.data);
+            updateAnalysisProgress(partial);
+            displayPartialResults(partial);
+        });
+        
+        analysisEvents.addEventListener('completed', event => {
+            finishAnalysisJob();
+            setAnalysisProgress(1);
             updateUploadStatus('Analysis complete!');
+            const data = JSON.parse(event.data);
             setTimeout(() => {
                 if (uploadProgress) uploadProgress.classList.add('hidden');
                 displayAnalysisResults(data);
             }, 1000);
-        })
-        .catch(error => {
-            console.error('Analysis error:', error);
-            showToast('Error analyzing audio: ' + error.message, 'error');
+        });
+        
+        analysisEvents.addEventListener('failed', event => {
+            finishAnalysisJob();
+            const job = JSON.parse(event.data);
+            showToast('Error analyzing audio: ' + (job.errorMessage || 'analysis failed'), 'error');
+            resetUploadUI();
+        });
+        
+        analysisEvents.addEventListener('cancelled', () => {
+            finishAnalysisJob();
+            showToast('Analysis cancelled', 'info');
             resetUploadUI();
         });
+        
+        analysisEvents.onerror = () => {
+            // EventSource reconnects by itself; only give up once it has closed
+            if (analysisEvents && analysisEvents.readyState === EventSource.CLOSED) {
+                finishAnalysisJob();
+                showToast('Lost connection to the analysis', 'error');
+                resetUploadUI();
+            }
+        };
+    }
+
+    function finishAnalysisJob() {
+        if (analysisEvents) {
+            analysisEvents.close();
+            analysisEvents = null;
+        }
+        currentJobId = null;
+        if (cancelAnalysisBtn) cancelAnalysisBtn.classList.add('hidden');
+    }
+
+    function cancelAnalysis() {
+        if (!currentJobId) return;
+        
+        cancelAnalysisBtn.disabled = true;
+        fetch(`/api/audio/jobs/${currentJobId}`, { method: 'DELETE' })
+            .catch(error => {
+                console.error('Cancel error:', error);
+                showToast('Could not cancel analysis', 'error');
+            })
+            .finally(() => {
+                cancelAnalysisBtn.disabled = false;
+            });
+    }
+
+    function updateAnalysisProgress(event) {
+        if (event.status === 'QUEUED') {
+            updateUploadStatus('Queued for analysis...');
+            return;
+        }
+        const percent = Math.round(event.progress * 100);
+        updateUploadStatus(`Analyzing audio... ${percent}%`);
+        setAnalysisProgress(event.progress);
+    }
+
+    function setAnalysisProgress(fraction) {
+        if (progressBar) {
+            progressBar.style.width = Math.round(fraction * 100) + '%';
+        }
+    }
+
+    // Running estimates over the audio processed so far
+    function displayPartialResults(partial) {
+        if (!partialResults) return;
+        
+        const parts = [];
+        if (partial.key) {
+            parts.push(`Key so far: ${partial.key}`);
+        }
+        if (partial.tempo) {
+            parts.push(`~${Math.round(partial.tempo)} BPM`);
+        }
+        if (partial.pitchHistogram) {
+            const top = partial.pitchHistogram
+                .map((count, index) => ({ note: PITCH_CLASSES[index], count }))
+                .filter(entry => entry.count > 0)
+                .sort((a, b) => b.count - a.count)
+                .slice(0, 3)
+                .map(entry => entry.note);
+            if (top.length > 0) {
+                parts.push(`Common notes: ${top.join(', ')}`);
+            }
+        }
+        partialResults.textContent = parts.join(' · ');
     }
 
     function displayAnalysisResults(data) {
@@ -239,6 +357,9 @@ document.addEventListener('DOMContentLoaded', function() {
         if (progressBar) {
             progressBar.style.width = '0%';
         }
+        if (partialResults) {
+            partialResults.textContent = 'This may take a few moments';
+        }
     }
 
     function updateUploadStatus(message) {
@@ -300,6 +421,10 @@ document.addEventListener('DOMContentLoaded', function() {
         });
     }
 
+    if (cancelAnalysisBtn) {
+        cancelAnalysisBtn.addEventListener('click', cancelAnalysis);
+    }
+
     // Copy progression button handler
     const copyProgressionBtn = document.getElementById('copyProgressionBtn');
     if (copyProgressionBtn) {
@@ -0,0 +1,301 @@
+package com.example.LogicBro.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load harness for the upload and analyze endpoints. Starts the application on
+ * an in-memory H2 database, uploads synthetic WAV files and analyzes them at
+ * each configured concurrency level, then prints and writes a report with
+ * p50/p95/p99 latencies, files per minute, peak heap and allocation rate.
+ * <p>
+ * Excluded from the normal build; run it with {@code mvn test -Pload-test}.
+ * Tune it with {@code -Dlogicbro.load.files=16},
+ * {@code -Dlogicbro.load.durationSeconds=30}, {@code -Dlogicbro.load.warmupFiles=2},
+ * {@code -Dlogicbro.load.concurrency=1,2,4,8} and
+ * {@code -Dlogicbro.load.report=target/load-test-report.json}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false",
+    "logicbro.upload.audioPath=${java.io.tmpdir}/logicbro-load/audio",
+    "logicbro.upload.tempDir=${java.io.tmpdir}/logicbro-load/temp"
+})
+class AnalysisLoadTest {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final String PASSWORD = "load-test-password";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    Path waveDirectory;
+
+    private HttpClient client;
+
+    @Test
+    void uploadAndAnalyzeUnderLoad() throws Exception {
+        int files = Integer.getInteger("logicbro.load.files", 16);
+        int warmupFiles = Integer.getInteger("logicbro.load.warmupFiles", 2);
+        double seconds = Double.parseDouble(System.getProperty("logicbro.load.durationSeconds", "30"));
+        int[] concurrencyLevels = Arrays.stream(System.getProperty("logicbro.load.concurrency", "1,2,4,8").split(","))
+            .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        Path reportFile = Paths.get(System.getProperty("logicbro.load.report", "target/load-test-report.json"));
+
+        client = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        login();
+
+        int nextIndex = 0;
+        // warm up the JIT and the pools; not part of the report
+        List<File> warmup = new ArrayList<>();
+        for (int i = 0; i < warmupFiles; i++) {
+            warmup.add(SyntheticWaves.generate(waveDirectory, nextIndex++, seconds, SAMPLE_RATE));
+        }
+        runLevel(warmup, 1);
+
+        List<Map<String, Object>> levels = new ArrayList<>();
+        for (int concurrency : concurrencyLevels) {
+            // fresh content for every level so nothing is served from the result cache
+            List<File> waves = new ArrayList<>();
+            for (int i = 0; i < files; i++) {
+                waves.add(SyntheticWaves.generate(waveDirectory, nextIndex++, seconds, SAMPLE_RATE));
+            }
+            Map<String, Object> level = runLevel(waves, concurrency);
+            level.put("fileSeconds", seconds);
+            levels.add(level);
+            waves.forEach(File::delete);
+        }
+
+        printReport(levels);
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), Map.of("levels", levels));
+
+        for (Map<String, Object> level : levels) {
+            assertEquals(0, level.get("failures"), "failed requests at concurrency " + level.get("concurrency"));
+        }
+    }
+
+    private Map<String, Object> runLevel(List<File> waves, int concurrency) throws Exception {
+        long[] uploadNanos = new long[waves.size()];
+        long[] analyzeNanos = new long[waves.size()];
+        long[] totalNanos = new long[waves.size()];
+        AtomicInteger failures = new AtomicInteger();
+
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < waves.size(); i++) {
+                int index = i;
+                requests.add(executor.submit(() -> {
+                    try {
+                        long begin = System.nanoTime();
+                        String fileId = upload(waves.get(index));
+                        long uploaded = System.nanoTime();
+                        analyze(fileId);
+                        long analyzed = System.nanoTime();
+                        uploadNanos[index] = uploaded - begin;
+                        analyzeNanos[index] = analyzed - uploaded;
+                        totalNanos[index] = analyzed - begin;
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        System.err.println("Request for " + waves.get(index).getName() + " failed: " + e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> request : requests) {
+                request.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        double wallSeconds = (System.nanoTime() - started) / 1e9;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Map<String, Object> level = new LinkedHashMap<>();
+        level.put("concurrency", concurrency);
+        level.put("files", waves.size());
+        level.put("failures", failures.get());
+        level.put("wallSeconds", wallSeconds);
+        level.put("filesPerMinute", (waves.size() - failures.get()) / wallSeconds * 60);
+        level.put("uploadMillis", percentiles(uploadNanos));
+        level.put("analyzeMillis", percentiles(analyzeNanos));
+        level.put("totalMillis", percentiles(totalNanos));
+        level.put("peakHeapMegabytes", peakHeapBytes() / 1048576.0);
+        level.put("allocationMegabytesPerSecond", allocated / 1048576.0 / wallSeconds);
+        return level;
+    }
+
+    private void login() throws IOException, InterruptedException {
+        String username = "load-" + UUID.randomUUID().toString().substring(0, 8);
+        send(formPost("/register", Map.of("username", username, "password", PASSWORD,
+            "email", username + "@example.com")));
+        HttpResponse<String> response = send(formPost("/login", Map.of("username", username, "password", PASSWORD)));
+        String location = response.headers().firstValue("Location").orElse("");
+        if (location.contains("error")) {
+            throw new IllegalStateException("Login failed for " + username);
+        }
+    }
+
+    private String upload(File wave) throws IOException, InterruptedException {
+        String boundary = "----LogicBroLoad" + UUID.randomUUID();
+        byte[] head = ("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"" + wave.getName() + "\"\r\n"
+            + "Content-Type: audio/wav\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/audio/upload"))
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(head),
+                HttpRequest.BodyPublishers.ofFile(wave.toPath()),
+                HttpRequest.BodyPublishers.ofByteArray(tail)))
+            .build();
+        HttpResponse<String> response = expectOk(send(request));
+        JsonNode body = objectMapper.readTree(response.body());
+        return body.get("fileId").asText();
+    }
+
+    private void analyze(String fileId) throws IOException, InterruptedException {
+        // GET: POST on this path is also mapped by AudioAnalysisController and is ambiguous
+        HttpRequest request = HttpRequest.newBuilder(uri("/api/audio/analyze/" + fileId))
+            .GET()
+            .timeout(Duration.ofMinutes(10))
+            .build();
+        expectOk(send(request));
+    }
+
+    private HttpRequest formPost(String path, Map<String, String> fields) {
+        StringBuilder form = new StringBuilder();
+        fields.forEach((name, value) -> form.append(form.length() == 0 ? "" : "&")
+            .append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+            .append(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+        return HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form.toString()))
+            .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> expectOk(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new IOException(response.request().uri().getPath() + " returned " + response.statusCode());
+        }
+        return response;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static Map<String, Double> percentiles(long[] nanos) {
+        long[] sorted = Arrays.stream(nanos).filter(n -> n > 0).sorted().toArray();
+        Map<String, Double> result = new LinkedHashMap<>();
+        result.put("p50", percentile(sorted, 0.50));
+        result.put("p95", percentile(sorted, 0.95));
+        result.put("p99", percentile(sorted, 0.99));
+        result.put("max", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        return result;
+    }
+
+    // nearest-rank percentile
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    private static long peakHeapBytes() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+    }
+
+    /**
+     * Bytes allocated so far by all live threads. The server and executor pools
+     * outlive a level, so their allocations are fully counted.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            .filter(bytes -> bytes > 0)
+            .sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(List<Map<String, Object>> levels) {
+        System.out.println();
+        System.out.println("=== Analysis load test ===");
+        System.out.printf("%-11s %-6s %-8s %-10s %-26s %-26s %-12s %-10s%n", "concurrency", "files", "failures",
+            "files/min", "analyze p50/p95/p99 ms", "total p50/p95/p99 ms", "peak heap MB", "alloc MB/s");
+        for (Map<String, Object> level : levels) {
+            Map<String, Double> analyze = (Map<String, Double>) level.get("analyzeMillis");
+            Map<String, Double> total = (Map<String, Double>) level.get("totalMillis");
+            System.out.printf("%-11d %-6d %-8d %-10.1f %-26s %-26s %-12.0f %-10.0f%n",
+                level.get("concurrency"), level.get("files"), level.get("failures"), level.get("filesPerMinute"),
+                String.format("%.0f/%.0f/%.0f", analyze.get("p50"), analyze.get("p95"), analyze.get("p99")),
+                String.format("%.0f/%.0f/%.0f", total.get("p50"), total.get("p95"), total.get("p99")),
+                level.get("peakHeapMegabytes"), level.get("allocationMegabytesPerSecond"));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.LogicBro.load;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.AudioGenerator;
+import be.tarsos.dsp.AudioProcessor;
+import be.tarsos.dsp.io.jvm.WaveformWriter;
+import be.tarsos.dsp.synthesis.NoiseGenerator;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Writes 16 bit mono WAV files with a TarsosDSP {@link AudioGenerator}: a
+ * major triad arpeggiated one note per beat, each note decaying until the next,
+ * plus a little noise. The root and tempo depend on the file index, so every
+ * file has distinct content and is not served from the result cache, and the
+ * analysis has a pitch track and a pulse to find.
+ */
+public final class SyntheticWaves {
+
+    private static final int BUFFER_SIZE = 2048;
+    private static final String[] NOTE_NAMES = {"A", "A#", "B", "C", "C#", "D", "D#", "E", "F", "F#", "G", "G#"};
+
+    private SyntheticWaves() {
+    }
+
+    /**
+     * Name of the root note of the file with the given index, e.g. {@code "C#"}.
+     */
+    public static String key(int index) {
+        return NOTE_NAMES[index % 12];
+    }
+
+    /**
+     * Beats per minute of the file with the given index.
+     */
+    public static double tempo(int index) {
+        return 90 + 10 * (index % 5);
+    }
+
+    public static File generate(Path directory, int index, double seconds, int sampleRate) {
+        File file = directory.resolve("load-" + index + ".wav").toFile();
+        double root = 110 * Math.pow(2, (index % 36) / 12.0);
+        double[] triad = {root, root * Math.pow(2, 4 / 12.0), root * Math.pow(2, 7 / 12.0)};
+        double beatSeconds = 60 / tempo(index);
+
+        AudioGenerator generator = new AudioGenerator(BUFFER_SIZE, 0, sampleRate);
+        generator.addAudioProcessor(new AudioProcessor() {
+            @Override
+            public boolean process(AudioEvent audioEvent) {
+                if (audioEvent.getTimeStamp() >= seconds) {
+                    generator.stop();
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public void processingFinished() {
+            }
+        });
+        generator.addAudioProcessor(new AudioProcessor() {
+            private double phase;
+
+            @Override
+            public boolean process(AudioEvent audioEvent) {
+                float[] buffer = audioEvent.getFloatBuffer();
+                for (int i = 0; i < buffer.length; i++) {
+                    double time = audioEvent.getTimeStamp() + i / (double) sampleRate;
+                    int beat = (int) (time / beatSeconds);
+                    phase += 2 * Math.PI * triad[beat % triad.length] / sampleRate;
+                    buffer[i] += (float) (0.6 * Math.exp(-4 * (time - beat * beatSeconds)) * Math.sin(phase));
+                }
+                return true;
+            }
+
+            @Override
+            public void processingFinished() {
+            }
+        });
+        generator.addAudioProcessor(new NoiseGenerator(0.02));
+        generator.addAudioProcessor(new WaveformWriter(generator.getFormat(), file.getAbsolutePath()));
+        generator.run();
+        return file;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.LogicBro.util;
+
+import com.example.LogicBro.config.AudioConfig;
+import com.example.LogicBro.load.SyntheticWaves;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AudioAnalysisUtilTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    @TempDir
+    Path waveDirectory;
+
+    private ForkJoinPool pool;
+
+    @AfterEach
+    void shutDownPool() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void keyAndTempoDoNotDependOnAnalysisSampleRate() throws Exception {
+        AudioAnalysisUtil full = analysisAt(SAMPLE_RATE);
+        AudioAnalysisUtil decimated = analysisAt(11025);
+        // the five tempos and roots spread over the octave
+        for (int index = 0; index < 5; index++) {
+            File file = SyntheticWaves.generate(waveDirectory, index * 7, 20, SAMPLE_RATE);
+            AudioFeatures expected = full.extractFeatures(full.decode(file));
+            AudioFeatures actual = decimated.extractFeatures(decimated.decode(file));
+
+            String name = "file " + index * 7;
+            double tempo = SyntheticWaves.tempo(index * 7);
+            assertEquals(full.determineKey(expected.getPitches()), decimated.determineKey(actual.getPitches()), name);
+            assertEquals(tempo, full.detectTempo(expected), tempo * 0.02, name);
+            assertEquals(full.detectTempo(expected), decimated.detectTempo(actual), tempo * 0.01, name);
+        }
+    }
+
+    @Test
+    void shardedExtractionMatchesSequentialExtraction() throws Exception {
+        // long enough to be split into several segments
+        File file = SyntheticWaves.generate(waveDirectory, 7, 40, SAMPLE_RATE);
+
+        AudioAnalysisUtil sequential = new AudioAnalysisUtil();
+        AudioAnalysisUtil sharded = new AudioAnalysisUtil();
+        pool = new ForkJoinPool(4);
+        ReflectionTestUtils.setField(sharded, "analysisForkJoinPool", pool);
+
+        DecodedAudio decoded = sequential.decode(file);
+        AudioFeatures expected = sequential.extractFeatures(decoded);
+        AudioFeatures actual = sharded.extractFeatures(decoded);
+
+        assertFalse(expected.getPitches().isEmpty());
+        assertEquals(expected.getPitches(), actual.getPitches());
+        assertEquals(expected.getFrameTimes(), actual.getFrameTimes());
+        assertEquals(expected.getFrameEnergies(), actual.getFrameEnergies());
+        assertEquals(expected.getSpectralCentroids(), actual.getSpectralCentroids());
+        assertEquals(expected.getSpectralFlux(), actual.getSpectralFlux());
+        assertEquals(expected.getBeatTimes(), actual.getBeatTimes());
+    }
+
+    private static AudioAnalysisUtil analysisAt(int analysisSampleRate) {
+        AudioConfig config = new AudioConfig();
+        config.setAnalysisSampleRate(analysisSampleRate);
+        AudioAnalysisUtil analysis = new AudioAnalysisUtil();
+        ReflectionTestUtils.setField(analysis, "audioConfig", config);
+        return analysis;
+    }
+}
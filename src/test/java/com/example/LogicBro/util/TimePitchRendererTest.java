@@ -0,0 +1,113 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.WaveformSimilarityBasedOverlapAdd.Parameters;
+import be.tarsos.dsp.io.MappedAudioInputStream;
+import be.tarsos.dsp.io.TarsosDSPAudioFloatConverter;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimePitchRendererTest {
+
+    private static final int SAMPLE_RATE = 44100;
+    // several read blocks and not a whole number of them
+    private static final int FRAMES = 5 * SAMPLE_RATE + 123;
+    private static final double[][] TEMPO_AND_PITCH = {
+        {1, 1}, {0.8, 1}, {1, 1.5}, {1.3, 0.7}, {0.25, 4}, {4, 0.25}};
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void identicalChannelsRenderIdentically() throws IOException {
+        float[] mono = noise(FRAMES);
+        float[] stereo = new float[2 * FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            stereo[2 * i] = mono[i];
+            stereo[2 * i + 1] = mono[i];
+        }
+        for (double[] factors : TEMPO_AND_PITCH) {
+            float[] output = render(stereo, 2, factors[0], factors[1], pool);
+            float[] left = new float[output.length / 2];
+            float[] right = new float[output.length / 2];
+            for (int i = 0; i < left.length; i++) {
+                left[i] = output[2 * i];
+                right[i] = output[2 * i + 1];
+            }
+            assertArrayEquals(left, right, "tempo " + factors[0] + ", pitch " + factors[1]);
+        }
+    }
+
+    @Test
+    void outputLengthIsInputLengthOverTempo() throws IOException {
+        float[] mono = noise(FRAMES);
+        for (double[] factors : TEMPO_AND_PITCH) {
+            String name = "tempo " + factors[0] + ", pitch " + factors[1];
+            assertEquals(Math.round(FRAMES / factors[0]), render(mono, 1, factors[0], factors[1], null).length, name);
+            assertEquals(Math.round(FRAMES / factors[0]), render(mono, 1, factors[0], factors[1], pool).length, name);
+        }
+    }
+
+    @Test
+    void unitFactorsReturnInputAfterWsolaDelay() throws IOException {
+        float[] input = noise(FRAMES);
+        float[] output = render(input, 1, 1, 1, null);
+
+        // the first sequence has nothing to match, so WSOLA mixes it at the middle of the seek window
+        // and every later one follows at the same offset; it fades in over the first overlap
+        Parameters parameters = Parameters.musicDefaults(1, SAMPLE_RATE);
+        int delay = (int) (SAMPLE_RATE * parameters.getSeekWindowMs() / 1000) / 2;
+        int fadeIn = (int) (SAMPLE_RATE * parameters.getOverlapMs() / 1000);
+        double error = 0;
+        for (int i = delay + fadeIn; i < FRAMES; i++) {
+            error = Math.max(error, Math.abs(output[i - delay] - input[i]));
+        }
+        assertTrue(error < 1e-6, String.valueOf(error));
+    }
+
+    /**
+     * Renders interleaved float PCM and returns the interleaved output.
+     */
+    private static float[] render(float[] input, int channels, double tempo, double pitch, ForkJoinPool pool)
+            throws IOException {
+        TarsosDSPAudioFormat format = new TarsosDSPAudioFormat(TarsosDSPAudioFloatConverter.PCM_FLOAT, SAMPLE_RATE,
+            32, channels, 4 * channels, SAMPLE_RATE, false);
+        byte[] bytes = new byte[input.length * Float.BYTES];
+        TarsosDSPAudioFloatConverter.getConverter(format).toByteArray(input, bytes);
+        MappedAudioInputStream source = new MappedAudioInputStream(ByteBuffer.wrap(bytes), format);
+
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        long frames = new TimePitchRenderer(tempo, pitch, pool).render(source, Channels.newChannel(rendered));
+        FloatBuffer samples = ByteBuffer.wrap(rendered.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        float[] output = new float[samples.remaining()];
+        samples.get(output);
+        assertEquals(frames * channels, output.length);
+        return output;
+    }
+
+    private static float[] noise(int samples) {
+        Random random = new Random(samples);
+        float[] audio = new float[samples];
+        for (int i = 0; i < audio.length; i++) {
+            audio[i] = random.nextFloat() - 0.5f;
+        }
+        return audio;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.LogicBro.util;
+
+import be.tarsos.dsp.writer.WaveHeader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WaveFileStoreTest {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int STEREO = 2;
+    // the slowest tempo a rendering can have
+    private static final double TEMPO = 0.25;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void dataSizeAboveTwoGigabytesReadsBackUnsigned() throws IOException {
+        // half an hour of stereo at a quarter of the tempo takes more than 2^31 bytes
+        long frames = TimePitchRenderer.targetFrames(30 * 60 * SAMPLE_RATE, TEMPO);
+        long dataBytes = frames * STEREO * Float.BYTES;
+        Path file = sparseFile(dataBytes);
+
+        WaveHeader header;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            WaveFileStore.writeHeader(channel, SAMPLE_RATE, STEREO);
+            header = WaveFileStore.readHeader(channel);
+        }
+
+        assertEquals(dataBytes, WaveFileStore.dataBytes(header));
+        assertEquals(2 * 60 * 60, (double) WaveFileStore.dataBytes(header)
+            / (header.getNumChannels() * Float.BYTES) / header.getSampleRate(), 1e-6);
+    }
+
+    @Test
+    void renderingsBeyondTheWaveLimitAreRejected() throws IOException {
+        assertDoesNotThrow(() -> WaveFileStore.checkFrames(
+            TimePitchRenderer.targetFrames(30 * 60 * SAMPLE_RATE, TEMPO), STEREO));
+        // an hour of stereo at a quarter of the tempo takes more than 2^32 bytes
+        assertThrows(IllegalArgumentException.class, () -> WaveFileStore.checkFrames(
+            TimePitchRenderer.targetFrames(60 * 60 * SAMPLE_RATE, TEMPO), STEREO));
+        long maxFrames = WaveFileStore.MAX_DATA_BYTES / (STEREO * Float.BYTES);
+        assertDoesNotThrow(() -> WaveFileStore.checkFrames(maxFrames, STEREO));
+        assertThrows(IllegalArgumentException.class, () -> WaveFileStore.checkFrames(maxFrames + 1, STEREO));
+
+        Path file = sparseFile(WaveFileStore.MAX_DATA_BYTES + 1);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            assertThrows(IOException.class, () -> WaveFileStore.writeHeader(channel, SAMPLE_RATE, STEREO));
+        }
+    }
+
+    @Test
+    void publishEvictsTheLeastRecentlyUsedEntry() throws IOException {
+        long entryBytes = WaveFileStore.HEADER_LENGTH + 1000 * Float.BYTES;
+        WaveFileStore store = new WaveFileStore(directory.resolve("store"), 2 * entryBytes, "test store");
+        store.init();
+        publish(store, "a");
+        publish(store, "b");
+        assertNotNull(store.read("a", WaveFileStoreTest::header));
+
+        publish(store, "c");
+
+        assertNotNull(store.read("a", WaveFileStoreTest::header));
+        assertNull(store.read("b", WaveFileStoreTest::header));
+        assertNotNull(store.read("c", WaveFileStoreTest::header));
+    }
+
+    private static void publish(WaveFileStore store, String key) throws IOException {
+        Path partial = store.createPartial();
+        try (FileChannel channel = store.openPartial(partial)) {
+            channel.write(ByteBuffer.allocate(1000 * Float.BYTES));
+            WaveFileStore.writeHeader(channel, SAMPLE_RATE, 1);
+        }
+        store.publish(partial, key, WaveFileStoreTest::header);
+    }
+
+    private static WaveHeader header(Path entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            return WaveFileStore.readHeader(channel);
+        }
+    }
+
+    /**
+     * A file with room for a header and the given number of data bytes, which
+     * are not written so the file takes no space.
+     */
+    private Path sparseFile(long dataBytes) throws IOException {
+        Path file = directory.resolve("sparse.wav");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.SPARSE)) {
+            channel.write(ByteBuffer.allocate(1), WaveFileStore.HEADER_LENGTH + dataBytes - 1);
+        }
+        return file;
+    }
+}